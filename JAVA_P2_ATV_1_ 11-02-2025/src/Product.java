@@ -1,10 +1,12 @@
 public class Product{
     private String name;
     private double price;
+    private long priceCents;
 
     public Product(String name, double price){
         this.name = name;
         this.price = price;
+        this.priceCents = Math.round(price * 100);
     }
 
     public String getName(){
@@ -15,6 +17,27 @@ public class Product{
         return price;
     }
 
+    public long getPriceCents(){
+        return priceCents;
+    }
+
+    @Override
+    public boolean equals(Object obj){
+        if (this == obj){
+            return true;
+        }
+        if (obj == null || obj.getClass() != getClass()){
+            return false;
+        }
+        Product other = (Product) obj;
+        return priceCents == other.priceCents && name.equals(other.name);
+    }
+
+    @Override
+    public int hashCode(){
+        return 31 * name.hashCode() + Long.hashCode(priceCents);
+    }
+
     @Override
     public String toString(){
         return name + " - $"+ price;
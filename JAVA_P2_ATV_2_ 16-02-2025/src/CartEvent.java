@@ -0,0 +1,70 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+public class CartEvent{
+    private long position;
+    private long timestamp;
+    private int customerID;
+    private boolean added;
+    private Product product;
+    private int quantity;
+
+    public CartEvent(long position, long timestamp, int customerID, boolean added, Product product, int quantity){
+        this.position = position;
+        this.timestamp = timestamp;
+        this.customerID = customerID;
+        this.added = added;
+        this.product = product;
+        this.quantity = quantity;
+    }
+
+    public long getPosition(){
+        return position;
+    }
+
+    public long getTimestamp(){
+        return timestamp;
+    }
+
+    public int getCustomerID(){
+        return customerID;
+    }
+
+    public boolean isAdded(){
+        return added;
+    }
+
+    public Product getProduct(){
+        return product;
+    }
+
+    public int getQuantity(){
+        return quantity;
+    }
+
+    public void applyTo(ShoppingCart cart){
+        if (added){
+            cart.addProduct(product, quantity);
+        } else {
+            cart.removeProduct(product, quantity);
+        }
+    }
+
+    static void write(DataOutput out, long timestamp, int customerID, boolean added, Product product, int quantity)
+            throws IOException{
+        out.writeLong(timestamp);
+        out.writeInt(customerID);
+        out.writeBoolean(added);
+        CartLog.writeProduct(out, product);
+        CartLog.writeVarInt(out, quantity);
+    }
+
+    static CartEvent read(DataInput in, long position) throws IOException{
+        long timestamp = in.readLong();
+        int customerID = in.readInt();
+        boolean added = in.readBoolean();
+        Product product = CartLog.readProduct(in);
+        return new CartEvent(position, timestamp, customerID, added, product, CartLog.readVarInt(in));
+    }
+}
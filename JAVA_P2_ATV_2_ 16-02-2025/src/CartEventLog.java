@@ -0,0 +1,213 @@
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+public class CartEventLog implements Closeable{
+    public static final int SEGMENT_BYTES = 16 << 20;
+    private static final int MAGIC = 0x43455654; // "CEVT"
+    private static final int HEADER = 16;
+    private static final int RECORD_HEADER = 8; // length, then CRC32C of the event bytes
+
+    private final Path directory;
+    private final long windowMillis;
+    private final ConcurrentSkipListMap<Integer, Segment> segments = new ConcurrentSkipListMap<>();
+    private final ByteArrayOutputStream record = new ByteArrayOutputStream(128);
+    private final DataOutputStream recordOut = new DataOutputStream(record);
+    private Segment active;
+    private MappedByteBuffer buffer;
+
+    public CartEventLog(Path directory, long windowMillis) throws IOException{
+        if (windowMillis <= 0){
+            throw new IllegalArgumentException("Window must be positive: " + windowMillis);
+        }
+        this.directory = directory;
+        this.windowMillis = windowMillis;
+        Files.createDirectories(directory);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "events-*.seg")){
+            for (Path file : files){
+                Segment segment = open(file);
+                if (segment != null){
+                    segments.put(segment.sequence, segment);
+                }
+            }
+        }
+        roll(System.currentTimeMillis()); // never append after a record that may have been cut short
+    }
+
+    public static int segmentOf(long position){
+        return (int) (position >>> 32);
+    }
+
+    public synchronized long append(long timestamp, int customerID, boolean added, Product product, int quantity)
+            throws IOException{
+        record.reset();
+        recordOut.writeInt(0);
+        recordOut.writeInt(0);
+        CartEvent.write(recordOut, timestamp, customerID, added, product, quantity);
+        int length = record.size();
+        if (length > SEGMENT_BYTES - HEADER){
+            throw new IOException("Event too large: " + length + " bytes");
+        }
+        if (active.committed + length > SEGMENT_BYTES || timestamp >= active.windowStart + windowMillis){
+            roll(timestamp);
+        }
+        int offset = active.committed;
+        byte[] bytes = record.toByteArray();
+        CRC32C crc = new CRC32C();
+        crc.update(bytes, RECORD_HEADER, length - RECORD_HEADER);
+        buffer.putInt(offset + 4, (int) crc.getValue());
+        buffer.put(offset + RECORD_HEADER, bytes, RECORD_HEADER, length - RECORD_HEADER);
+        buffer.putInt(offset, length); // written last: a record cut short keeps a zero length
+        active.committed = offset + length;
+        return (long) active.sequence << 32 | offset;
+    }
+
+    public synchronized long position(){
+        return (long) active.sequence << 32 | active.committed;
+    }
+
+    public synchronized void force(){
+        buffer.force();
+    }
+
+    public List<Path> segmentFiles(){
+        List<Path> files = new ArrayList<>();
+        for (Segment segment : segments.values()){
+            files.add(segment.path);
+        }
+        return files;
+    }
+
+    public List<Integer> segmentsFrom(long position){
+        return new ArrayList<>(segments.tailMap(segmentOf(position), true).keySet());
+    }
+
+    public void read(int sequence, long fromPosition, Consumer<CartEvent> action) throws IOException{
+        Segment segment = segments.get(sequence);
+        if (segment == null){
+            return;
+        }
+        int end = segment.committed;
+        try (FileChannel channel = FileChannel.open(segment.path, StandardOpenOption.READ)){
+            MappedByteBuffer view = channel.map(FileChannel.MapMode.READ_ONLY, 0, end);
+            int offset = HEADER;
+            while (offset < end){
+                int length = view.getInt(offset);
+                byte[] bytes = new byte[length - RECORD_HEADER];
+                view.get(offset + RECORD_HEADER, bytes);
+                long position = (long) sequence << 32 | offset;
+                if (position >= fromPosition){
+                    action.accept(CartEvent.read(new DataInputStream(new ByteArrayInputStream(bytes)), position));
+                }
+                offset += length;
+            }
+        }
+    }
+
+    public void forEach(long fromMillis, long toMillis, Consumer<CartEvent> action) throws IOException{
+        List<Segment> candidates = new ArrayList<>(segments.values());
+        for (int i = 0; i < candidates.size(); i++){
+            Segment segment = candidates.get(i);
+            boolean before = i + 1 < candidates.size() && candidates.get(i + 1).windowStart < fromMillis;
+            if (before || segment.windowStart >= toMillis){
+                continue;
+            }
+            read(segment.sequence, 0, event -> {
+                if (event.getTimestamp() >= fromMillis && event.getTimestamp() < toMillis){
+                    action.accept(event);
+                }
+            });
+        }
+    }
+
+    // Whether replaying from the position still sees every event logged after it.
+    public boolean holds(long position){
+        return !segments.isEmpty() && segments.firstKey() <= Math.max(1, segmentOf(position));
+    }
+
+    public synchronized void deleteBefore(long position, long windowEndBefore) throws IOException{
+        for (Segment segment : new ArrayList<>(segments.headMap(segmentOf(position)).values())){
+            if (segment != active && segment.windowStart + windowMillis <= windowEndBefore){
+                segments.remove(segment.sequence);
+                Files.deleteIfExists(segment.path);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close(){
+        buffer.force();
+    }
+
+    private void roll(long timestamp) throws IOException{
+        if (buffer != null){
+            buffer.force();
+        }
+        int sequence = segments.isEmpty() ? 1 : segments.lastKey() + 1;
+        long windowStart = timestamp - Math.floorMod(timestamp, windowMillis);
+        Path path = directory.resolve(String.format("events-%010d.seg", sequence));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)){
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, SEGMENT_BYTES);
+        }
+        buffer.putInt(0, MAGIC);
+        buffer.putLong(8, windowStart);
+        Segment segment = new Segment(sequence, windowStart, path);
+        segment.committed = HEADER;
+        segments.put(sequence, segment);
+        active = segment;
+    }
+
+    private static Segment open(Path file) throws IOException{
+        String name = file.getFileName().toString();
+        int sequence = Integer.parseInt(name.substring("events-".length(), name.length() - ".seg".length()));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+            if (channel.size() < HEADER){
+                return null;
+            }
+            MappedByteBuffer view = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (view.getInt(0) != MAGIC){
+                return null;
+            }
+            Segment segment = new Segment(sequence, view.getLong(8), file);
+            CRC32C crc = new CRC32C();
+            int offset = HEADER;
+            while (offset + RECORD_HEADER <= view.limit()){
+                int length = view.getInt(offset);
+                if (length <= RECORD_HEADER || offset + length > view.limit()){
+                    break;
+                }
+                crc.reset();
+                crc.update(view.slice(offset + RECORD_HEADER, length - RECORD_HEADER));
+                if ((int) crc.getValue() != view.getInt(offset + 4)){
+                    break; // a record torn by a crash: the page holding its length reached disk, its body did not
+                }
+                offset += length;
+            }
+            segment.committed = offset;
+            return segment;
+        }
+    }
+
+    private static final class Segment{
+        final int sequence;
+        final long windowStart;
+        final Path path;
+        volatile int committed;
+
+        Segment(int sequence, long windowStart, Path path){
+            this.sequence = sequence;
+            this.windowStart = windowStart;
+            this.path = path;
+        }
+    }
+}
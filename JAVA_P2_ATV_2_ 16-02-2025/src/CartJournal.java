@@ -0,0 +1,260 @@
+import java.io.*;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+public class CartJournal implements Closeable{
+    private static final int SNAPSHOT_MAGIC = 0x43534E50; // "CSNP"
+    private static final int PARTITIONS = 64;
+
+    private final Path directory;
+    private final long retentionMillis;
+    private final CartEventLog log;
+    private final ConcurrentHashMap<Integer, Entry> carts = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService snapshots;
+    private final Object snapshotLock = new Object();
+
+    public CartJournal(Path directory, long windowMillis, long snapshotIntervalMillis, long retentionMillis)
+            throws IOException{
+        if (snapshotIntervalMillis <= 0 || retentionMillis < 0){
+            throw new IllegalArgumentException("Snapshot interval must be positive and retention non-negative");
+        }
+        this.directory = directory;
+        this.retentionMillis = retentionMillis;
+        this.log = new CartEventLog(directory, windowMillis);
+        recover();
+        this.snapshots = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cart-journal-snapshots");
+            thread.setDaemon(true);
+            return thread;
+        });
+        snapshots.scheduleWithFixedDelay(() -> {
+            try {
+                snapshot();
+            } catch (IOException e){
+                System.err.println("Cart snapshot failed: " + e.getMessage());
+            }
+        }, snapshotIntervalMillis, snapshotIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void addProduct(int customerID, Product product, int quantity){
+        change(customerID, true, product, quantity);
+    }
+
+    public void removeProduct(int customerID, Product product, int quantity){
+        change(customerID, false, product, quantity);
+    }
+
+    public <T> T readCart(int customerID, Function<ShoppingCart, T> reader){
+        Entry entry = carts.computeIfAbsent(customerID, Entry::new);
+        synchronized (entry){
+            return reader.apply(entry.cart);
+        }
+    }
+
+    public int getCartCount(){
+        return carts.size();
+    }
+
+    public CartEventLog getLog(){
+        return log;
+    }
+
+    public void forEachEvent(long fromMillis, long toMillis, Consumer<CartEvent> action) throws IOException{
+        log.forEach(fromMillis, toMillis, action);
+    }
+
+    // Carts are copied one at a time while traffic continues; each copy carries the position of the last
+    // event applied to it, so replay can tell which later events the snapshot already contains.
+    // The previous snapshot and the events after it are kept, so recovery can fall back to them if
+    // the newest snapshot turns out to be corrupt.
+    public void snapshot() throws IOException{
+        synchronized (snapshotLock){
+            long start = log.position();
+            Path temp = directory.resolve("snapshot.tmp");
+            CheckedOutputStream checked;
+            try (FileOutputStream file = new FileOutputStream(temp.toFile());
+                 DataOutputStream out = new DataOutputStream(checked = new CheckedOutputStream(
+                         new BufferedOutputStream(file, 1 << 16), new CRC32C()))){
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.writeLong(start);
+                for (Entry entry : carts.values()){
+                    synchronized (entry){
+                        if (entry.cart.getLineCount() == 0){
+                            continue;
+                        }
+                        out.writeInt(entry.cart.getCustomerID());
+                        out.writeLong(entry.lastPosition);
+                        CartLog.writeVarInt(out, entry.cart.getLineCount());
+                        for (Map.Entry<Product, Integer> line : entry.cart.getLines().entrySet()){
+                            CartLog.writeProduct(out, line.getKey());
+                            CartLog.writeVarInt(out, line.getValue());
+                        }
+                    }
+                }
+                out.writeInt(-1);
+                out.writeInt((int) checked.getChecksum().getValue());
+                out.flush();
+                file.getChannel().force(true); // older snapshots and segments are deleted once this one is in place
+            }
+            log.force();
+            Path target = directory.resolve(String.format("snapshot-%016x.dat", start));
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            List<Path> files = snapshotFiles();
+            int newest = files.indexOf(target);
+            long keepFrom = start;
+            for (int i = 0; i < files.size(); i++){
+                if (i == newest - 1){
+                    keepFrom = snapshotStart(files.get(i));
+                } else if (i != newest){
+                    Files.deleteIfExists(files.get(i));
+                }
+            }
+            log.deleteBefore(keepFrom, System.currentTimeMillis() - retentionMillis);
+        }
+    }
+
+    @Override
+    public void close() throws IOException{
+        snapshots.shutdownNow();
+        snapshot();
+        log.close();
+    }
+
+    // The event is logged before the cart changes, so a failed append leaves the cart as the log describes it.
+    private void change(int customerID, boolean added, Product product, int quantity){
+        if (quantity <= 0){
+            throw new IllegalArgumentException("Quantity must be positive: " + quantity);
+        }
+        Entry entry = carts.computeIfAbsent(customerID, Entry::new);
+        synchronized (entry){
+            try {
+                entry.lastPosition = log.append(System.currentTimeMillis(), customerID, added, product, quantity);
+            } catch (IOException e){
+                throw new UncheckedIOException(e);
+            }
+            if (added){
+                entry.cart.addProduct(product, quantity);
+            } else {
+                entry.cart.removeProduct(product, quantity);
+            }
+        }
+    }
+
+    private void recover() throws IOException{
+        long start = loadSnapshot();
+        List<Integer> segments = log.segmentsFrom(start);
+
+        // decode segments in parallel, splitting each one by customer partition
+        List<List<List<CartEvent>>> decoded = new ArrayList<>();
+        for (int i = 0; i < segments.size(); i++){
+            decoded.add(null);
+        }
+        IntStream.range(0, segments.size()).parallel().forEach(i -> {
+            List<List<CartEvent>> partitions = new ArrayList<>(PARTITIONS);
+            for (int p = 0; p < PARTITIONS; p++){
+                partitions.add(new ArrayList<>());
+            }
+            try {
+                log.read(segments.get(i), start,
+                        event -> partitions.get(Math.floorMod(event.getCustomerID(), PARTITIONS)).add(event));
+            } catch (IOException e){
+                throw new UncheckedIOException(e);
+            }
+            decoded.set(i, partitions);
+        });
+
+        // replay each partition in parallel, segments in log order
+        IntStream.range(0, PARTITIONS).parallel().forEach(p -> {
+            for (List<List<CartEvent>> partitions : decoded){
+                for (CartEvent event : partitions.get(p)){
+                    Entry entry = carts.computeIfAbsent(event.getCustomerID(), Entry::new);
+                    if (event.getPosition() > entry.lastPosition){
+                        event.applyTo(entry.cart);
+                        entry.lastPosition = event.getPosition();
+                    }
+                }
+            }
+        });
+    }
+
+    // Any unreadable snapshot falls back to the one before it, replaying more of the log; recovery only
+    // fails when no snapshot can be read and the events that would rebuild the carts are gone.
+    private long loadSnapshot() throws IOException{
+        List<Path> files = snapshotFiles();
+        for (int i = files.size() - 1; i >= 0; i--){
+            Path file = files.get(i);
+            if (!log.holds(snapshotStart(file))){
+                continue; // the events after it were deleted: it could only be the base of a partial replay
+            }
+            carts.clear();
+            CheckedInputStream checked;
+            try (DataInputStream in = new DataInputStream(checked = new CheckedInputStream(
+                    new BufferedInputStream(Files.newInputStream(file), 1 << 16), new CRC32C()))){
+                if (in.readInt() != SNAPSHOT_MAGIC){
+                    throw new StreamCorruptedException("bad magic number");
+                }
+                long start = in.readLong();
+                int customerID;
+                while ((customerID = in.readInt()) != -1){
+                    Entry entry = new Entry(customerID);
+                    entry.lastPosition = in.readLong();
+                    int lines = CartLog.readVarInt(in);
+                    for (int l = 0; l < lines; l++){
+                        Product product = CartLog.readProduct(in);
+                        entry.cart.addProduct(product, CartLog.readVarInt(in));
+                    }
+                    carts.put(customerID, entry);
+                }
+                int expected = (int) checked.getChecksum().getValue();
+                if (in.readInt() != expected){
+                    throw new StreamCorruptedException("checksum mismatch");
+                }
+                return start;
+            } catch (IOException | RuntimeException e){
+                System.err.println("Ignoring corrupt snapshot " + file.getFileName() + ": " + e);
+            }
+        }
+        carts.clear();
+        if (!log.holds(0)){
+            throw new IOException("No readable snapshot in " + directory + " and older events have been deleted");
+        }
+        return 0;
+    }
+
+    private static long snapshotStart(Path file){
+        String name = file.getFileName().toString();
+        return Long.parseUnsignedLong(name.substring("snapshot-".length(), name.length() - ".dat".length()), 16);
+    }
+
+    private List<Path> snapshotFiles() throws IOException{
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> found = Files.newDirectoryStream(directory, "snapshot-*.dat")){
+            for (Path file : found){
+                files.add(file);
+            }
+        }
+        files.sort(null); // fixed-width hex positions sort in log order
+        return files;
+    }
+
+    private static final class Entry{
+        final ShoppingCart cart;
+        long lastPosition;
+
+        Entry(int customerID){
+            this.cart = new ShoppingCart(customerID);
+        }
+    }
+}
@@ -0,0 +1,341 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+public class CartLog implements Closeable{
+    private static final byte PRODUCT = 0;
+    private static final byte TV_KIND = 1;
+    private static final byte REFRIGERATOR_KIND = 2;
+    private static final byte STOVE_KIND = 3;
+    private static final int MAX_RECORD = (1 << 24) - 1;
+    private static final int MIN_RECORD = 9; // checksum, customer ID and a one-byte line count
+
+    private final Path path;
+    private final Catalog catalog;
+    private FileChannel channel;
+    private long end;
+    private long liveBytes;
+
+    // Record: length of the rest, CRC32C of what follows it, customer ID, line count, lines.
+    // customerID -> (offset << 24 | length) of the latest record; 0 marks an empty slot
+    private int[] keys = new int[1024];
+    private long[] entries = new long[1024];
+    private int count;
+
+    public CartLog(Path path) throws IOException{
+        this(path, null);
+    }
+
+    public CartLog(Path path, Catalog catalog) throws IOException{
+        this.path = path;
+        this.catalog = catalog;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        scan();
+    }
+
+    public synchronized void write(int customerID, ShoppingCart cart) throws IOException{
+        if (cart.getLineCount() == 0){
+            if (find(customerID) < 0){
+                return;
+            }
+            remove(customerID);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0);
+        out.writeInt(0);
+        out.writeInt(customerID);
+        writeVarInt(out, cart.getLineCount());
+        for (Map.Entry<Product, Integer> line : cart.getLines().entrySet()){
+            writeProduct(out, line.getKey());
+            writeVarInt(out, line.getValue());
+        }
+        int length = bytes.size() - 4;
+        if (length > MAX_RECORD){
+            throw new IOException("Cart " + customerID + " is too large to store: " + length + " bytes");
+        }
+        ByteBuffer record = ByteBuffer.wrap(bytes.toByteArray());
+        record.putInt(0, length);
+        record.putInt(4, checksum(record.array(), 8, length - 4));
+        long offset = end;
+        while (record.hasRemaining()){
+            channel.write(record, offset + record.position());
+        }
+        end += record.capacity();
+        if (cart.getLineCount() > 0){
+            put(customerID, offset << 24 | (length + 4));
+        }
+    }
+
+    public synchronized ShoppingCart read(int customerID) throws IOException{
+        int slot = find(customerID);
+        if (slot < 0){
+            return null;
+        }
+        long entry = entries[slot];
+        ByteBuffer record = ByteBuffer.allocate((int) (entry & MAX_RECORD));
+        long offset = entry >>> 24;
+        while (record.hasRemaining()){
+            if (channel.read(record, offset + record.position()) < 0){
+                throw new EOFException("Truncated cart record for " + customerID);
+            }
+        }
+        if (record.getInt(4) != checksum(record.array(), 8, record.capacity() - 8)){
+            throw new StreamCorruptedException("Corrupt cart record for " + customerID);
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(record.array(), 12, record.capacity() - 12));
+        ShoppingCart cart = new ShoppingCart(customerID);
+        int lines = readVarInt(in);
+        for (int i = 0; i < lines; i++){
+            Product product = readProduct(in);
+            int quantity = readVarInt(in);
+            cart.addProduct(catalog != null ? catalog.canonical(product) : product, quantity);
+        }
+        return cart;
+    }
+
+    public synchronized boolean contains(int customerID){
+        return find(customerID) >= 0;
+    }
+
+    public synchronized int size(){
+        return count;
+    }
+
+    public synchronized long getFileSize(){
+        return end;
+    }
+
+    public synchronized long getLiveBytes(){
+        return liveBytes;
+    }
+
+    public synchronized void compact() throws IOException{
+        Path temp = Paths.get(path + ".tmp");
+        // the index keeps pointing at the live file until the compacted copy has replaced it
+        long[] moved = new long[entries.length];
+        long written = 0;
+        try (FileChannel target = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)){
+            for (int i = 0; i < keys.length; i++){
+                if (entries[i] == 0){
+                    continue;
+                }
+                long offset = entries[i] >>> 24;
+                int length = (int) (entries[i] & MAX_RECORD);
+                long copied = 0;
+                while (copied < length){
+                    copied += channel.transferTo(offset + copied, length - copied, target);
+                }
+                moved[i] = written << 24 | length;
+                written += length;
+            }
+            target.force(true);
+        } catch (IOException e){
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        channel.close();
+        try {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e){
+            Files.deleteIfExists(temp);
+            channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            throw e;
+        }
+        entries = moved;
+        end = written;
+        channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    @Override
+    public synchronized void close() throws IOException{
+        channel.force(true);
+        channel.close();
+    }
+
+    private void scan() throws IOException{
+        long size = channel.size();
+        DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Channels.newInputStream(channel.position(0)), 1 << 16));
+        byte[] body = new byte[256];
+        long offset = 0;
+        while (offset + 4 + MIN_RECORD <= size){
+            int length = in.readInt();
+            if (length < MIN_RECORD || length > MAX_RECORD || offset + 4 + length > size){
+                break;
+            }
+            if (body.length < length){
+                body = new byte[Math.max(length, body.length * 2)];
+            }
+            in.readFully(body, 0, length);
+            ByteBuffer record = ByteBuffer.wrap(body, 0, length);
+            if (record.getInt(0) != checksum(body, 4, length - 4)){
+                break;
+            }
+            int customerID = record.getInt(4);
+            if (body[8] == 0){ // a line count of zero is the single varint byte 0
+                remove(customerID);
+            } else {
+                put(customerID, offset << 24 | (length + 4));
+            }
+            offset += 4 + length;
+        }
+        if (offset < size){
+            channel.truncate(offset); // a record torn by a crash, or one that fails its checksum
+        }
+        end = offset;
+    }
+
+    static void writeProduct(DataOutput out, Product product) throws IOException{
+        if (product instanceof TV){
+            out.writeByte(TV_KIND);
+        } else if (product instanceof Refrigerator){
+            out.writeByte(REFRIGERATOR_KIND);
+        } else if (product instanceof Stove){
+            out.writeByte(STOVE_KIND);
+        } else {
+            out.writeByte(PRODUCT);
+        }
+        out.writeUTF(product.getBrand());
+        writeVarLong(out, product.getPriceCents());
+        writeVarInt(out, product.getSpec());
+    }
+
+    static Product readProduct(DataInput in) throws IOException{
+        byte kind = in.readByte();
+        String brand = in.readUTF();
+        double price = readVarLong(in) / 100.0;
+        int spec = readVarInt(in);
+        switch (kind){
+            case PRODUCT:
+                return new Product(brand, price);
+            case TV_KIND:
+                return new TV(brand, price, spec);
+            case REFRIGERATOR_KIND:
+                return new Refrigerator(brand, price, spec);
+            case STOVE_KIND:
+                return new Stove(brand, price, spec);
+            default:
+                throw new StreamCorruptedException("Unknown product kind: " + kind);
+        }
+    }
+
+    private int find(int key){
+        int mask = keys.length - 1;
+        int i = mix(key) & mask;
+        while (entries[i] != 0){
+            if (keys[i] == key){
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+        return -i - 1;
+    }
+
+    private void put(int key, long entry){
+        int slot = find(key);
+        if (slot >= 0){
+            liveBytes -= entries[slot] & MAX_RECORD;
+            entries[slot] = entry;
+        } else {
+            if ((count + 1) * 2 > keys.length){
+                grow();
+                slot = find(key);
+            }
+            slot = -slot - 1;
+            keys[slot] = key;
+            entries[slot] = entry;
+            count++;
+        }
+        liveBytes += entry & MAX_RECORD;
+    }
+
+    private void remove(int key){
+        int slot = find(key);
+        if (slot < 0){
+            return;
+        }
+        liveBytes -= entries[slot] & MAX_RECORD;
+        count--;
+        int mask = keys.length - 1;
+        int hole = slot;
+        int i = (slot + 1) & mask;
+        while (entries[i] != 0){
+            int home = mix(keys[i]) & mask;
+            if (((i - home) & mask) >= ((i - hole) & mask)){
+                keys[hole] = keys[i];
+                entries[hole] = entries[i];
+                hole = i;
+            }
+            i = (i + 1) & mask;
+        }
+        entries[hole] = 0;
+    }
+
+    private void grow(){
+        int[] oldKeys = keys;
+        long[] oldEntries = entries;
+        keys = new int[oldKeys.length * 2];
+        entries = new long[oldEntries.length * 2];
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++){
+            if (oldEntries[i] != 0){
+                int j = mix(oldKeys[i]) & mask;
+                while (entries[j] != 0){
+                    j = (j + 1) & mask;
+                }
+                keys[j] = oldKeys[i];
+                entries[j] = oldEntries[i];
+            }
+        }
+    }
+
+    private static int checksum(byte[] bytes, int offset, int length){
+        CRC32C crc = new CRC32C();
+        crc.update(bytes, offset, length);
+        return (int) crc.getValue();
+    }
+
+    static int mix(int key){
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    static void writeVarInt(DataOutput out, int value) throws IOException{
+        writeVarLong(out, value & 0xFFFFFFFFL);
+    }
+
+    static void writeVarLong(DataOutput out, long value) throws IOException{
+        while ((value & ~0x7FL) != 0){
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    static int readVarInt(DataInput in) throws IOException{
+        return (int) readVarLong(in);
+    }
+
+    static long readVarLong(DataInput in) throws IOException{
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7){
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0){
+                return value;
+            }
+        }
+        throw new StreamCorruptedException("Malformed varint");
+    }
+}
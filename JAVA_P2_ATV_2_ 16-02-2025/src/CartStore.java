@@ -0,0 +1,342 @@
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+public class CartStore implements AutoCloseable{
+    private static final int SEGMENT_BITS = 6;
+    private static final int EVICTION_SAMPLES = 8;
+    private static final long COMPACTION_THRESHOLD = 4 << 20;
+
+    private final Segment[] segments = new Segment[1 << SEGMENT_BITS];
+    private final CartLog log;
+    private final long ttlMillis;
+    private final int segmentCapacity;
+    private final ScheduledExecutorService sweeper;
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong rehydrations = new AtomicLong();
+
+    public CartStore(Path file, long ttlMillis, int maxLiveCarts) throws IOException{
+        this(file, ttlMillis, maxLiveCarts, null);
+    }
+
+    public CartStore(Path file, long ttlMillis, int maxLiveCarts, Catalog catalog) throws IOException{
+        if (ttlMillis <= 0 || maxLiveCarts <= 0){
+            throw new IllegalArgumentException("TTL and capacity must be positive");
+        }
+        for (int i = 0; i < segments.length; i++){
+            segments[i] = new Segment();
+        }
+        this.log = new CartLog(file, catalog);
+        this.ttlMillis = ttlMillis;
+        this.segmentCapacity = Math.max(1, maxLiveCarts / segments.length);
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cart-store-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = Math.max(1, ttlMillis / 2);
+        sweeper.scheduleWithFixedDelay(() -> {
+            try {
+                evictIdle();
+            } catch (RuntimeException e){ // letting it escape would cancel every later sweep
+                System.err.println("Cart eviction sweep failed: " + e);
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    public <T> T withCart(int customerID, Function<ShoppingCart, T> action){
+        Segment segment = segmentFor(customerID);
+        T result;
+        while (true){
+            ShoppingCart cart = acquire(segment, customerID);
+            synchronized (cart){
+                if (segment.current(customerID) == cart){ // not evicted while we waited
+                    result = action.apply(cart);
+                    break;
+                }
+            }
+        }
+        if (segment.size() > segmentCapacity){
+            evictSample(segment);
+        }
+        return result;
+    }
+
+    public void addProduct(int customerID, Product product, int quantity){
+        withCart(customerID, cart -> {
+            cart.addProduct(product, quantity);
+            return null;
+        });
+    }
+
+    public void removeProduct(int customerID, Product product, int quantity){
+        withCart(customerID, cart -> {
+            cart.removeProduct(product, quantity);
+            return null;
+        });
+    }
+
+    public long getTotalPriceCents(int customerID){
+        return withCart(customerID, ShoppingCart::getTotalPriceCents);
+    }
+
+    public String getContents(int customerID){
+        return withCart(customerID, ShoppingCart::getContents);
+    }
+
+    public int getLiveCount(){
+        int live = 0;
+        for (Segment segment : segments){
+            live += segment.size();
+        }
+        return live;
+    }
+
+    public int getStoredCount(){
+        return log.size();
+    }
+
+    public long getEvictions(){
+        return evictions.get();
+    }
+
+    public long getRehydrations(){
+        return rehydrations.get();
+    }
+
+    public int evictIdle(){
+        long cutoff = System.currentTimeMillis() - ttlMillis;
+        int evicted = 0;
+        for (Segment segment : segments){
+            int[] ids;
+            ShoppingCart[] carts;
+            synchronized (segment){
+                int idle = 0;
+                for (int i = 0; i < segment.carts.length; i++){
+                    if (segment.carts[i] != null && segment.touched[i] <= cutoff){
+                        idle++;
+                    }
+                }
+                ids = new int[idle];
+                carts = new ShoppingCart[idle];
+                idle = 0;
+                for (int i = 0; i < segment.carts.length; i++){
+                    if (segment.carts[i] != null && segment.touched[i] <= cutoff){
+                        ids[idle] = segment.keys[i];
+                        carts[idle++] = segment.carts[i];
+                    }
+                }
+            }
+            for (int i = 0; i < ids.length; i++){
+                if (evict(segment, ids[i], carts[i], cutoff)){
+                    evicted++;
+                }
+            }
+        }
+        try {
+            if (log.getFileSize() > COMPACTION_THRESHOLD && log.getFileSize() > 2 * log.getLiveBytes()){
+                log.compact();
+            }
+        } catch (IOException e){
+            throw new UncheckedIOException(e);
+        }
+        return evicted;
+    }
+
+    @Override
+    public void close() throws IOException{
+        // shutdown, not shutdownNow: interrupting a sweep mid-write would close the log's FileChannel
+        sweeper.shutdown();
+        try {
+            sweeper.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS); // let a running pass finish
+        } catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the eviction sweep to stop");
+        }
+        for (Segment segment : segments){
+            while (true){
+                int id;
+                ShoppingCart cart;
+                synchronized (segment){
+                    int slot = segment.anyOccupied();
+                    if (slot < 0){
+                        break;
+                    }
+                    id = segment.keys[slot];
+                    cart = segment.carts[slot];
+                }
+                evict(segment, id, cart, Long.MAX_VALUE);
+            }
+        }
+        log.close();
+    }
+
+    private Segment segmentFor(int customerID){
+        return segments[(customerID * 0x9E3779B9) >>> (32 - SEGMENT_BITS)];
+    }
+
+    private ShoppingCart acquire(Segment segment, int customerID){
+        synchronized (segment){
+            int slot = segment.find(customerID);
+            if (slot >= 0){
+                segment.touched[slot] = System.currentTimeMillis();
+                return segment.carts[slot];
+            }
+            // rehydrating under the segment lock keeps two threads from loading the same cart
+            ShoppingCart cart;
+            try {
+                cart = log.read(customerID);
+            } catch (IOException e){
+                throw new UncheckedIOException(e);
+            }
+            if (cart != null){
+                rehydrations.incrementAndGet();
+            } else {
+                cart = new ShoppingCart(customerID);
+            }
+            segment.insert(-slot - 1, customerID, cart, System.currentTimeMillis());
+            return cart;
+        }
+    }
+
+    private void evictSample(Segment segment){
+        int id;
+        ShoppingCart cart;
+        synchronized (segment){
+            if (segment.size() <= segmentCapacity){
+                return;
+            }
+            int victim = -1;
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < EVICTION_SAMPLES; i++){
+                int slot = segment.occupiedNear(random.nextInt(segment.carts.length));
+                if (victim < 0 || segment.touched[slot] < segment.touched[victim]){
+                    victim = slot;
+                }
+            }
+            id = segment.keys[victim];
+            cart = segment.carts[victim];
+        }
+        evict(segment, id, cart, Long.MAX_VALUE);
+    }
+
+    // Lock order is always cart, then segment: withCart never holds a segment lock while taking a cart lock.
+    private boolean evict(Segment segment, int customerID, ShoppingCart cart, long cutoff){
+        synchronized (cart){
+            synchronized (segment){
+                int slot = segment.find(customerID);
+                if (slot < 0 || segment.carts[slot] != cart || segment.touched[slot] > cutoff){
+                    return false;
+                }
+            }
+            try {
+                log.write(customerID, cart);
+            } catch (IOException e){
+                throw new UncheckedIOException(e);
+            }
+            synchronized (segment){
+                segment.remove(segment.find(customerID));
+            }
+        }
+        evictions.incrementAndGet();
+        return true;
+    }
+
+    private static final class Segment{
+        int[] keys = new int[16];
+        ShoppingCart[] carts = new ShoppingCart[16];
+        long[] touched = new long[16];
+        int size;
+
+        synchronized int size(){
+            return size;
+        }
+
+        synchronized ShoppingCart current(int key){
+            int slot = find(key);
+            return slot >= 0 ? carts[slot] : null;
+        }
+
+        int find(int key){
+            int mask = keys.length - 1;
+            int i = CartLog.mix(key) & mask;
+            while (carts[i] != null){
+                if (keys[i] == key){
+                    return i;
+                }
+                i = (i + 1) & mask;
+            }
+            return -i - 1;
+        }
+
+        void insert(int slot, int key, ShoppingCart cart, long now){
+            if ((size + 1) * 2 > keys.length){
+                grow();
+                slot = -find(key) - 1;
+            }
+            keys[slot] = key;
+            carts[slot] = cart;
+            touched[slot] = now;
+            size++;
+        }
+
+        void remove(int slot){
+            size--;
+            int mask = keys.length - 1;
+            int hole = slot;
+            int i = (slot + 1) & mask;
+            while (carts[i] != null){
+                int home = CartLog.mix(keys[i]) & mask;
+                if (((i - home) & mask) >= ((i - hole) & mask)){
+                    keys[hole] = keys[i];
+                    carts[hole] = carts[i];
+                    touched[hole] = touched[i];
+                    hole = i;
+                }
+                i = (i + 1) & mask;
+            }
+            carts[hole] = null;
+        }
+
+        int occupiedNear(int start){
+            int mask = keys.length - 1;
+            int i = start;
+            while (carts[i] == null){
+                i = (i + 1) & mask;
+            }
+            return i;
+        }
+
+        int anyOccupied(){
+            return size == 0 ? -1 : occupiedNear(0);
+        }
+
+        private void grow(){
+            int[] oldKeys = keys;
+            ShoppingCart[] oldCarts = carts;
+            long[] oldTouched = touched;
+            keys = new int[oldKeys.length * 2];
+            carts = new ShoppingCart[oldCarts.length * 2];
+            touched = new long[oldTouched.length * 2];
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++){
+                if (oldCarts[i] != null){
+                    int j = CartLog.mix(oldKeys[i]) & mask;
+                    while (carts[j] != null){
+                        j = (j + 1) & mask;
+                    }
+                    keys[j] = oldKeys[i];
+                    carts[j] = oldCarts[i];
+                    touched[j] = oldTouched[i];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,264 @@
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+public class Catalog{
+    private static final Comparator<Entry> BY_PRICE =
+            Comparator.<Entry>comparingLong(e -> e.priceCents).thenComparing(e -> e.sku);
+    private static final Comparator<Entry> BY_SPEC =
+            Comparator.<Entry>comparingInt(e -> e.spec).thenComparing(BY_PRICE);
+
+    private final HashMap<String, Entry> bySku = new HashMap<>();
+    private final HashMap<Product, Flyweight> flyweights = new HashMap<>();
+    private final HashMap<Class<?>, Category> categories = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public Product intern(String sku, Product product){
+        lock.writeLock().lock();
+        try {
+            Entry existing = bySku.get(sku);
+            if (existing != null){
+                if (existing.product.equals(product)){
+                    return existing.product;
+                }
+                unindex(existing);
+            }
+            Flyweight flyweight = flyweights.get(product);
+            if (flyweight == null){
+                flyweight = new Flyweight(product);
+                flyweights.put(product, flyweight);
+            }
+            flyweight.skus++;
+            Entry entry = new Entry(sku, flyweight.product);
+            bySku.put(sku, entry);
+            Category category = categories.computeIfAbsent(product.getClass(), c -> new Category());
+            category.byPrice.add(entry);
+            category.bySpec.add(entry);
+            return flyweight.product;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public Product remove(String sku){
+        lock.writeLock().lock();
+        try {
+            Entry entry = bySku.get(sku);
+            if (entry == null){
+                return null;
+            }
+            unindex(entry);
+            return entry.product;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public Product get(String sku){
+        lock.readLock().lock();
+        try {
+            Entry entry = bySku.get(sku);
+            return entry != null ? entry.product : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Product canonical(Product product){
+        lock.readLock().lock();
+        try {
+            Flyweight flyweight = flyweights.get(product);
+            return flyweight != null ? flyweight.product : product;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size(){
+        lock.readLock().lock();
+        try {
+            return bySku.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Product> byCategory(Class<? extends Product> category){
+        return priceRange(category, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    public List<Product> bySpec(Class<? extends Product> category, int minSpec, int maxSpec){
+        lock.readLock().lock();
+        try {
+            Category indexed = categories.get(category);
+            if (indexed == null || minSpec > maxSpec){
+                return new ArrayList<>();
+            }
+            NavigableSet<Entry> range = indexed.bySpec.tailSet(new Entry(minSpec, Long.MIN_VALUE), true);
+            if (maxSpec < Integer.MAX_VALUE){
+                range = range.headSet(new Entry(maxSpec + 1, Long.MIN_VALUE), false);
+            }
+            return products(range, Integer.MAX_VALUE);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Product> priceRange(long minCents, long maxCents){
+        lock.readLock().lock();
+        try {
+            List<NavigableSet<Entry>> ranges = new ArrayList<>();
+            for (Category category : categories.values()){
+                ranges.add(priceRange(category.byPrice, minCents, maxCents));
+            }
+            return merge(ranges, BY_PRICE, Integer.MAX_VALUE);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Product> priceRange(Class<? extends Product> category, long minCents, long maxCents){
+        lock.readLock().lock();
+        try {
+            Category indexed = categories.get(category);
+            if (indexed == null){
+                return new ArrayList<>();
+            }
+            return products(priceRange(indexed.byPrice, minCents, maxCents), Integer.MAX_VALUE);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Product> cheapest(int k){
+        return top(null, k, false);
+    }
+
+    public List<Product> cheapest(Class<? extends Product> category, int k){
+        return top(category, k, false);
+    }
+
+    public List<Product> mostExpensive(int k){
+        return top(null, k, true);
+    }
+
+    public List<Product> mostExpensive(Class<? extends Product> category, int k){
+        return top(category, k, true);
+    }
+
+    private List<Product> top(Class<? extends Product> category, int k, boolean descending){
+        lock.readLock().lock();
+        try {
+            List<NavigableSet<Entry>> sources = new ArrayList<>();
+            for (Map.Entry<Class<?>, Category> indexed : categories.entrySet()){
+                if (category == null || indexed.getKey() == category){
+                    NavigableSet<Entry> byPrice = indexed.getValue().byPrice;
+                    sources.add(descending ? byPrice.descendingSet() : byPrice);
+                }
+            }
+            return merge(sources, descending ? BY_PRICE.reversed() : BY_PRICE, k);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void unindex(Entry entry){
+        bySku.remove(entry.sku);
+        Category category = categories.get(entry.product.getClass());
+        category.byPrice.remove(entry);
+        category.bySpec.remove(entry);
+        Flyweight flyweight = flyweights.get(entry.product);
+        if (--flyweight.skus == 0){
+            flyweights.remove(entry.product);
+        }
+    }
+
+    private static NavigableSet<Entry> priceRange(NavigableSet<Entry> byPrice, long minCents, long maxCents){
+        if (minCents > maxCents){
+            return Collections.emptyNavigableSet();
+        }
+        NavigableSet<Entry> range = byPrice.tailSet(new Entry(0, minCents), true);
+        if (maxCents < Long.MAX_VALUE){
+            range = range.headSet(new Entry(0, maxCents + 1), false);
+        }
+        return range;
+    }
+
+    private static List<Product> products(Collection<Entry> entries, int limit){
+        List<Product> products = new ArrayList<>(Math.min(entries.size(), limit));
+        for (Entry entry : entries){
+            if (products.size() == limit){
+                break;
+            }
+            products.add(entry.product);
+        }
+        return products;
+    }
+
+    private static List<Product> merge(List<NavigableSet<Entry>> sources, Comparator<Entry> order, int limit){
+        if (sources.size() == 1){
+            return products(sources.get(0), limit);
+        }
+        PriorityQueue<Cursor> heads = new PriorityQueue<>((a, b) -> order.compare(a.head, b.head));
+        for (NavigableSet<Entry> source : sources){
+            Iterator<Entry> iterator = source.iterator();
+            if (iterator.hasNext()){
+                heads.add(new Cursor(iterator));
+            }
+        }
+        List<Product> products = new ArrayList<>();
+        while (!heads.isEmpty() && products.size() < limit){
+            Cursor cursor = heads.poll();
+            products.add(cursor.head.product);
+            if (cursor.iterator.hasNext()){
+                cursor.head = cursor.iterator.next();
+                heads.add(cursor);
+            }
+        }
+        return products;
+    }
+
+    private static final class Entry{
+        final String sku;
+        final Product product;
+        final long priceCents;
+        final int spec;
+
+        Entry(String sku, Product product){
+            this.sku = sku;
+            this.product = product;
+            this.priceCents = product.getPriceCents();
+            this.spec = product.getSpec();
+        }
+
+        Entry(int spec, long priceCents){ // search bound, sorts before every SKU with the same spec and price
+            this.sku = "";
+            this.product = null;
+            this.priceCents = priceCents;
+            this.spec = spec;
+        }
+    }
+
+    private static final class Flyweight{
+        final Product product;
+        int skus;
+
+        Flyweight(Product product){
+            this.product = product;
+        }
+    }
+
+    private static final class Category{
+        final TreeSet<Entry> byPrice = new TreeSet<>(BY_PRICE);
+        final TreeSet<Entry> bySpec = new TreeSet<>(BY_SPEC);
+    }
+
+    private static final class Cursor{
+        final Iterator<Entry> iterator;
+        Entry head;
+
+        Cursor(Iterator<Entry> iterator){
+            this.iterator = iterator;
+            this.head = iterator.next();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+public class PricingBenchmark{
+    private static final int[] RULE_COUNTS = {1, 16, 128};
+    private static final int[] CART_SIZES = {1, 10, 100};
+    private static final int LINES_PER_BATCH = 1_000_000;
+    private static final int ROUNDS = 5;
+    private static volatile long sink;
+
+    public static void main(String[] args){
+        Random random = new Random(42);
+        System.out.println("Parallelism: " + ForkJoinPool.commonPool().getParallelism());
+        System.out.printf("%6s %10s %16s %16s%n", "rules", "cart size", "seq carts/s", "fork-join carts/s");
+        for (int ruleCount : RULE_COUNTS){
+            PricingEngine engine = new PricingEngine(rules(ruleCount, random));
+            for (int cartSize : CART_SIZES){
+                List<ShoppingCart> carts = carts(LINES_PER_BATCH / cartSize, cartSize, random);
+                double sequential = 0;
+                double parallel = 0;
+                for (int round = 0; round < ROUNDS; round++){ // the first rounds warm up the JIT
+                    long start = System.nanoTime();
+                    long total = 0;
+                    for (ShoppingCart cart : carts){
+                        total += engine.price(cart);
+                    }
+                    sink = total;
+                    sequential = carts.size() * 1e9 / (System.nanoTime() - start);
+
+                    start = System.nanoTime();
+                    sink = engine.priceAll(carts).length;
+                    parallel = carts.size() * 1e9 / (System.nanoTime() - start);
+                }
+                System.out.printf("%6d %10d %,16.0f %,16.0f%n", ruleCount, cartSize, sequential, parallel);
+            }
+        }
+    }
+
+    private static List<PromotionRule> rules(int count, Random random){
+        List<PromotionRule> rules = new ArrayList<>();
+        for (int i = 0; i < count; i++){
+            Class<? extends Product> category = category(random.nextInt(4));
+            if (random.nextInt(4) == 0){
+                rules.add(PromotionRule.buyGetFree(category, 1 + random.nextInt(3), 1));
+            } else {
+                rules.add(PromotionRule.percentOff(category, random.nextInt(60), 1 + random.nextInt(3), 5 + random.nextInt(30)));
+            }
+        }
+        return rules;
+    }
+
+    private static List<ShoppingCart> carts(int count, int size, Random random){
+        List<ShoppingCart> carts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++){
+            ShoppingCart cart = new ShoppingCart(i);
+            while (cart.getLineCount() < size){
+                double price = (1000 + random.nextInt(500_000)) / 100.0;
+                switch (random.nextInt(4)){
+                    case 0:
+                        cart.addProduct(new TV("TV" + random.nextInt(50), price, 32 + random.nextInt(40)), 1 + random.nextInt(3));
+                        break;
+                    case 1:
+                        cart.addProduct(new Refrigerator("Fridge" + random.nextInt(50), price, 200 + random.nextInt(400)));
+                        break;
+                    case 2:
+                        cart.addProduct(new Stove("Stove" + random.nextInt(50), price, 2 + random.nextInt(5)));
+                        break;
+                    default:
+                        cart.addProduct(new Product("Item" + random.nextInt(500), price), 1 + random.nextInt(5));
+                }
+            }
+            carts.add(cart);
+        }
+        return carts;
+    }
+
+    private static Class<? extends Product> category(int index){
+        switch (index){
+            case 0:
+                return TV.class;
+            case 1:
+                return Refrigerator.class;
+            case 2:
+                return Stove.class;
+            default:
+                return Product.class;
+        }
+    }
+}
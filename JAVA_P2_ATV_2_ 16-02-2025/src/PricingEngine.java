@@ -0,0 +1,222 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class PricingEngine{
+    private static final int BATCH_THRESHOLD = 256;
+
+    // compiled plan: rules grouped by category, one array per rule attribute
+    private final Class<?>[] categories;
+    private final int[] ruleStart;
+    private final boolean[] percentOff;
+    private final int[] minSpec;
+    private final int[] minQuantity;
+    private final int[] percent;
+    private final int[] buy;
+    private final int[] free;
+    private final ForkJoinPool pool;
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+    public PricingEngine(List<PromotionRule> rules){
+        this(rules, ForkJoinPool.commonPool());
+    }
+
+    public PricingEngine(List<PromotionRule> rules, ForkJoinPool pool){
+        List<Class<?>> distinct = new ArrayList<>();
+        for (PromotionRule rule : rules){
+            if (!distinct.contains(rule.getCategory())){
+                distinct.add(rule.getCategory());
+            }
+        }
+        categories = distinct.toArray(new Class<?>[0]);
+        ruleStart = new int[categories.length + 1];
+        percentOff = new boolean[rules.size()];
+        minSpec = new int[rules.size()];
+        minQuantity = new int[rules.size()];
+        percent = new int[rules.size()];
+        buy = new int[rules.size()];
+        free = new int[rules.size()];
+        int next = 0;
+        for (int c = 0; c < categories.length; c++){
+            ruleStart[c] = next;
+            for (PromotionRule rule : rules){
+                if (rule.getCategory() == categories[c]){
+                    percentOff[next] = rule.getKind() == PromotionRule.Kind.PERCENT_OFF;
+                    minSpec[next] = rule.getMinSpec();
+                    minQuantity[next] = rule.getMinQuantity();
+                    percent[next] = rule.getPercent();
+                    buy[next] = rule.getBuy();
+                    free[next] = rule.getFree();
+                    next++;
+                }
+            }
+        }
+        ruleStart[categories.length] = next;
+        this.pool = pool;
+    }
+
+    public long price(ShoppingCart cart){
+        return price(cart, scratch.get());
+    }
+
+    public long[] priceAll(List<ShoppingCart> carts){
+        long[] totals = new long[carts.size()];
+        pool.invoke(new Batch(carts, totals, 0, carts.size()));
+        return totals;
+    }
+
+    private long price(ShoppingCart cart, Scratch s){
+        int lines = s.load(cart, categories);
+        long subtotal = 0;
+        for (int i = 0; i < lines; i++){
+            subtotal += s.price[i] * s.quantity[i];
+        }
+        if (percentOff.length == 0){
+            return subtotal;
+        }
+
+        s.resetUnits(percentOff.length);
+        for (int i = 0; i < lines; i++){
+            int c = s.category[i];
+            if (c < 0){
+                continue;
+            }
+            for (int r = ruleStart[c]; r < ruleStart[c + 1]; r++){
+                if (s.spec[i] >= minSpec[r]){
+                    s.units[r] += s.quantity[i];
+                }
+            }
+        }
+
+        long discount = 0;
+        for (int i = 0; i < lines; i++){
+            int c = s.category[i];
+            if (c < 0){
+                continue;
+            }
+            int best = 0;
+            for (int r = ruleStart[c]; r < ruleStart[c + 1]; r++){
+                if (percentOff[r] && percent[r] > best && s.spec[i] >= minSpec[r] && s.units[r] >= minQuantity[r]){
+                    best = percent[r];
+                }
+            }
+            s.best[i] = best;
+            discount += (s.price[i] * s.quantity[i] * best + 50) / 100;
+        }
+
+        for (int c = 0; c < categories.length; c++){
+            long bestFree = 0; // free-unit rules don't stack: each unit is given away at most once
+            for (int r = ruleStart[c]; r < ruleStart[c + 1]; r++){
+                if (!percentOff[r] && s.units[r] >= buy[r] + free[r]){
+                    bestFree = Math.max(bestFree, cheapestUnits(s, lines, c, r, s.units[r] / (buy[r] + free[r]) * free[r]));
+                }
+            }
+            discount += bestFree;
+        }
+        return Math.max(0, subtotal - discount);
+    }
+
+    private long cheapestUnits(Scratch s, int lines, int c, int r, long units){
+        int matched = 0;
+        for (int i = 0; i < lines; i++){
+            if (s.category[i] == c && s.spec[i] >= minSpec[r]){
+                s.order[matched++] = i;
+            }
+        }
+        for (int i = 1; i < matched; i++){ // carts hold few lines per category
+            int line = s.order[i];
+            int j = i - 1;
+            while (j >= 0 && s.price[s.order[j]] > s.price[line]){
+                s.order[j + 1] = s.order[j];
+                j--;
+            }
+            s.order[j + 1] = line;
+        }
+        long value = 0;
+        for (int k = 0; k < matched && units > 0; k++){
+            int line = s.order[k];
+            long taken = Math.min(units, s.quantity[line]);
+            value += taken * s.price[line] - (taken * s.price[line] * s.best[line] + 50) / 100; // net of percent-off
+            units -= taken;
+        }
+        return value;
+    }
+
+    private static final class Scratch{
+        int[] category = new int[16];
+        int[] spec = new int[16];
+        long[] price = new long[16];
+        long[] quantity = new long[16];
+        int[] order = new int[16];
+        int[] best = new int[16];
+        long[] units = new long[16];
+
+        int load(ShoppingCart cart, Class<?>[] categories){
+            Map<Product, Integer> lines = cart.getLines();
+            if (lines.size() > category.length){
+                int size = Math.max(lines.size(), category.length * 2);
+                category = new int[size];
+                spec = new int[size];
+                price = new long[size];
+                quantity = new long[size];
+                order = new int[size];
+                best = new int[size];
+            }
+            int i = 0;
+            for (Map.Entry<Product, Integer> line : lines.entrySet()){
+                Product product = line.getKey();
+                Class<?> type = product.getClass();
+                int c = categories.length - 1;
+                while (c >= 0 && categories[c] != type){
+                    c--;
+                }
+                category[i] = c;
+                spec[i] = product.getSpec();
+                price[i] = product.getPriceCents();
+                quantity[i] = line.getValue();
+                i++;
+            }
+            return i;
+        }
+
+        void resetUnits(int rules){
+            if (units.length < rules){
+                units = new long[rules];
+            } else {
+                Arrays.fill(units, 0, rules, 0);
+            }
+        }
+    }
+
+    private final class Batch extends RecursiveAction{
+        private static final long serialVersionUID = 1L;
+
+        private final List<ShoppingCart> carts;
+        private final long[] totals;
+        private final int from;
+        private final int to;
+
+        Batch(List<ShoppingCart> carts, long[] totals, int from, int to){
+            this.carts = carts;
+            this.totals = totals;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute(){
+            if (to - from <= BATCH_THRESHOLD){
+                Scratch s = scratch.get();
+                for (int i = from; i < to; i++){
+                    totals[i] = price(carts.get(i), s);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new Batch(carts, totals, from, middle), new Batch(carts, totals, middle, to));
+        }
+    }
+}
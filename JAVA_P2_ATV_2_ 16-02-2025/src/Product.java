@@ -1,10 +1,12 @@
 public class Product{
     protected String brand;
     protected double price;
+    protected long priceCents;
 
     public Product(String brand, double price){
         this.brand = brand;
         this.price = price;
+        this.priceCents = Math.round(price * 100);
     }
 
     public String getBrand(){
@@ -14,4 +16,29 @@ public class Product{
     public double getPrice(){
         return price;
     }
+
+    public long getPriceCents(){
+        return priceCents;
+    }
+
+    public int getSpec(){
+        return 0;
+    }
+
+    @Override
+    public boolean equals(Object obj){
+        if (this == obj){
+            return true;
+        }
+        if (obj == null || obj.getClass() != getClass()){
+            return false;
+        }
+        Product other = (Product) obj;
+        return priceCents == other.priceCents && brand.equals(other.brand);
+    }
+
+    @Override
+    public int hashCode(){
+        return 31 * brand.hashCode() + Long.hashCode(priceCents);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,78 @@
+public class PromotionRule{
+    public enum Kind{ PERCENT_OFF, BUY_GET_FREE }
+
+    private Kind kind;
+    private Class<? extends Product> category;
+    private int minSpec;
+    private int minQuantity;
+    private int percent;
+    private int buy;
+    private int free;
+
+    private PromotionRule(Kind kind, Class<? extends Product> category){
+        if (category == null){
+            throw new IllegalArgumentException("Category is required");
+        }
+        this.kind = kind;
+        this.category = category;
+    }
+
+    public static PromotionRule percentOff(Class<? extends Product> category, int minSpec, int minQuantity, int percent){
+        if (percent <= 0 || percent > 100 || minQuantity < 1){
+            throw new IllegalArgumentException("Invalid percent-off rule: " + percent + "% from " + minQuantity + " units");
+        }
+        PromotionRule rule = new PromotionRule(Kind.PERCENT_OFF, category);
+        rule.minSpec = minSpec;
+        rule.minQuantity = minQuantity;
+        rule.percent = percent;
+        return rule;
+    }
+
+    public static PromotionRule buyGetFree(Class<? extends Product> category, int buy, int free){
+        if (buy < 1 || free < 1){
+            throw new IllegalArgumentException("Invalid buy-get-free rule: buy " + buy + " get " + free);
+        }
+        PromotionRule rule = new PromotionRule(Kind.BUY_GET_FREE, category);
+        rule.minSpec = Integer.MIN_VALUE;
+        rule.buy = buy;
+        rule.free = free;
+        return rule;
+    }
+
+    public Kind getKind(){
+        return kind;
+    }
+
+    public Class<? extends Product> getCategory(){
+        return category;
+    }
+
+    public int getMinSpec(){
+        return minSpec;
+    }
+
+    public int getMinQuantity(){
+        return minQuantity;
+    }
+
+    public int getPercent(){
+        return percent;
+    }
+
+    public int getBuy(){
+        return buy;
+    }
+
+    public int getFree(){
+        return free;
+    }
+
+    @Override
+    public String toString(){
+        String target = category.getSimpleName() + (minSpec > Integer.MIN_VALUE ? " with spec " + minSpec + "+" : "");
+        if (kind == Kind.PERCENT_OFF){
+            return percent + "% off " + target + (minQuantity > 1 ? " when buying " + minQuantity + "+" : "");
+        }
+        return "buy " + buy + " " + target + ", get " + free + " free";
+    }
+}
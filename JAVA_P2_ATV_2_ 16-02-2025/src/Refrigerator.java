@@ -9,4 +9,19 @@ public class Refrigerator extends Product{
     public int getSize(){
         return size;
     }
+
+    @Override
+    public int getSpec(){
+        return size;
+    }
+
+    @Override
+    public boolean equals(Object obj){
+        return super.equals(obj) && size == ((Refrigerator) obj).size;
+    }
+
+    @Override
+    public int hashCode(){
+        return 31 * super.hashCode() + size;
+    }
 }
\ No newline at end of file
@@ -1,28 +1,97 @@
-import java.util.ArrayList;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 public class ShoppingCart{
     private int customerID;
-    private ArrayList<Product> productList;
+    private LinkedHashMap<Product, Integer> quantities;
+    private long totalCents;
+    private int itemCount;
+    private long version;
+    private String contents;
+    private byte[] contentsBytes;
 
     public ShoppingCart(int customerID){
         this.customerID = customerID;
-        this.productList = new ArrayList<>();
+        this.quantities = new LinkedHashMap<>();
     }
 
     public void addProduct(Product product){
-        productList.add(product);
+        addProduct(product, 1);
+    }
+
+    public void addProduct(Product product, int quantity){
+        if (quantity <= 0){
+            throw new IllegalArgumentException("Quantity must be positive: " + quantity);
+        }
+        quantities.merge(product, quantity, Integer::sum);
+        totalCents += product.getPriceCents() * quantity;
+        itemCount += quantity;
+        changed();
     }
 
     public void removeProduct(Product product){
-        productList.remove(product);
+        removeProduct(product, 1);
+    }
+
+    public void removeProduct(Product product, int quantity){
+        if (quantity <= 0){
+            throw new IllegalArgumentException("Quantity must be positive: " + quantity);
+        }
+        Integer current = quantities.get(product);
+        if (current == null){
+            return;
+        }
+        int removed = Math.min(current, quantity);
+        if (removed == current){
+            quantities.remove(product);
+        } else {
+            quantities.put(product, current - removed);
+        }
+        totalCents -= product.getPriceCents() * removed;
+        itemCount -= removed;
+        changed();
+    }
+
+    public int getQuantity(Product product){
+        return quantities.getOrDefault(product, 0);
+    }
+
+    public Map<Product, Integer> getLines(){
+        return Collections.unmodifiableMap(quantities);
     }
 
     public String getContents(){
-        StringBuilder contents = new StringBuilder("Shopping Cart Contents:\n");
-        for (Product p : productList){
-            contents.append(p.getBrand()).append(" - $").append(p.getPrice()).append("\n");
+        if (contents == null){
+            StringBuilder builder = new StringBuilder(32 + quantities.size() * 32);
+            try {
+                render(builder);
+            } catch (IOException e){
+                throw new UncheckedIOException(e);
+            }
+            contents = builder.toString();
         }
-        return contents.toString();
+        return contents;
+    }
+
+    public void writeContents(Appendable out) throws IOException{
+        out.append(getContents());
+    }
+
+    public int writeContents(ByteBuffer out){
+        if (contentsBytes == null){
+            contentsBytes = getContents().getBytes(StandardCharsets.UTF_8);
+        }
+        out.put(contentsBytes);
+        return contentsBytes.length;
+    }
+
+    public long getVersion(){
+        return version;
     }
 
     public int getCustomerID(){
@@ -30,14 +99,69 @@ public class ShoppingCart{
     }
 
     public int getItemCount(){
-        return productList.size();
+        return itemCount;
+    }
+
+    public int getLineCount(){
+        return quantities.size();
+    }
+
+    public long getTotalPriceCents(){
+        return totalCents;
     }
 
     public double getTotalPrice(){
-        double total = 0;
-        for (Product p : productList){
-            total += p.getPrice();
+        return totalCents / 100.0;
+    }
+
+    private void changed(){
+        version++;
+        contents = null;
+        contentsBytes = null;
+    }
+
+    private void render(Appendable out) throws IOException{
+        out.append("Shopping Cart Contents:\n");
+        for (Map.Entry<Product, Integer> line : quantities.entrySet()){
+            Product product = line.getKey();
+            out.append(product.getBrand()).append(" - $");
+            appendPrice(out, product);
+            if (line.getValue() > 1){
+                out.append(" x ");
+                appendLong(out, line.getValue());
+            }
+            out.append('\n');
+        }
+    }
+
+    // Same text as Double.toString(price), without going through a String: below 10^7 a price that is
+    // an exact number of cents prints as its integer part and one or two decimals.
+    private static void appendPrice(Appendable out, Product product) throws IOException{
+        long cents = product.getPriceCents();
+        if (Double.compare(cents / 100.0, product.getPrice()) != 0 || Math.abs(cents) >= 1_000_000_000L){
+            out.append(String.valueOf(product.getPrice()));
+            return;
+        }
+        if (cents < 0){
+            out.append('-');
+            cents = -cents;
+        }
+        appendLong(out, cents / 100);
+        out.append('.');
+        long fraction = cents % 100;
+        out.append((char) ('0' + fraction / 10));
+        if (fraction % 10 != 0){
+            out.append((char) ('0' + fraction % 10));
+        }
+    }
+
+    private static void appendLong(Appendable out, long value) throws IOException{
+        long divisor = 1;
+        while (value / divisor >= 10){
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10){
+            out.append((char) ('0' + value / divisor % 10));
         }
-        return total;
     }
 }
@@ -9,4 +9,19 @@ public class Stove extends Product{
     public int getBurners(){
         return burners;
     }
+
+    @Override
+    public int getSpec(){
+        return burners;
+    }
+
+    @Override
+    public boolean equals(Object obj){
+        return super.equals(obj) && burners == ((Stove) obj).burners;
+    }
+
+    @Override
+    public int hashCode(){
+        return 31 * super.hashCode() + burners;
+    }
 }
@@ -9,6 +9,21 @@ public class TV extends Product{
     public int getInches(){
         return inches;
     }
+
+    @Override
+    public int getSpec(){
+        return inches;
+    }
+
+    @Override
+    public boolean equals(Object obj){
+        return super.equals(obj) && inches == ((TV) obj).inches;
+    }
+
+    @Override
+    public int hashCode(){
+        return 31 * super.hashCode() + inches;
+    }
 }
 
 
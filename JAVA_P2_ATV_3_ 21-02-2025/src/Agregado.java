@@ -0,0 +1,59 @@
+// Estatísticas de um grupo de impostos, atualizadas um valor por vez e mescláveis entre threads.
+public class Agregado{
+    public static final double PRECISAO_QUANTIS = 0.01;
+
+    private long contagem;
+    private double soma;
+    private double compensacao; // soma de Kahan: os totais não dependem tanto da ordem das mesclas
+    private double minimo = Double.POSITIVE_INFINITY;
+    private double maximo = Double.NEGATIVE_INFINITY;
+    private final EsbocoQuantis quantis = new EsbocoQuantis(PRECISAO_QUANTIS);
+
+    public void adicionar(double imposto){
+        contagem++;
+        somar(imposto);
+        minimo = Math.min(minimo, imposto);
+        maximo = Math.max(maximo, imposto);
+        quantis.adicionar(imposto);
+    }
+
+    public void mesclar(Agregado outro){
+        contagem += outro.contagem;
+        somar(outro.soma);
+        somar(-outro.compensacao);
+        minimo = Math.min(minimo, outro.minimo);
+        maximo = Math.max(maximo, outro.maximo);
+        quantis.mesclar(outro.quantis);
+    }
+
+    private void somar(double valor){
+        double y = valor - compensacao;
+        double t = soma + y;
+        compensacao = (t - soma) - y;
+        soma = t;
+    }
+
+    public long getContagem(){
+        return contagem;
+    }
+
+    public double getTotal(){
+        return soma;
+    }
+
+    public double getMedia(){
+        return contagem == 0 ? Double.NaN : soma / contagem;
+    }
+
+    public double getMinimo(){
+        return contagem == 0 ? Double.NaN : minimo;
+    }
+
+    public double getMaximo(){
+        return contagem == 0 ? Double.NaN : maximo;
+    }
+
+    public double quantil(double q){
+        return quantis.quantil(q);
+    }
+}
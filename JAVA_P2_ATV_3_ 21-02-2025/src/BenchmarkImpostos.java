@@ -0,0 +1,114 @@
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Random;
+
+// Compara o modelo de objetos (Contribuinte[] com calcularImposto() virtual) com as colunas
+// de ContribuintesColunares nos kernels escalar e vetorial. Sem JMH no projeto: aquecimento
+// e medições repetidas à mão, reportando a melhor rodada.
+//   java [--add-modules jdk.incubator.vector] BenchmarkImpostos [quantidade] [rodadas]
+public class BenchmarkImpostos{
+    public static void main(String[] args) throws IOException{
+        int quantidade = args.length > 0 ? Integer.parseInt(args[0]) : 4_000_000;
+        int rodadas = args.length > 1 ? Integer.parseInt(args[1]) : 15;
+
+        Random aleatorio = new Random(42);
+        boolean[] juridica = new boolean[quantidade];
+        double[] rendaAnual = new double[quantidade];
+        double[] gastosSaude = new double[quantidade];
+        int[] funcionarios = new int[quantidade];
+        Contribuinte[] objetos = new Contribuinte[quantidade];
+        double[] especiais = {0.0, -0.0, 20000.0, 19999.99, -1.0, Double.NaN, Double.MAX_VALUE, Double.MIN_VALUE};
+        for (int i = 0; i < quantidade; i++){
+            juridica[i] = aleatorio.nextBoolean();
+            rendaAnual[i] = i % 1000 == 0 ? especiais[i / 1000 % especiais.length] : aleatorio.nextDouble() * 100000;
+            if (juridica[i]){
+                funcionarios[i] = aleatorio.nextInt(25) - 2;
+                objetos[i] = new PessoaJuridica("Empresa " + i, rendaAnual[i], funcionarios[i]);
+            } else {
+                gastosSaude[i] = aleatorio.nextInt(4) == 0 ? aleatorio.nextDouble() * 60000 : aleatorio.nextDouble() * 5000;
+                objetos[i] = new PessoaFisica("Pessoa " + i, rendaAnual[i], gastosSaude[i]);
+            }
+        }
+
+        KernelImposto escalar = new KernelEscalar();
+        KernelImposto disponivel = KernelImposto.disponivel();
+        double[] esperado = new double[quantidade];
+        double[] obtido = new double[quantidade];
+        calcularObjetos(objetos, esperado);
+        conferir("escalar", escalar, juridica, rendaAnual, gastosSaude, funcionarios, esperado, obtido);
+        if (!(disponivel instanceof KernelEscalar)){
+            conferir("vetorial", disponivel, juridica, rendaAnual, gastosSaude, funcionarios, esperado, obtido);
+        } else {
+            System.out.println("kernel vetorial indisponível (rode com --add-modules jdk.incubator.vector)");
+        }
+        conferirFormato(new Random(7), 1_000_000);
+
+        long melhorObjetos = Long.MAX_VALUE, melhorEscalar = Long.MAX_VALUE, melhorVetorial = Long.MAX_VALUE;
+        double soma = 0;
+        for (int r = 0; r < rodadas; r++){
+            long inicio = System.nanoTime();
+            calcularObjetos(objetos, obtido);
+            melhorObjetos = Math.min(melhorObjetos, System.nanoTime() - inicio);
+            soma += obtido[r];
+
+            inicio = System.nanoTime();
+            escalar.calcular(juridica, rendaAnual, gastosSaude, funcionarios, obtido, 0, quantidade);
+            melhorEscalar = Math.min(melhorEscalar, System.nanoTime() - inicio);
+            soma += obtido[r];
+
+            if (!(disponivel instanceof KernelEscalar)){
+                inicio = System.nanoTime();
+                disponivel.calcular(juridica, rendaAnual, gastosSaude, funcionarios, obtido, 0, quantidade);
+                melhorVetorial = Math.min(melhorVetorial, System.nanoTime() - inicio);
+                soma += obtido[r];
+            }
+        }
+        imprimir("objetos", melhorObjetos, quantidade);
+        imprimir("colunas/escalar", melhorEscalar, quantidade);
+        if (melhorVetorial != Long.MAX_VALUE){
+            imprimir("colunas/vetorial", melhorVetorial, quantidade);
+        }
+        System.out.println("(checksum " + soma + ")");
+    }
+
+    private static void calcularObjetos(Contribuinte[] objetos, double[] impostos){
+        for (int i = 0; i < objetos.length; i++){
+            impostos[i] = objetos[i].calcularImposto();
+        }
+    }
+
+    private static void conferir(String nome, KernelImposto kernel, boolean[] juridica, double[] rendaAnual,
+            double[] gastosSaude, int[] funcionarios, double[] esperado, double[] obtido){
+        // intervalos desalinhados para exercitar também a cauda escalar do kernel vetorial
+        kernel.calcular(juridica, rendaAnual, gastosSaude, funcionarios, obtido, 0, 3);
+        kernel.calcular(juridica, rendaAnual, gastosSaude, funcionarios, obtido, 3, esperado.length);
+        for (int i = 0; i < esperado.length; i++){
+            if (Double.doubleToRawLongBits(esperado[i]) != Double.doubleToRawLongBits(obtido[i])){
+                throw new IllegalStateException(nome + ": registro " + i + " deu " + obtido[i] + ", esperado " + esperado[i]);
+            }
+        }
+        System.out.println(nome + ": " + esperado.length + " resultados idênticos bit a bit");
+    }
+
+    // a saída em lote precisa sair igual ao %.2f do modo interativo, inclusive nos empates de meio
+    // centavo dos impostos grandes, em que o produto por 100 já não é exato
+    private static void conferirFormato(Random aleatorio, int quantidade) throws IOException{
+        ProcessadorLote processador = new ProcessadorLote();
+        StringWriter saida = new StringWriter();
+        for (int i = 0; i < quantidade; i++){
+            double renda = i == 0 ? 9685685202.30 : Math.round(Math.pow(10, 6 + 4 * aleatorio.nextDouble()) * 100) / 100.0;
+            double valor = renda * (i % 2 == 0 ? 0.25 : 0.15);
+            saida.getBuffer().setLength(0);
+            processador.escreverValor(saida, valor);
+            String esperado = String.format("%.2f", valor);
+            if (!esperado.equals(saida.toString())){
+                throw new IllegalStateException("formato: " + valor + " deu " + saida + ", esperado " + esperado);
+            }
+        }
+        System.out.println("formato: " + quantidade + " valores iguais ao %.2f");
+    }
+
+    private static void imprimir(String nome, long nanos, int quantidade){
+        System.out.printf("%-18s %8.2f ms  %6.2f ns/contribuinte%n", nome, nanos / 1e6, (double) nanos / quantidade);
+    }
+}
@@ -1,9 +1,20 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
 import java.util.Scanner;
 import java.util.ArrayList;
 import java.util.List;
 
 public class CalculadoraImpostos{
-    public static void main(String[] args){
+    public static void main(String[] args) throws IOException{
+        if (args.length > 0){
+            boolean relatorio = args[args.length - 1].equals("--relatorio");
+            int arquivos = relatorio ? args.length - 1 : args.length;
+            if (arquivos > 0){
+                processarArquivo(args[0], arquivos > 1 ? args[1] : null, relatorio);
+                return;
+            }
+        }
         Scanner sc = new Scanner(System.in);
         List<Contribuinte> contribuintes = new ArrayList<>();
         
@@ -45,5 +56,20 @@ public class CalculadoraImpostos{
         
         sc.close();
     }
+
+    private static void processarArquivo(String entrada, String saida, boolean relatorio) throws IOException{
+        ProcessadorLote processador = new ProcessadorLote(relatorio);
+        long inicio = System.nanoTime();
+        try (LeitorRegistros leitor = entrada.equals("-")
+                     ? LeitorRegistros.ler(System.in)
+                     : LeitorRegistros.abrir(Paths.get(entrada));
+             Writer escritor = new BufferedWriter(saida != null
+                     ? new OutputStreamWriter(new FileOutputStream(saida), StandardCharsets.UTF_8)
+                     : new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16)){
+            processador.processar(leitor, escritor);
+        }
+        System.err.printf("%d registros (%d inválidos) em %.1f s%n", processador.getRegistros(),
+                processador.getInvalidos(), (System.nanoTime() - inicio) / 1e9);
+    }
 }
 
@@ -0,0 +1,99 @@
+import java.util.stream.IntStream;
+
+// Contribuintes guardados por coluna: um array por atributo em vez de um objeto por contribuinte.
+// Pessoas físicas deixam funcionarios em 0 e jurídicas deixam gastosSaude em 0.
+public class ContribuintesColunares{
+    private static final KernelImposto KERNEL = KernelImposto.disponivel();
+    private static final int BLOCO_PARALELO = 1 << 13;
+
+    private final String[] nomes;
+    private final boolean[] juridica;
+    private final double[] rendaAnual;
+    private final double[] gastosSaude;
+    private final int[] funcionarios;
+    private int tamanho;
+
+    public ContribuintesColunares(int capacidade){
+        nomes = new String[capacidade];
+        juridica = new boolean[capacidade];
+        rendaAnual = new double[capacidade];
+        gastosSaude = new double[capacidade];
+        funcionarios = new int[capacidade];
+    }
+
+    public void adicionarFisica(String nome, double rendaAnual, double gastosSaude){
+        int i = proximo();
+        nomes[i] = nome;
+        juridica[i] = false;
+        this.rendaAnual[i] = rendaAnual;
+        this.gastosSaude[i] = gastosSaude;
+        funcionarios[i] = 0;
+    }
+
+    public void adicionarJuridica(String nome, double rendaAnual, int funcionarios){
+        int i = proximo();
+        nomes[i] = nome;
+        juridica[i] = true;
+        this.rendaAnual[i] = rendaAnual;
+        gastosSaude[i] = 0.0;
+        this.funcionarios[i] = funcionarios;
+    }
+
+    private int proximo(){
+        if (tamanho == nomes.length){
+            throw new IllegalStateException("capacidade esgotada: " + nomes.length);
+        }
+        return tamanho++;
+    }
+
+    public void limpar(){
+        java.util.Arrays.fill(nomes, 0, tamanho, null);
+        tamanho = 0;
+    }
+
+    public int getTamanho(){
+        return tamanho;
+    }
+
+    public int getCapacidade(){
+        return nomes.length;
+    }
+
+    public String getNome(int i){
+        return nomes[i];
+    }
+
+    public boolean isJuridica(int i){
+        return juridica[i];
+    }
+
+    public double getRendaAnual(int i){
+        return rendaAnual[i];
+    }
+
+    public double getGastosSaude(int i){
+        return gastosSaude[i];
+    }
+
+    public int getFuncionarios(int i){
+        return funcionarios[i];
+    }
+
+    public void calcularImpostos(double[] impostos, int de, int ate){
+        KERNEL.calcular(juridica, rendaAnual, gastosSaude, funcionarios, impostos, de, ate);
+    }
+
+    public void calcularImpostos(double[] impostos){
+        if (tamanho <= BLOCO_PARALELO){
+            calcularImpostos(impostos, 0, tamanho);
+            return;
+        }
+        int blocos = (tamanho + BLOCO_PARALELO - 1) / BLOCO_PARALELO;
+        IntStream.range(0, blocos).parallel().forEach(b ->
+                calcularImpostos(impostos, b * BLOCO_PARALELO, Math.min(tamanho, (b + 1) * BLOCO_PARALELO)));
+    }
+
+    public static String getKernel(){
+        return KERNEL.getClass().getSimpleName();
+    }
+}
@@ -0,0 +1,140 @@
+import java.util.Arrays;
+
+// Esboço de quantis no estilo DDSketch: cada valor positivo cai no balde ceil(log_gamma(v)), então
+// qualquer quantil sai com erro relativo de no máximo `precisao`. Dois esboços com a mesma precisão
+// se mesclam somando baldes, o que permite agregar em paralelo e juntar depois. A memória é limitada
+// a MAXIMO_BALDES; se a faixa de valores exigir mais, os baldes mais baixos são fundidos.
+public class EsbocoQuantis{
+    private static final int MAXIMO_BALDES = 2048;
+
+    private final double precisao;
+    private final double gamma;
+    private final double logGamma;
+    private long[] baldes = new long[64];
+    private int menorIndice; // índice do balde em baldes[0]
+    private int menorUsado;
+    private int maiorUsado;
+    private boolean vazio = true;
+    private long zeros;
+    private long contagem;
+
+    public EsbocoQuantis(double precisao){
+        if (precisao <= 0 || precisao >= 1){
+            throw new IllegalArgumentException("precisão deve estar entre 0 e 1: " + precisao);
+        }
+        this.precisao = precisao;
+        this.gamma = (1 + precisao) / (1 - precisao);
+        this.logGamma = Math.log(gamma);
+    }
+
+    // aceita valores >= 0; NaN e negativos são ignorados
+    public void adicionar(double valor){
+        if (!(valor >= 0) || valor == Double.POSITIVE_INFINITY){
+            return;
+        }
+        contagem++;
+        if (valor < Double.MIN_NORMAL){
+            zeros++;
+            return;
+        }
+        incrementar((int) Math.ceil(Math.log(valor) / logGamma), 1);
+    }
+
+    public void mesclar(EsbocoQuantis outro){
+        if (outro.precisao != precisao){
+            throw new IllegalArgumentException("esboços com precisões diferentes");
+        }
+        zeros += outro.zeros;
+        contagem += outro.contagem;
+        if (outro.vazio){
+            return;
+        }
+        for (int i = 0; i < outro.baldes.length; i++){
+            if (outro.baldes[i] != 0){
+                incrementar(outro.menorIndice + i, outro.baldes[i]);
+            }
+        }
+    }
+
+    // quantil q em [0, 1]; NaN se o esboço estiver vazio
+    public double quantil(double q){
+        if (contagem == 0){
+            return Double.NaN;
+        }
+        long posicao = (long) Math.floor(Math.max(0, Math.min(1, q)) * (contagem - 1));
+        if (posicao < zeros){
+            return 0.0;
+        }
+        long acumulado = zeros;
+        for (int i = 0; i < baldes.length; i++){
+            acumulado += baldes[i];
+            if (acumulado > posicao){
+                return 2 * Math.pow(gamma, menorIndice + i) / (gamma + 1);
+            }
+        }
+        return 2 * Math.pow(gamma, menorIndice + baldes.length - 1) / (gamma + 1);
+    }
+
+    public long getContagem(){
+        return contagem;
+    }
+
+    public double getPrecisao(){
+        return precisao;
+    }
+
+    private void incrementar(int indice, long quantidade){
+        if (vazio){
+            menorIndice = indice - baldes.length / 2;
+            menorUsado = indice;
+            maiorUsado = indice;
+            vazio = false;
+        } else if (indice > maiorUsado && indice - menorUsado >= MAXIMO_BALDES){
+            // sem espaço: os baldes mais baixos são fundidos no mais baixo que ainda cabe
+            int novoMenor = indice - MAXIMO_BALDES + 1;
+            long colapsado = retirarAbaixo(novoMenor);
+            garantir(novoMenor);
+            baldes[novoMenor - menorIndice] += colapsado;
+        } else if (indice < menorUsado && maiorUsado - indice >= MAXIMO_BALDES){
+            indice = menorUsado;
+        }
+        garantir(indice);
+        baldes[indice - menorIndice] += quantidade;
+    }
+
+    private long retirarAbaixo(int limite){
+        long retirado = 0;
+        for (int i = menorUsado; i < limite && i <= maiorUsado; i++){
+            if (i >= menorIndice && i < menorIndice + baldes.length){
+                retirado += baldes[i - menorIndice];
+                baldes[i - menorIndice] = 0;
+            }
+        }
+        menorUsado = limite;
+        maiorUsado = Math.max(maiorUsado, limite);
+        return retirado;
+    }
+
+    // realoca (no máximo MAXIMO_BALDES) para que o índice caiba junto com os baldes em uso
+    private void garantir(int indice){
+        if (indice >= menorIndice && indice < menorIndice + baldes.length){
+            menorUsado = Math.min(menorUsado, indice);
+            maiorUsado = Math.max(maiorUsado, indice);
+            return;
+        }
+        int de = Math.min(indice, menorUsado);
+        int ate = Math.max(indice, maiorUsado);
+        int necessario = ate - de + 1;
+        long[] novos = new long[Math.max(necessario, Math.min(MAXIMO_BALDES, baldes.length * 2))];
+        int novoMenor = de - (novos.length - necessario) / 2;
+        int inicioCopia = Math.max(menorUsado, menorIndice);
+        int fimCopia = Math.min(maiorUsado, menorIndice + baldes.length - 1);
+        if (inicioCopia <= fimCopia){
+            System.arraycopy(baldes, inicioCopia - menorIndice, novos, inicioCopia - novoMenor, fimCopia - inicioCopia + 1);
+        }
+        baldes = novos;
+        menorIndice = novoMenor;
+        menorUsado = de;
+        maiorUsado = ate;
+    }
+}
@@ -0,0 +1,20 @@
+public class ExcecaoFormato extends RuntimeException{
+    private static final long serialVersionUID = 1L;
+
+    private final long linha;
+    private final int coluna;
+
+    public ExcecaoFormato(long linha, int coluna, String mensagem){
+        super("linha " + linha + ", coluna " + coluna + ": " + mensagem);
+        this.linha = linha;
+        this.coluna = coluna;
+    }
+
+    public long getLinha(){
+        return linha;
+    }
+
+    public int getColuna(){
+        return coluna;
+    }
+}
@@ -0,0 +1,16 @@
+class KernelEscalar implements KernelImposto{
+    @Override
+    public void calcular(boolean[] juridica, double[] rendaAnual, double[] gastosSaude, int[] funcionarios,
+            double[] impostos, int de, int ate){
+        for (int i = de; i < ate; i++){
+            impostos[i] = imposto(juridica[i], rendaAnual[i], gastosSaude[i], funcionarios[i]);
+        }
+    }
+
+    // mesmas operações, na mesma ordem, das classes de contribuinte; os ternários viram cmov
+    static double imposto(boolean juridica, double rendaAnual, double gastosSaude, int funcionarios){
+        double fisica = Math.max(rendaAnual * (rendaAnual < 20000.0 ? 0.15 : 0.25) - gastosSaude * 0.50, 0.0);
+        double pj = rendaAnual * (funcionarios > 10 ? 0.14 : 0.16);
+        return juridica ? pj : fisica;
+    }
+}
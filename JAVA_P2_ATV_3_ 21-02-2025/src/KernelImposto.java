@@ -0,0 +1,19 @@
+// Calcula impostos direto das colunas de ContribuintesColunares, no intervalo [de, ate).
+// O resultado é bit a bit igual ao de PessoaFisica/PessoaJuridica.calcularImposto().
+interface KernelImposto{
+    void calcular(boolean[] juridica, double[] rendaAnual, double[] gastosSaude, int[] funcionarios,
+            double[] impostos, int de, int ate);
+
+    // usa o kernel vetorial (pasta vetorial, precisa de --add-modules jdk.incubator.vector) quando
+    // ele estiver no classpath e o módulo carregado; senão, o escalar
+    static KernelImposto disponivel(){
+        if (!"escalar".equals(System.getProperty("impostos.kernel"))){
+            try {
+                return (KernelImposto) Class.forName("KernelVetorial").getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e){
+                // sem o módulo ou sem a classe: fica com o escalar
+            }
+        }
+        return new KernelEscalar();
+    }
+}
@@ -0,0 +1,357 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Lê registros delimitados (um por linha) direto dos bytes da entrada, sem Scanner nem split.
+// Números são convertidos sem criar Strings; só os campos de texto viram String.
+public class LeitorRegistros implements Closeable{
+    private static final long JANELA = 1L << 30;
+    private static final int MARGEM = 1 << 20;
+    private static final double[] POTENCIAS = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final byte delimitador;
+    private final FileChannel canal;
+    private final ReadableByteChannel fluxo;
+    private final long tamanhoArquivo;
+    private boolean fimFluxo;
+    private long inicioJanela;
+    private ByteBuffer dados;
+    private int pos;
+    private int limite;
+
+    private long linha = 1;
+    private int inicioLinha;
+    private int inicioCampo;
+    private int campo;
+    private boolean emRegistro;
+    private byte[] texto = new byte[64];
+
+    public LeitorRegistros(ByteBuffer dados){
+        this(dados, ';');
+    }
+
+    public LeitorRegistros(ByteBuffer dados, char delimitador){
+        this.delimitador = (byte) delimitador;
+        this.canal = null;
+        this.fluxo = null;
+        this.tamanhoArquivo = dados.remaining();
+        this.dados = dados.slice();
+        this.limite = this.dados.limit();
+    }
+
+    private LeitorRegistros(FileChannel canal, char delimitador) throws IOException{
+        this.delimitador = (byte) delimitador;
+        this.canal = canal;
+        this.fluxo = null;
+        this.tamanhoArquivo = canal.size();
+        mapear(0);
+    }
+
+    private LeitorRegistros(ReadableByteChannel fluxo, char delimitador) throws IOException{
+        this.delimitador = (byte) delimitador;
+        this.canal = null;
+        this.fluxo = fluxo;
+        this.tamanhoArquivo = -1;
+        this.dados = ByteBuffer.allocate(4 * MARGEM);
+        reabastecer();
+    }
+
+    // arquivos maiores que a janela são mapeados aos pedaços, sempre a partir do início de um registro
+    public static LeitorRegistros abrir(Path arquivo) throws IOException{
+        FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ);
+        try {
+            return new LeitorRegistros(canal, ';');
+        } catch (IOException e){
+            canal.close();
+            throw e;
+        }
+    }
+
+    // entradas de tamanho desconhecido (como stdin) passam por um buffer fixo, reabastecido entre registros;
+    // o fluxo não é fechado junto com o leitor
+    public static LeitorRegistros ler(InputStream entrada) throws IOException{
+        return new LeitorRegistros(Channels.newChannel(entrada), ';');
+    }
+
+    private void mapear(long inicio) throws IOException{
+        long tamanho = Math.min(JANELA, tamanhoArquivo - inicio);
+        dados = tamanho == 0 ? ByteBuffer.allocate(0) : canal.map(FileChannel.MapMode.READ_ONLY, inicio, tamanho);
+        inicioJanela = inicio;
+        limite = (int) tamanho;
+        pos = 0;
+    }
+
+    private void reabastecer() throws IOException{
+        dados.limit(limite).position(pos);
+        dados.compact();
+        while (dados.hasRemaining()){
+            if (fluxo.read(dados) < 0){
+                fimFluxo = true;
+                break;
+            }
+        }
+        limite = dados.position();
+        pos = 0;
+        dados.clear();
+    }
+
+    // avança para o próximo registro não vazio, descartando o que sobrou do atual
+    public boolean proximoRegistro() throws IOException{
+        if (emRegistro){
+            while (pos < limite && dados.get(pos) != '\n'){
+                pos++;
+            }
+            if (pos < limite){
+                pos++;
+                linha++;
+            }
+            emRegistro = false;
+        }
+        while (true){
+            if (canal != null && limite - pos < MARGEM && inicioJanela + limite < tamanhoArquivo){
+                mapear(inicioJanela + pos);
+            } else if (fluxo != null && !fimFluxo && limite - pos < MARGEM){
+                reabastecer();
+            }
+            int inicio = pos;
+            while (pos < limite && ehEspaco(dados.get(pos))){
+                pos++;
+            }
+            if (pos == limite){
+                return false;
+            }
+            if (dados.get(pos) != '\n'){
+                inicioLinha = inicio;
+                campo = 0;
+                emRegistro = true;
+                return true;
+            }
+            pos++;
+            linha++;
+        }
+    }
+
+    public char lerCaractere(){
+        iniciarCampo();
+        int fim = fimCampo();
+        if (fim - inicioCampo != 1 || dados.get(inicioCampo) < 0){
+            throw erroNoCampo("esperado um único caractere");
+        }
+        return (char) dados.get(inicioCampo);
+    }
+
+    public String lerTexto(){
+        iniciarCampo();
+        int fim = fimCampo();
+        int tamanho = fim - inicioCampo;
+        if (texto.length < tamanho){
+            texto = new byte[Math.max(tamanho, texto.length * 2)];
+        }
+        dados.get(inicioCampo, texto, 0, tamanho);
+        return new String(texto, 0, tamanho, StandardCharsets.UTF_8);
+    }
+
+    public int lerInt(){
+        iniciarCampo();
+        int i = pos;
+        boolean negativo = false;
+        if (i < limite && (dados.get(i) == '-' || dados.get(i) == '+')){
+            negativo = dados.get(i) == '-';
+            i++;
+        }
+        int inicioDigitos = i;
+        long valor = 0;
+        while (i < limite && ehDigito(dados.get(i))){
+            valor = valor * 10 + (dados.get(i) - '0');
+            if (valor > Integer.MAX_VALUE + 1L){
+                throw erroNoCampo("inteiro fora do intervalo");
+            }
+            i++;
+        }
+        if (i == inicioDigitos){
+            throw erro(i, "esperado um número inteiro");
+        }
+        terminarNumero(i);
+        if (negativo){
+            valor = -valor;
+        }
+        if (valor > Integer.MAX_VALUE){
+            throw erroNoCampo("inteiro fora do intervalo");
+        }
+        return (int) valor;
+    }
+
+    // com até 15 dígitos significativos e expoente decimal em [-22, 22] a conta abaixo
+    // é exata e dá o mesmo double que Double.parseDouble; o resto vai para o caminho lento
+    public double lerDouble(){
+        iniciarCampo();
+        int i = pos;
+        boolean negativo = false;
+        if (i < limite && (dados.get(i) == '-' || dados.get(i) == '+')){
+            negativo = dados.get(i) == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int significativos = 0;
+        int expoente = 0;
+        boolean algumDigito = false;
+        while (i < limite && ehDigito(dados.get(i))){
+            algumDigito = true;
+            if (significativos < 18){
+                mantissa = mantissa * 10 + (dados.get(i) - '0');
+                if (mantissa != 0){
+                    significativos++;
+                }
+            } else {
+                significativos++;
+                expoente++;
+            }
+            i++;
+        }
+        if (i < limite && dados.get(i) == '.'){
+            i++;
+            while (i < limite && ehDigito(dados.get(i))){
+                algumDigito = true;
+                if (significativos < 18){
+                    mantissa = mantissa * 10 + (dados.get(i) - '0');
+                    if (mantissa != 0){
+                        significativos++;
+                    }
+                    expoente--;
+                } else {
+                    significativos++;
+                }
+                i++;
+            }
+        }
+        if (!algumDigito){
+            throw erro(i, "esperado um número");
+        }
+        if (i < limite && (dados.get(i) == 'e' || dados.get(i) == 'E')){
+            i++;
+            boolean expoenteNegativo = false;
+            if (i < limite && (dados.get(i) == '-' || dados.get(i) == '+')){
+                expoenteNegativo = dados.get(i) == '-';
+                i++;
+            }
+            int inicioExpoente = i;
+            int valorExpoente = 0;
+            while (i < limite && ehDigito(dados.get(i))){
+                if (valorExpoente < 100000){
+                    valorExpoente = valorExpoente * 10 + (dados.get(i) - '0');
+                }
+                i++;
+            }
+            if (i == inicioExpoente){
+                throw erro(i, "expoente sem dígitos");
+            }
+            expoente += expoenteNegativo ? -valorExpoente : valorExpoente;
+        }
+        terminarNumero(i);
+        double valor;
+        if (mantissa == 0){
+            valor = 0.0;
+        } else if (significativos <= 15 && expoente >= -22 && expoente <= 22){
+            valor = expoente >= 0 ? mantissa * POTENCIAS[expoente] : mantissa / POTENCIAS[-expoente];
+        } else {
+            byte[] bytes = new byte[i - inicioCampo];
+            dados.get(inicioCampo, bytes);
+            return Double.parseDouble(new String(bytes, StandardCharsets.ISO_8859_1));
+        }
+        return negativo ? -valor : valor;
+    }
+
+    // garante que não sobraram campos no registro atual
+    public void fimRegistro(){
+        int i = pos;
+        while (i < limite && ehEspaco(dados.get(i))){
+            i++;
+        }
+        if (i < limite && dados.get(i) != '\n'){
+            throw erro(i, "campos a mais no registro");
+        }
+    }
+
+    public ExcecaoFormato erroNoCampo(String mensagem){
+        return erro(inicioCampo, mensagem);
+    }
+
+    public long getLinha(){
+        return linha;
+    }
+
+    @Override
+    public void close() throws IOException{
+        if (canal != null){
+            canal.close();
+        }
+    }
+
+    private void iniciarCampo(){
+        if (!emRegistro){
+            throw new IllegalStateException("nenhum registro atual");
+        }
+        while (pos < limite && (dados.get(pos) == ' ' || dados.get(pos) == '\t')){
+            pos++;
+        }
+        if (campo > 0){
+            if (pos >= limite || dados.get(pos) != delimitador){
+                throw erro(pos, "campos insuficientes no registro");
+            }
+            pos++;
+            while (pos < limite && (dados.get(pos) == ' ' || dados.get(pos) == '\t')){
+                pos++;
+            }
+        }
+        campo++;
+        inicioCampo = pos;
+    }
+
+    // deixa pos no fim do campo e devolve o fim sem os espaços finais
+    private int fimCampo(){
+        while (pos < limite && !ehFimCampo(dados.get(pos))){
+            pos++;
+        }
+        int fim = pos;
+        while (fim > inicioCampo && ehEspaco(dados.get(fim - 1))){
+            fim--;
+        }
+        return fim;
+    }
+
+    private void terminarNumero(int i){
+        pos = i;
+        while (pos < limite && (dados.get(pos) == ' ' || dados.get(pos) == '\t')){
+            pos++;
+        }
+        if (pos < limite && !ehFimCampo(dados.get(pos))){
+            throw erro(i, "caractere inesperado em número");
+        }
+    }
+
+    private boolean ehFimCampo(byte b){
+        return b == delimitador || b == '\n' || b == '\r';
+    }
+
+    private static boolean ehEspaco(byte b){
+        return b == ' ' || b == '\t' || b == '\r';
+    }
+
+    private static boolean ehDigito(byte b){
+        return b >= '0' && b <= '9';
+    }
+
+    private ExcecaoFormato erro(int indice, String mensagem){
+        return new ExcecaoFormato(linha, indice - inicioLinha + 1, mensagem);
+    }
+}
@@ -0,0 +1,147 @@
+import java.io.*;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.DecimalFormatSymbols;
+import java.util.concurrent.CompletableFuture;
+
+public class ProcessadorLote{
+    private static final int TAMANHO_LOTE = 1 << 16;
+
+    private final char separadorDecimal = DecimalFormatSymbols.getInstance().getDecimalSeparator();
+    private long registros;
+    private long invalidos;
+    private double totalImpostos;
+    private RelatorioImpostos relatorio;
+
+    public ProcessadorLote(){
+    }
+
+    // com relatorio, escreve também as agregações por grupo depois do total
+    public ProcessadorLote(boolean relatorio){
+        if (relatorio){
+            this.relatorio = new RelatorioImpostos();
+        }
+    }
+
+    public double processar(LeitorRegistros entrada, Writer saida) throws IOException{
+        saida.write("IMPOSTOS PAGOS:\n");
+        // dois lotes fixos que se alternam: um é calculado enquanto o outro é lido
+        ContribuintesColunares lote = new ContribuintesColunares(TAMANHO_LOTE);
+        ContribuintesColunares proximo = new ContribuintesColunares(TAMANHO_LOTE);
+        double[] impostos = new double[TAMANHO_LOTE];
+        double[] proximosImpostos = new double[TAMANHO_LOTE];
+        lerLote(entrada, lote);
+        while (lote.getTamanho() > 0){
+            ContribuintesColunares calculado = lote;
+            double[] resultado = impostos;
+            CompletableFuture<Void> calculo = CompletableFuture.runAsync(() -> {
+                calculado.calcularImpostos(resultado);
+                if (relatorio != null){
+                    relatorio.mesclar(RelatorioImpostos.agregar(calculado, resultado));
+                }
+            });
+            lerLote(entrada, proximo);
+            calculo.join();
+            escrever(lote, impostos, saida);
+            lote = proximo;
+            proximo = calculado;
+            impostos = proximosImpostos;
+            proximosImpostos = resultado;
+        }
+        saida.write("TOTAL DE IMPOSTOS: R$ ");
+        escreverValor(saida, totalImpostos);
+        saida.write('\n');
+        if (relatorio != null){
+            relatorio.escrever(saida);
+        }
+        saida.flush();
+        return totalImpostos;
+    }
+
+    public long getRegistros(){
+        return registros;
+    }
+
+    public long getInvalidos(){
+        return invalidos;
+    }
+
+    public double getTotalImpostos(){
+        return totalImpostos;
+    }
+
+    public RelatorioImpostos getRelatorio(){
+        return relatorio;
+    }
+
+    private void lerLote(LeitorRegistros entrada, ContribuintesColunares lote) throws IOException{
+        lote.limpar();
+        while (lote.getTamanho() < lote.getCapacidade() && entrada.proximoRegistro()){
+            registros++;
+            try {
+                interpretar(entrada, lote);
+            } catch (ExcecaoFormato e){
+                invalidos++;
+                System.err.println("Registro ignorado: " + e.getMessage());
+            }
+        }
+    }
+
+    // formato: tipo;nome;renda anual;gastos com saúde (f) ou número de funcionários (j)
+    private static void interpretar(LeitorRegistros entrada, ContribuintesColunares lote){
+        char tipo = entrada.lerCaractere();
+        if (tipo != 'f' && tipo != 'j'){
+            throw entrada.erroNoCampo("tipo deve ser f ou j");
+        }
+        String nome = entrada.lerTexto();
+        double rendaAnual = entrada.lerDouble();
+        if (tipo == 'f'){
+            double gastosSaude = entrada.lerDouble();
+            entrada.fimRegistro();
+            lote.adicionarFisica(nome, rendaAnual, gastosSaude);
+        } else {
+            int funcionarios = entrada.lerInt();
+            entrada.fimRegistro();
+            lote.adicionarJuridica(nome, rendaAnual, funcionarios);
+        }
+    }
+
+    private void escrever(ContribuintesColunares lote, double[] impostos, Writer saida) throws IOException{
+        for (int i = 0; i < lote.getTamanho(); i++){
+            totalImpostos += impostos[i]; // soma na ordem dos registros, como no modo interativo
+            saida.write(lote.getNome(i));
+            saida.write(": R$ ");
+            escreverValor(saida, impostos[i]);
+            saida.write('\n');
+        }
+    }
+
+    // equivalente a %.2f, sem criar Strings por registro
+    void escreverValor(Writer saida, double valor) throws IOException{
+        if (Double.isNaN(valor) || Double.isInfinite(valor) || Math.abs(valor) >= 1e15){
+            saida.write(String.format("%.2f", valor));
+            return;
+        }
+        double escalado = Math.abs(valor) * 100;
+        long centavos = Math.round(escalado);
+        // empates ficam com o arredondamento decimal do %.2f; a partir de 1e7 o produto por 100 já não é
+        // exato o bastante para reconhecê-los, então esses valores sempre vão pelo caminho decimal
+        if (Math.abs(valor) >= 1e7 || Math.abs(escalado - Math.floor(escalado) - 0.5) < 1e-6){
+            centavos = BigDecimal.valueOf(Math.abs(valor)).setScale(2, RoundingMode.HALF_UP).unscaledValue().longValue();
+        }
+        if (valor < 0 && centavos > 0){
+            saida.write('-');
+        }
+        long inteiro = centavos / 100;
+        long divisor = 1;
+        while (inteiro / divisor >= 10){
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10){
+            saida.write((char) ('0' + inteiro / divisor % 10));
+        }
+        saida.write(separadorDecimal);
+        saida.write((char) ('0' + centavos % 100 / 10));
+        saida.write((char) ('0' + centavos % 10));
+    }
+}
@@ -0,0 +1,91 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.util.stream.IntStream;
+
+// Agregações por tipo de contribuinte, faixa de renda da pessoa física e porte da pessoa jurídica,
+// feitas numa única passada. Cada thread agrega um pedaço num relatório próprio e os parciais são
+// mesclados no fim, então a memória não cresce com a entrada.
+public class RelatorioImpostos{
+    private static final int BLOCO_PARALELO = 1 << 13;
+    private static final int[] LIMITES_FUNCIONARIOS = {10, 50, 250};
+    private static final String[] GRUPOS = {
+        "Todos",
+        "Pessoa física",
+        "  renda abaixo de 20000",
+        "  renda a partir de 20000",
+        "Pessoa jurídica",
+        "  até 10 funcionários",
+        "  11 a 50 funcionários",
+        "  51 a 250 funcionários",
+        "  mais de 250 funcionários"
+    };
+    private static final int TODOS = 0, FISICA = 1, FISICA_FAIXA = 2, JURIDICA = 4, JURIDICA_PORTE = 5;
+
+    private final Agregado[] grupos = new Agregado[GRUPOS.length];
+
+    public RelatorioImpostos(){
+        for (int i = 0; i < grupos.length; i++){
+            grupos[i] = new Agregado();
+        }
+    }
+
+    public void adicionar(ContribuintesColunares lote, double[] impostos, int de, int ate){
+        for (int i = de; i < ate; i++){
+            double imposto = impostos[i];
+            grupos[TODOS].adicionar(imposto);
+            if (lote.isJuridica(i)){
+                grupos[JURIDICA].adicionar(imposto);
+                grupos[JURIDICA_PORTE + porte(lote.getFuncionarios(i))].adicionar(imposto);
+            } else {
+                grupos[FISICA].adicionar(imposto);
+                grupos[FISICA_FAIXA + (lote.getRendaAnual(i) < 20000.0 ? 0 : 1)].adicionar(imposto);
+            }
+        }
+    }
+
+    // agrega um lote inteiro em paralelo, por blocos, mesclando os parciais
+    public static RelatorioImpostos agregar(ContribuintesColunares lote, double[] impostos){
+        int tamanho = lote.getTamanho();
+        int blocos = (tamanho + BLOCO_PARALELO - 1) / BLOCO_PARALELO;
+        return IntStream.range(0, blocos).parallel()
+                .mapToObj(b -> {
+                    RelatorioImpostos parcial = new RelatorioImpostos();
+                    parcial.adicionar(lote, impostos, b * BLOCO_PARALELO, Math.min(tamanho, (b + 1) * BLOCO_PARALELO));
+                    return parcial;
+                })
+                .reduce(RelatorioImpostos::mesclar)
+                .orElseGet(RelatorioImpostos::new);
+    }
+
+    public RelatorioImpostos mesclar(RelatorioImpostos outro){
+        for (int i = 0; i < grupos.length; i++){
+            grupos[i].mesclar(outro.grupos[i]);
+        }
+        return this;
+    }
+
+    private static int porte(int funcionarios){
+        int porte = 0;
+        while (porte < LIMITES_FUNCIONARIOS.length && funcionarios > LIMITES_FUNCIONARIOS[porte]){
+            porte++;
+        }
+        return porte;
+    }
+
+    public Agregado getGrupo(int i){
+        return grupos[i];
+    }
+
+    public void escrever(Writer saida) throws IOException{
+        saida.write(String.format("%nRELATÓRIO DE IMPOSTOS (percentis com erro relativo de até %.0f%%):%n",
+                Agregado.PRECISAO_QUANTIS * 100));
+        saida.write(String.format("%-27s %10s %18s %12s %12s %12s %12s %12s%n",
+                "GRUPO", "QTD", "TOTAL", "MÉDIA", "P50", "P90", "P99", "MÁXIMO"));
+        for (int i = 0; i < grupos.length; i++){
+            Agregado grupo = grupos[i];
+            saida.write(String.format("%-27s %10d %18.2f %12.2f %12.2f %12.2f %12.2f %12.2f%n",
+                    GRUPOS[i], grupo.getContagem(), grupo.getTotal(), grupo.getMedia(),
+                    grupo.quantil(0.50), grupo.quantil(0.90), grupo.quantil(0.99), grupo.getMaximo()));
+        }
+    }
+}
@@ -0,0 +1,37 @@
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+// Fica fora de src porque precisa do módulo incubado. Para usar:
+//   javac --add-modules jdk.incubator.vector -cp bin -d bin vetorial/KernelVetorial.java
+//   java --add-modules jdk.incubator.vector -cp bin CalculadoraImpostos entrada.txt
+class KernelVetorial implements KernelImposto{
+    private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+    // mesmo número de lanes que DOUBLES, para a máscara de funcionários poder ser convertida
+    private static final VectorSpecies<Integer> INTS =
+            IntVector.SPECIES_PREFERRED.withShape(VectorShape.forBitSize(DOUBLES.vectorBitSize() / 2));
+
+    @Override
+    public void calcular(boolean[] juridica, double[] rendaAnual, double[] gastosSaude, int[] funcionarios,
+            double[] impostos, int de, int ate){
+        DoubleVector faixaAlta = DoubleVector.broadcast(DOUBLES, 0.25);
+        DoubleVector poucosFuncionarios = DoubleVector.broadcast(DOUBLES, 0.16);
+        int i = de;
+        for (int limite = de + DOUBLES.loopBound(ate - de); i < limite; i += DOUBLES.length()){
+            DoubleVector renda = DoubleVector.fromArray(DOUBLES, rendaAnual, i);
+            DoubleVector fisica = renda.mul(faixaAlta.blend(0.15, renda.compare(VectorOperators.LT, 20000.0)))
+                    .sub(DoubleVector.fromArray(DOUBLES, gastosSaude, i).mul(0.50))
+                    .max(0.0);
+            VectorMask<Double> muitos = IntVector.fromArray(INTS, funcionarios, i)
+                    .compare(VectorOperators.GT, 10).cast(DOUBLES);
+            DoubleVector pj = renda.mul(poucosFuncionarios.blend(0.14, muitos));
+            fisica.blend(pj, VectorMask.fromArray(DOUBLES, juridica, i)).intoArray(impostos, i);
+        }
+        for (; i < ate; i++){
+            impostos[i] = KernelEscalar.imposto(juridica[i], rendaAnual[i], gastosSaude[i], funcionarios[i]);
+        }
+    }
+}
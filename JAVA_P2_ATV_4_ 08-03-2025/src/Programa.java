@@ -1,9 +1,17 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Formatter;
 import java.util.Locale;
 import java.util.Scanner;
 
 public class Programa{
-    public static void main(String[] args){
+    public static void main(String[] args) throws IOException{
         Locale.setDefault(Locale.US);
+        if (args.length > 0){
+            processarArquivo(args[0]);
+            return;
+        }
         Scanner sc = new Scanner(System.in);
         
         try{
@@ -37,4 +45,30 @@ public class Programa{
         
         sc.close();
     }
+
+    // formato: número;titular;saldo inicial;limite de saque;valor do saque
+    private static void processarArquivo(String entrada) throws IOException{
+        try (LeitorRegistros leitor = entrada.equals("-")
+                     ? LeitorRegistros.ler(System.in)
+                     : LeitorRegistros.abrir(Paths.get(entrada));
+             Formatter saida = new Formatter(new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16))){
+            while (leitor.proximoRegistro()){
+                try{
+                    Conta conta = new Conta(leitor.lerInt(), leitor.lerTexto(), leitor.lerDouble(), leitor.lerDouble());
+                    double valor = leitor.lerDouble();
+                    leitor.fimRegistro();
+                    try{
+                        conta.sacar(valor);
+                        saida.format("Conta %d: Novo saldo: %.2f%n", conta.getNumero(), conta.getSaldo());
+                    }
+                    catch (ExcecaoDominio e){
+                        saida.format("Conta %d: Erro de saque: %s%n", conta.getNumero(), e.getMessage());
+                    }
+                }
+                catch (ExcecaoFormato e){
+                    System.err.println("Registro ignorado: " + e.getMessage());
+                }
+            }
+        }
+    }
 }
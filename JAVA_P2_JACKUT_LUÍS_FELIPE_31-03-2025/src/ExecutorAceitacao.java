@@ -0,0 +1,159 @@
+import easyaccept.QuitSignalException;
+import easyaccept.script.Script;
+import entidades.ArmazenamentoMemoria;
+import entidades.Facade;
+import entidades.MotorArmazenamento;
+import entidades.Sistema;
+import util.VariablesImpl;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Stream;
+
+/**
+ * Executa os scripts de aceitao do EasyAccept em paralelo, com cada histria isolada das demais.
+ *
+ * <p>Os scripts so agrupados por histria pelo prefixo do nome ({@code us1_1.txt} e {@code us1_2.txt}
+ * formam a histria {@code us1}). Cada histria tem o seu prprio armazenamento e as suas prprias
+ * variveis do EasyAccept, e seus scripts rodam em ordem; histrias diferentes rodam em paralelo.
+ * Cada script recebe um {@link Sistema} novo, carregado do armazenamento da histria, de modo que o
+ * {@code encerrarSistema} de um script e a carga no seguinte fazem a mesma ida e volta de
+ * persistncia que um reincio do programa.</p>
+ *
+ * <p>Por padro o armazenamento fica em memria ({@link ArmazenamentoMemoria}); com {@code --disco},
+ * cada histria grava em um diretrio temporrio prprio, removido ao final, no armazenamento escolhido
+ * pela propriedade {@value MotorArmazenamento#PROPRIEDADE} (ver {@link MotorArmazenamento#configurado}).
+ * Assim os mesmos scripts verificam cada um dos armazenamentos.</p>
+ *
+ * <p>Uso: {@code java ExecutorAceitacao [--disco] [--threads=N] [scripts...]}. Sem scripts, executa os
+ * mesmos de {@code Main}. Os scripts usam ISO-8859-1: execute com {@code -Dfile.encoding=ISO-8859-1}.</p>
+ */
+public class ExecutorAceitacao {
+    private static final String[] SCRIPTS = {
+            "tests/us1_1.txt", "tests/us1_2.txt",
+            "tests/us2_1.txt", "tests/us2_2.txt",
+            "tests/us3_1.txt", "tests/us3_2.txt",
+            "tests/us4_1.txt", "tests/us4_2.txt",
+    };
+
+    private static final class ResultadoScript {
+        final String arquivo;
+        final int testes;
+        final int erros;
+        final String mensagens;
+        final long nanos;
+
+        ResultadoScript(String arquivo, int testes, int erros, String mensagens, long nanos) {
+            this.arquivo = arquivo;
+            this.testes = testes;
+            this.erros = erros;
+            this.mensagens = mensagens;
+            this.nanos = nanos;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        boolean disco = false;
+        int threads = Runtime.getRuntime().availableProcessors();
+        List<String> scripts = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.equals("--disco")) {
+                disco = true;
+            } else if (arg.startsWith("--threads=")) {
+                threads = Integer.parseInt(arg.substring("--threads=".length()));
+            } else {
+                scripts.add(arg);
+            }
+        }
+        if (scripts.isEmpty()) {
+            scripts.addAll(Arrays.asList(SCRIPTS));
+        }
+
+        Map<String, List<String>> historias = new LinkedHashMap<>();
+        for (String script : scripts) {
+            historias.computeIfAbsent(historia(script), h -> new ArrayList<>()).add(script);
+        }
+
+        long inicio = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, historias.size())));
+        List<Future<List<ResultadoScript>>> pendentes = new ArrayList<>();
+        for (Map.Entry<String, List<String>> historia : historias.entrySet()) {
+            boolean emDisco = disco;
+            pendentes.add(executor.submit(() -> executarHistoria(historia.getKey(), historia.getValue(), emDisco)));
+        }
+        executor.shutdown();
+
+        int testes = 0;
+        int erros = 0;
+        for (Future<List<ResultadoScript>> pendente : pendentes) {
+            for (ResultadoScript resultado : pendente.get()) {
+                testes += resultado.testes;
+                erros += resultado.erros;
+                System.out.printf("%-20s %4d testes, %2d erros  %8.1f ms%n", resultado.arquivo,
+                        resultado.testes, resultado.erros, resultado.nanos / 1e6);
+                if (!resultado.mensagens.isEmpty()) {
+                    System.out.println(resultado.mensagens);
+                }
+            }
+        }
+        String modo = disco ? "disco, " + System.getProperty(MotorArmazenamento.PROPRIEDADE, "serializado") : "memria";
+        System.out.printf("Total: %d testes, %d erros, %d histrias em %.1f ms (%s)%n", testes, erros,
+                historias.size(), (System.nanoTime() - inicio) / 1e6, modo);
+        System.exit(erros == 0 ? 0 : 1);
+    }
+
+    private static String historia(String script) {
+        String nome = Path.of(script).getFileName().toString();
+        int separador = nome.lastIndexOf('_');
+        return separador > 0 ? nome.substring(0, separador) : nome;
+    }
+
+    private static List<ResultadoScript> executarHistoria(String historia, List<String> scripts, boolean disco)
+            throws IOException {
+        Path diretorio = disco ? Files.createTempDirectory("jackut-" + historia) : null;
+        MotorArmazenamento armazenamento = disco
+                ? MotorArmazenamento.configurado(diretorio.resolve("dados_jackut.ser").toString())
+                : new ArmazenamentoMemoria();
+        VariablesImpl variaveis = new VariablesImpl();
+        List<ResultadoScript> resultados = new ArrayList<>();
+        try {
+            for (String arquivo : scripts) {
+                resultados.add(executarScript(arquivo, armazenamento, variaveis));
+            }
+        } finally {
+            if (diretorio != null) {
+                apagar(diretorio);
+            }
+        }
+        return resultados;
+    }
+
+    private static ResultadoScript executarScript(String arquivo, MotorArmazenamento armazenamento,
+                                                  VariablesImpl variaveis) {
+        long inicio = System.nanoTime();
+        Script script = null;
+        try {
+            Facade facade = new Facade(new Sistema(armazenamento));
+            script = new Script(arquivo, facade, variaveis);
+            script.executeAndCheck();
+        } catch (Exception e) {
+            // o comando quit encerra o script normalmente, embora o EasyAccept o sinalize por exceo
+            if (!(e instanceof QuitSignalException)) {
+                return new ResultadoScript(arquivo, script == null ? 0 : script.numberOfTests(), 1,
+                        "Falha ao executar " + arquivo + ": " + e, System.nanoTime() - inicio);
+            }
+        }
+        int erros = script.numberOfErrors();
+        return new ResultadoScript(arquivo, script.numberOfTests(), erros,
+                erros == 0 ? "" : script.allErrorMessages(), System.nanoTime() - inicio);
+    }
+
+    private static void apagar(Path diretorio) throws IOException {
+        try (Stream<Path> caminhos = Files.walk(diretorio)) {
+            caminhos.sorted(Comparator.reverseOrder()).forEach(caminho -> caminho.toFile().delete());
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package benchmark;
+
+import entidades.*;
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.stream.Stream;
+
+/**
+ * Verifica e mede todos os armazenamentos de {@link MotorArmazenamento} com o mesmo roteiro.
+ *
+ * <p>A verificao passa cada armazenamento pelas mesmas situaes: carga sem dados, ida e volta
+ * por {@code encerrarSistema}, salvamentos sucessivos, queda sem {@code encerrarSistema} (que s o
+ * dirio deve sobreviver) e {@code zerarSistema}. Os usurios recarregados so comparados pela sua
+ * exportao em JSONL, que inclui perfis, amizades, convites e recados. Os armazenamentos durveis
+ * tambm passam por um {@link SistemaParticionado}, cujas parties guardam amizades com usurios
+ * de outras parties e precisam recarreg-las aps reiniciar e aps uma queda.</p>
+ *
+ * <p>A medio importa uma rede gerada por {@link GeradorDados}, aplica uma sequncia de envios e
+ * leituras de recados e mede a carga sem {@code encerrarSistema}, o salvamento e a carga seguinte.</p>
+ *
+ * <p>Uso: {@code java benchmark.BenchmarkArmazenamento [usuarios] [mutacoes]}. Os dados ficam em um
+ * diretrio temporrio, removido ao final. Termina com cdigo 1 se alguma verificao falhar.</p>
+ */
+public class BenchmarkArmazenamento {
+    private static final String[] TIPOS = {"memoria", "serializado", "segmentado", "diario"};
+    private static int falhas;
+
+    public static void main(String[] args) throws IOException {
+        int usuarios = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int mutacoes = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+
+        System.out.println("Verificao");
+        for (String tipo : TIPOS) {
+            Path diretorio = Files.createTempDirectory("jackut-" + tipo);
+            try {
+                verificar(tipo, diretorio.resolve("dados_jackut.ser").toString());
+                if (!tipo.equals("memoria")) {
+                    verificarParticionado(tipo, Files.createDirectory(diretorio.resolve("particoes")).toFile());
+                }
+            } finally {
+                apagar(diretorio);
+            }
+        }
+
+        GeradorDados gerador = new GeradorDados(usuarios, 42);
+        gerador.gerar();
+        StringWriter carga = new StringWriter();
+        gerador.gravarCarga(carga, CargaEmMassa.Formato.JSONL);
+
+        System.out.printf("%nMedio: %,d usurios, %,d mutaes%n", usuarios, mutacoes);
+        System.out.printf("%-12s %12s %14s %14s %12s %12s %12s%n", "armazenam.", "importar ms", "mutaes/s",
+                "sem encerrar", "salvar ms", "carregar ms", "disco KiB");
+        for (String tipo : TIPOS) {
+            Path diretorio = Files.createTempDirectory("jackut-" + tipo);
+            try {
+                medir(tipo, diretorio, carga.toString(), usuarios, mutacoes);
+            } finally {
+                apagar(diretorio);
+            }
+        }
+        System.exit(falhas == 0 ? 0 : 1);
+    }
+
+    // Verificao
+
+    private static void verificar(String tipo, String arquivo) throws IOException {
+        MotorArmazenamento motor = MotorArmazenamento.criar(tipo, arquivo);
+
+        Sistema sistema = new Sistema(motor);
+        conferir(tipo, "carga sem dados", sistema.getVersaoAtual().isEmpty());
+
+        Facade facade = new Facade(sistema);
+        popular(facade);
+        String esperado = exportar(sistema);
+        facade.encerrarSistema();
+        sistema = new Sistema(motor);
+        conferir(tipo, "ida e volta", esperado.equals(exportar(sistema)));
+
+        facade = new Facade(sistema);
+        String sessao = facade.abrirSessao("ana", "senha");
+        facade.lerRecado(sessao);
+        facade.editarPerfil(sessao, "cidade", "Macei");
+        facade.encerrarSistema();
+        facade.enviarRecado(sessao, "bia", "depois do primeiro salvamento");
+        esperado = exportar(sistema);
+        facade.encerrarSistema();
+        sistema = new Sistema(motor);
+        conferir(tipo, "salvamentos sucessivos", esperado.equals(exportar(sistema)));
+
+        facade = new Facade(sistema);
+        sessao = facade.abrirSessao("bia", "senha");
+        facade.enviarRecado(sessao, "ana", "antes da queda");
+        String aposQueda = exportar(sistema);
+        boolean sobreviveu = aposQueda.equals(exportar(new Sistema(motor)));
+        conferir(tipo, "queda sem encerrar " + (sobreviveu ? "(preservada)" : "(perdida)"),
+                sobreviveu == tipo.equals("diario"));
+
+        facade = new Facade(new Sistema(motor));
+        facade.zerarSistema();
+        conferir(tipo, "zerar", new Sistema(motor).getVersaoAtual().isEmpty());
+    }
+
+    private static void verificarParticionado(String tipo, File diretorio) {
+        String anterior = System.getProperty(MotorArmazenamento.PROPRIEDADE);
+        System.setProperty(MotorArmazenamento.PROPRIEDADE, tipo);
+        try {
+            String[] logins = {"ana", "bia", "caio", "davi", "eva", "fabio"};
+            SistemaParticionado sistema = new SistemaParticionado(4, diretorio);
+            String[] sessoes = new String[logins.length];
+            for (int i = 0; i < logins.length; i++) {
+                sistema.criarUsuario(logins[i], "senha", logins[i]);
+                sessoes[i] = sistema.abrirSessao(logins[i], "senha");
+            }
+            for (int i = 0; i < logins.length; i++) { // anel de amizades, quase todas entre parties
+                String proximo = logins[(i + 1) % logins.length];
+                sistema.adicionarAmigo(sessoes[i], proximo);
+                sistema.adicionarAmigo(sistema.abrirSessao(proximo, "senha"), logins[i]);
+            }
+            sistema.adicionarAmigo(sessoes[0], "davi");
+            sistema.enviarRecado(sessoes[1], "ana", "oi");
+            String esperado = amizades(sistema, logins);
+            sistema.fechar();
+
+            sistema = new SistemaParticionado(4, diretorio);
+            conferir(tipo, "particionado: ida e volta", esperado.equals(amizades(sistema, logins))
+                    && "oi".equals(sistema.lerRecado(sistema.abrirSessao("ana", "senha"))));
+
+            sistema.adicionarAmigo(sistema.abrirSessao("davi", "senha"), "ana");
+            sistema.adicionarAmigo(sistema.abrirSessao("bia", "senha"), "eva");
+            esperado = amizades(sistema, logins);
+            boolean sobreviveu = esperado.equals(amizades(new SistemaParticionado(4, diretorio), logins));
+            conferir(tipo, "particionado: queda " + (sobreviveu ? "(preservada)" : "(perdida)"),
+                    sobreviveu == tipo.equals("diario"));
+            sistema.zerarSistema();
+            sistema.fechar();
+        } finally {
+            if (anterior == null) {
+                System.clearProperty(MotorArmazenamento.PROPRIEDADE);
+            } else {
+                System.setProperty(MotorArmazenamento.PROPRIEDADE, anterior);
+            }
+        }
+    }
+
+    private static String amizades(SistemaParticionado sistema, String[] logins) {
+        StringBuilder retrato = new StringBuilder();
+        for (String login : logins) {
+            retrato.append(login).append('=').append(sistema.getAmigos(login)).append('\n');
+        }
+        return retrato.toString();
+    }
+
+    private static void popular(Facade facade) {
+        facade.criarUsuario("ana", "senha", "Ana");
+        facade.criarUsuario("bia", "senha", "Bia");
+        facade.criarUsuario("caio", "senha", "Caio");
+        String ana = facade.abrirSessao("ana", "senha");
+        String bia = facade.abrirSessao("bia", "senha");
+        String caio = facade.abrirSessao("caio", "senha");
+        facade.editarPerfil(ana, "descricao", "ao, corao");
+        facade.editarPerfil(bia, "cidade", "Recife");
+        facade.adicionarAmigo(ana, "bia");
+        facade.adicionarAmigo(bia, "ana");
+        facade.adicionarAmigo(caio, "ana");
+        facade.enviarRecado(bia, "ana", "oi");
+        facade.enviarRecado(caio, "ana", "ol");
+        facade.enviarRecado(ana, "caio", "tudo bem?");
+        facade.lerRecado(caio);
+    }
+
+    private static void conferir(String tipo, String caso, boolean ok) {
+        System.out.printf("%-12s %-36s %s%n", tipo, caso, ok ? "ok" : "FALHOU");
+        if (!ok) {
+            falhas++;
+        }
+    }
+
+    private static String exportar(Sistema sistema) throws IOException {
+        StringWriter saida = new StringWriter();
+        CargaEmMassa.exportar(sistema.getVersaoAtual(), saida, CargaEmMassa.Formato.JSONL);
+        String[] linhas = saida.toString().split("\n");
+        Arrays.sort(linhas); // a ordem dos usurios na exportao depende do mapa
+        return String.join("\n", linhas);
+    }
+
+    // Medio
+
+    private static void medir(String tipo, Path diretorio, String carga, int usuarios, int mutacoes)
+            throws IOException {
+        MotorArmazenamento motor = MotorArmazenamento.criar(tipo, diretorio.resolve("dados_jackut.ser").toString());
+        Sistema sistema = new Sistema(motor);
+
+        long inicio = System.nanoTime();
+        CargaEmMassa.importar(sistema, new StringReader(carga), CargaEmMassa.Formato.JSONL);
+        long importar = System.nanoTime() - inicio;
+
+        SplittableRandom aleatorio = new SplittableRandom(7);
+        inicio = System.nanoTime();
+        for (int i = 0; i < mutacoes; i++) {
+            String login = GeradorDados.login(aleatorio.nextInt(usuarios));
+            if ((i & 1) == 0) {
+                sistema.registrar(Mutacao.recado(login, GeradorDados.login(aleatorio.nextInt(usuarios)), "recado " + i));
+            } else {
+                sistema.registrar(Mutacao.lerRecado(login));
+            }
+        }
+        double porSegundo = mutacoes * 1e9 / (System.nanoTime() - inicio);
+
+        int recuperados = new Sistema(motor).getVersaoAtual().size();
+
+        inicio = System.nanoTime();
+        sistema.encerrarSistema();
+        long salvar = System.nanoTime() - inicio;
+
+        inicio = System.nanoTime();
+        int carregados = new Sistema(motor).getVersaoAtual().size();
+        long carregar = System.nanoTime() - inicio;
+        if (carregados != usuarios) {
+            conferir(tipo, "carga aps salvar (" + carregados + " usurios)", false);
+        }
+
+        System.out.printf("%-12s %,12.0f %,14.0f %14s %,12.0f %,12.0f %12s%n", tipo, importar / 1e6, porSegundo,
+                recuperados + " usu.", salvar / 1e6, carregar / 1e6,
+                tipo.equals("memoria") ? "-" : String.format("%,d", tamanho(diretorio) / 1024));
+    }
+
+    private static long tamanho(Path diretorio) throws IOException {
+        try (Stream<Path> arquivos = Files.list(diretorio)) {
+            return arquivos.mapToLong(arquivo -> arquivo.toFile().length()).sum();
+        }
+    }
+
+    private static void apagar(Path diretorio) throws IOException {
+        try (Stream<Path> arquivos = Files.walk(diretorio)) {
+            arquivos.sorted(Comparator.reverseOrder()).forEach(arquivo -> arquivo.toFile().delete());
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package benchmark;
+
+import entidades.ArmazenamentoMemoria;
+import entidades.Facade;
+import entidades.Sistema;
+import entidades.exceptions.SemRecadosException;
+
+/**
+ * Compara o custo dos caminhos de erro esperados: a exceo de domnio com pilha completa
+ * traduzida para uma segunda IllegalArgumentException (comportamento anterior) contra a
+ * instncia compartilhada sem pilha, lanada diretamente pela Facade.
+ *
+ * <p>Uso: {@code java benchmark.BenchmarkExcecoes [segundosPorRodada]}. No grava dados em
+ * disco: os usurios criados existem apenas na memria desta execuo.</p>
+ */
+public class BenchmarkExcecoes {
+    private static final int RODADAS = 5;
+    private static volatile Object sumidouro;
+
+    public static void main(String[] args) {
+        double segundos = args.length > 0 ? Double.parseDouble(args[0]) : 1.0;
+        long duracao = (long) (segundos * 1_000_000_000L);
+
+        Facade facade = new Facade(new Sistema(new ArmazenamentoMemoria()));
+        String login = "bench-" + System.nanoTime();
+        facade.criarUsuario(login, "senha", "Benchmark");
+        String sessao = facade.abrirSessao(login, "senha");
+
+        System.out.printf("%-44s %15s%n", "cenrio", "operaes/s");
+        for (int rodada = 1; rodada <= RODADAS; rodada++) {
+            String sufixo = rodada == 1 ? " (aquecimento)" : "";
+            imprimir("exceo com pilha + traduo" + sufixo, medir(duracao, BenchmarkExcecoes::comTraducao));
+            imprimir("instncia sem pilha" + sufixo, medir(duracao, BenchmarkExcecoes::semPilha));
+            imprimir("Facade.lerRecado sem recados" + sufixo, medir(duracao, () -> lerRecado(facade, sessao)));
+        }
+    }
+
+    private static void comTraducao() {
+        try {
+            try {
+                throw new SemRecadosException();
+            } catch (SemRecadosException e) {
+                throw new IllegalArgumentException("No h recados.");
+            }
+        } catch (IllegalArgumentException e) {
+            sumidouro = e.getMessage();
+        }
+    }
+
+    private static void semPilha() {
+        try {
+            throw SemRecadosException.INSTANCIA;
+        } catch (IllegalArgumentException e) {
+            sumidouro = e.getMessage();
+        }
+    }
+
+    private static void lerRecado(Facade facade, String sessao) {
+        try {
+            sumidouro = facade.lerRecado(sessao);
+        } catch (IllegalArgumentException e) {
+            sumidouro = e.getMessage();
+        }
+    }
+
+    private static double medir(long duracao, Runnable operacao) {
+        long inicio = System.nanoTime();
+        long fim = inicio + duracao;
+        long operacoes = 0;
+        long agora;
+        do {
+            for (int i = 0; i < 1000; i++) {
+                operacao.run();
+            }
+            operacoes += 1000;
+            agora = System.nanoTime();
+        } while (agora < fim);
+        return operacoes * 1e9 / (agora - inicio);
+    }
+
+    private static void imprimir(String cenario, double porSegundo) {
+        System.out.printf("%-44s %,15.0f%n", cenario, porSegundo);
+    }
+}
@@ -0,0 +1,575 @@
+package benchmark;
+
+import entidades.CargaEmMassa;
+import entidades.Persistencia;
+import entidades.Usuario;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Gera redes sociais sintticas para medir o Jackut em escala: persistncia, amizades e filas de
+ * recados com volumes realistas.
+ *
+ * <p>A gerao  determinstica: a mesma semente e os mesmos parmetros produzem sempre os mesmos
+ * dados, em qualquer um dos formatos de sada. Os graus de amizade seguem uma lei de potncia
+ * (Pareto com o expoente informado, limitado a {@code grau-maximo}) e os pares so sorteados pelo
+ * modelo de Chung-Lu, em que a chance de um usurio ser escolhido  proporcional ao seu grau.
+ * Uma frao das relaes vira convite pendente. Cidade, idade e profisso seguem distribuies
+ * enviesadas (Zipf e normal) e o tamanho da fila de recados segue uma distribuio geomtrica;
+ * os remetentes dos recados tambm so sorteados pelo grau, nunca o prprio destinatrio.</p>
+ *
+ * <p>Uso: {@code java benchmark.GeradorDados --saida=arquivo [--usuarios=100000] [--semente=42]
+ * [--formato=snapshot|jsonl|csv] [--grau-medio=10] [--expoente=2.5] [--grau-maximo=N]
+ * [--convites=0.1] [--recados-medio=2]}. O formato {@code snapshot} grava o arquivo de
+ * {@link Persistencia}; {@code jsonl} e {@code csv} gravam o formato de {@link CargaEmMassa}.
+ * Sem {@code --formato}, ele  deduzido pela extenso ({@code .ser} para snapshot). Todos os
+ * usurios gerados tm a senha {@value #SENHA}.</p>
+ *
+ * <p>O snapshot monta todos os usurios em memria antes de gravar (cerca de 1 GB para um milho de
+ * usurios com os parmetros padro); nesse caso convm iniciar a JVM com {@code -Xms} alto, para
+ * evitar coletas completas enquanto o heap cresce. Os formatos de carga so gravados em fluxo.</p>
+ */
+public class GeradorDados {
+    public static final String SENHA = "senha";
+
+    private static final String[] NOMES = {
+            "Ana", "Maria", "Joo", "Jos", "Pedro", "Paula", "Lucas", "Lusa", "Carlos", "Fernanda",
+            "Rafael", "Juliana", "Bruno", "Camila", "Felipe", "Beatriz", "Gabriel", "Larissa", "Tiago", "Renata"
+    };
+    private static final String[] SOBRENOMES = {
+            "Silva", "Santos", "Oliveira", "Souza", "Lima", "Pereira", "Costa", "Rodrigues", "Almeida", "Nascimento",
+            "Carvalho", "Arajo", "Ribeiro", "Gomes", "Barbosa", "Cavalcanti", "Melo", "Rocha", "Dias", "Teixeira"
+    };
+    private static final String[] CIDADES = {
+            "So Paulo", "Rio de Janeiro", "Belo Horizonte", "Salvador", "Fortaleza", "Recife", "Braslia",
+            "Curitiba", "Manaus", "Porto Alegre", "Belm", "Goinia", "Macei", "Campina Grande", "Natal",
+            "Joo Pessoa", "Teresina", "Florianpolis", "Vitria", "Aracaju"
+    };
+    private static final String[] PROFISSOES = {
+            "estudante", "professor", "engenheiro", "programador", "mdico", "advogado", "vendedor",
+            "enfermeiro", "designer", "contador", "motorista", "jornalista", "arquiteto", "msico", "cozinheiro"
+    };
+    private static final String[] PALAVRAS = {
+            "oi", "tudo", "bem", "com", "voc", "saudade", "vamos", "sair", "hoje", "amanh", "festa", "foto",
+            "parabns", "obrigado", "abrao", "beijo", "legal", "muito", "bom", "dia", "noite", "semana",
+            "aula", "trabalho", "jogo", "msica", "filme", "praia", "viagem", "frias", "comunidade", "scrap"
+    };
+
+    private static final double CHANCE_CIDADE = 0.8;
+    private static final double CHANCE_IDADE = 0.6;
+    private static final double CHANCE_PROFISSAO = 0.5;
+
+    private final int usuarios;
+    private final long semente;
+    private double grauMedio = 10;
+    private double expoente = 2.5;
+    private int grauMaximo = -1;
+    private double fracaoConvites = 0.1;
+    private double recadosMedio = 2;
+
+    // Resultado da gerao, indexado pelo nmero do usurio
+    private byte[] nome;
+    private byte[] sobrenome;
+    private byte[] cidade;
+    private byte[] idade;
+    private byte[] profissao;
+    private int[] recados;
+    private long[] acumulado; // soma dos graus-alvo, para sorteio proporcional ao grau
+    private long[] arestas; // (menor << 32) | maior, ordenadas e sem repetio
+    private int quantidadeArestas;
+    private byte[] tipoAresta; // AMIZADE, ou convite enviado por um dos lados
+    private long sementeRecados;
+
+    private static final byte AMIZADE = 0;
+    private static final byte CONVITE_DO_MENOR = 1;
+    private static final byte CONVITE_DO_MAIOR = 2;
+    private static final byte CONVITE_ENVIADO = 1; // relao vista por um dos lados, em montarUsuarios
+    private static final byte CONVITE_RECEBIDO = 2;
+
+    /**
+     * Cria um gerador com os parmetros padro.
+     *
+     * @param usuarios Quantidade de usurios
+     * @param semente Semente do gerador pseudoaleatrio
+     */
+    public GeradorDados(int usuarios, long semente) {
+        if (usuarios < 1) {
+            throw new IllegalArgumentException("Quantidade de usurios deve ser positiva.");
+        }
+        this.usuarios = usuarios;
+        this.semente = semente;
+    }
+
+    /**
+     * Define o grau mdio desejado (padro 10).
+     *
+     * @param grauMedio Quantidade mdia de relaes por usurio
+     */
+    public void setGrauMedio(double grauMedio) {
+        if (!(grauMedio >= 0)) {
+            throw new IllegalArgumentException("Grau mdio invlido: " + grauMedio);
+        }
+        this.grauMedio = grauMedio;
+    }
+
+    /**
+     * Define o expoente da lei de potncia dos graus (padro 2,5; deve ser maior que 2).
+     *
+     * @param expoente Expoente da distribuio de Pareto
+     */
+    public void setExpoente(double expoente) {
+        if (!(expoente > 2)) {
+            throw new IllegalArgumentException("O expoente da lei de potncia deve ser maior que 2.");
+        }
+        this.expoente = expoente;
+    }
+
+    /**
+     * Define o grau mximo (padro: raiz de usuarios * grauMedio, limitado a usuarios - 1).
+     *
+     * @param grauMaximo Grau mximo, ou negativo para o padro
+     */
+    public void setGrauMaximo(int grauMaximo) {
+        this.grauMaximo = grauMaximo;
+    }
+
+    /**
+     * Define a frao das relaes que ficam como convite pendente (padro 0,1).
+     *
+     * @param fracaoConvites Frao entre 0 e 1
+     */
+    public void setFracaoConvites(double fracaoConvites) {
+        if (!(fracaoConvites >= 0 && fracaoConvites <= 1)) {
+            throw new IllegalArgumentException("Frao de convites deve estar entre 0 e 1.");
+        }
+        this.fracaoConvites = fracaoConvites;
+    }
+
+    /**
+     * Define o tamanho mdio da fila de recados (padro 2).
+     *
+     * @param recadosMedio Mdia da distribuio geomtrica
+     */
+    public void setRecadosMedio(double recadosMedio) {
+        if (!(recadosMedio >= 0)) {
+            throw new IllegalArgumentException("Mdia de recados invlida: " + recadosMedio);
+        }
+        this.recadosMedio = recadosMedio;
+    }
+
+    /**
+     * Sorteia perfis, graus, relaes e tamanhos de fila. Precisa ser chamado antes de gravar.
+     */
+    public void gerar() {
+        SplittableRandom raiz = new SplittableRandom(semente);
+        SplittableRandom perfis = raiz.split();
+        SplittableRandom graus = raiz.split();
+        SplittableRandom pares = raiz.split();
+        sementeRecados = raiz.nextLong();
+
+        gerarPerfis(perfis);
+        gerarGraus(graus);
+        gerarArestas(pares);
+    }
+
+    private void gerarPerfis(SplittableRandom aleatorio) {
+        nome = new byte[usuarios];
+        sobrenome = new byte[usuarios];
+        cidade = new byte[usuarios];
+        idade = new byte[usuarios];
+        profissao = new byte[usuarios];
+        recados = new int[usuarios];
+
+        Zipf zipfNomes = new Zipf(NOMES.length, 0.8);
+        Zipf zipfCidades = new Zipf(CIDADES.length, 1.0);
+        Zipf zipfProfissoes = new Zipf(PROFISSOES.length, 1.2);
+        double logFalha = Math.log(recadosMedio / (1 + recadosMedio)); // geomtrica com mdia recadosMedio
+        for (int i = 0; i < usuarios; i++) {
+            nome[i] = (byte) zipfNomes.sortear(aleatorio);
+            sobrenome[i] = (byte) aleatorio.nextInt(SOBRENOMES.length);
+            cidade[i] = (byte) (aleatorio.nextDouble() < CHANCE_CIDADE ? zipfCidades.sortear(aleatorio) : -1);
+            idade[i] = (byte) (aleatorio.nextDouble() < CHANCE_IDADE
+                    ? Math.max(13, Math.min(90, Math.round(30 + 12 * aleatorio.nextGaussian()))) : -1);
+            profissao[i] = (byte) (aleatorio.nextDouble() < CHANCE_PROFISSAO ? zipfProfissoes.sortear(aleatorio) : -1);
+            // com um nico usurio no h quem envie recados, j que ningum envia recados a si mesmo
+            recados[i] = recadosMedio == 0 || usuarios == 1 ? 0 : (int) Math.min(Integer.MAX_VALUE,
+                    Math.floor(Math.log(1 - aleatorio.nextDouble()) / logFalha));
+        }
+    }
+
+    private void gerarGraus(SplittableRandom aleatorio) {
+        int maximo = grauMaximo >= 0 ? grauMaximo : (int) Math.sqrt((double) usuarios * grauMedio);
+        maximo = Math.min(maximo, usuarios - 1);
+        double minimo = grauMedio * (expoente - 2) / (expoente - 1); // mdia de Pareto = minimo (a-1)/(a-2)
+        double inverso = -1 / (expoente - 1);
+
+        acumulado = new long[usuarios + 1];
+        for (int i = 0; i < usuarios; i++) {
+            long grau = Math.min(maximo, Math.round(minimo * Math.pow(1 - aleatorio.nextDouble(), inverso)));
+            acumulado[i + 1] = acumulado[i] + grau;
+        }
+    }
+
+    private void gerarArestas(SplittableRandom aleatorio) {
+        long pontas = acumulado[usuarios];
+        arestas = new long[(int) Math.min(Integer.MAX_VALUE - 8, pontas / 2 + usuarios)];
+        int total = 0;
+        for (int i = 0; i < usuarios && pontas > 0; i++) {
+            long grau = acumulado[i + 1] - acumulado[i];
+            // cada usurio inicia metade das suas relaes; a outra metade vem dos sorteios alheios
+            long iniciadas = grau / 2 + (grau % 2 == 1 && aleatorio.nextBoolean() ? 1 : 0);
+            for (long k = 0; k < iniciadas; k++) {
+                int j = sortearPorGrau(aleatorio);
+                if (j == i) {
+                    continue;
+                }
+                if (total == arestas.length) {
+                    arestas = Arrays.copyOf(arestas, arestas.length + (arestas.length >> 1) + 16);
+                }
+                arestas[total++] = i < j ? ((long) i << 32) | j : ((long) j << 32) | i;
+            }
+        }
+
+        Arrays.sort(arestas, 0, total);
+        int unicas = 0;
+        for (int e = 0; e < total; e++) {
+            if (unicas == 0 || arestas[e] != arestas[unicas - 1]) {
+                arestas[unicas++] = arestas[e];
+            }
+        }
+        quantidadeArestas = unicas;
+
+        tipoAresta = new byte[unicas];
+        for (int e = 0; e < unicas; e++) {
+            if (aleatorio.nextDouble() < fracaoConvites) {
+                tipoAresta[e] = aleatorio.nextBoolean() ? CONVITE_DO_MENOR : CONVITE_DO_MAIOR;
+            }
+        }
+    }
+
+    /**
+     * Sorteia um usurio com probabilidade proporcional ao seu grau-alvo.
+     */
+    private int sortearPorGrau(SplittableRandom aleatorio) {
+        return dono(aleatorio.nextLong(acumulado[usuarios]));
+    }
+
+    /**
+     * Sorteia o remetente de um recado para o usurio {@code destinatario}, com probabilidade
+     * proporcional ao grau-alvo e nunca o prprio destinatrio. Se nenhum outro usurio tiver grau,
+     * o remetente  sorteado uniformemente entre os demais. Exige ao menos dois usurios.
+     */
+    private int sortearRemetente(SplittableRandom aleatorio, int destinatario) {
+        long proprio = acumulado[destinatario + 1] - acumulado[destinatario];
+        long restante = acumulado[usuarios] - proprio;
+        if (restante == 0) {
+            int j = aleatorio.nextInt(usuarios - 1);
+            return j < destinatario ? j : j + 1;
+        }
+        long alvo = aleatorio.nextLong(restante);
+        return dono(alvo < acumulado[destinatario] ? alvo : alvo + proprio); // pula a faixa do destinatrio
+    }
+
+    /**
+     * Obtm o usurio cuja faixa de graus acumulados contm {@code alvo}.
+     */
+    private int dono(long alvo) {
+        int baixo = 0;
+        int alto = usuarios; // menor j com acumulado[j] > alvo est em (baixo, alto]
+        while (alto - baixo > 1) {
+            int meio = (baixo + alto) >>> 1;
+            if (acumulado[meio] > alvo) {
+                alto = meio;
+            } else {
+                baixo = meio;
+            }
+        }
+        return baixo;
+    }
+
+    // Sada
+
+    /**
+     * Monta os usurios gerados, prontos para {@link Persistencia#salvarDados(Map, File)}.
+     *
+     * @return Mapa de usurios por login
+     */
+    public Map<String, Usuario> montarUsuarios() {
+        // Um nico String por login, compartilhado por todas as listas de amigos e recados: alm de
+        // poupar memria, a serializao grava cada login uma s vez e depois apenas referncias.
+        String[] logins = new String[usuarios];
+        for (int i = 0; i < usuarios; i++) {
+            logins[i] = login(i);
+        }
+
+        // Relaes de cada usurio agrupadas, na ordem das arestas, para montar um usurio de cada
+        // vez: as verses intermedirias morrem jovens em vez de se acumularem no heap.
+        int[] inicio = new int[usuarios + 1];
+        for (int e = 0; e < quantidadeArestas; e++) {
+            inicio[(int) (arestas[e] >>> 32) + 1]++;
+            inicio[(int) arestas[e] + 1]++;
+        }
+        for (int i = 0; i < usuarios; i++) {
+            inicio[i + 1] += inicio[i];
+        }
+        int[] parceiro = new int[inicio[usuarios]];
+        byte[] relacao = new byte[inicio[usuarios]]; // AMIZADE, CONVITE_ENVIADO ou CONVITE_RECEBIDO
+        int[] proximo = Arrays.copyOf(inicio, usuarios);
+        for (int e = 0; e < quantidadeArestas; e++) {
+            int menor = (int) (arestas[e] >>> 32);
+            int maior = (int) arestas[e];
+            int deMenor = proximo[menor]++;
+            int deMaior = proximo[maior]++;
+            parceiro[deMenor] = maior;
+            parceiro[deMaior] = menor;
+            relacao[deMenor] = tipoAresta[e] == CONVITE_DO_MENOR ? CONVITE_ENVIADO
+                    : tipoAresta[e] == CONVITE_DO_MAIOR ? CONVITE_RECEBIDO : AMIZADE;
+            relacao[deMaior] = tipoAresta[e] == CONVITE_DO_MAIOR ? CONVITE_ENVIADO
+                    : tipoAresta[e] == CONVITE_DO_MENOR ? CONVITE_RECEBIDO : AMIZADE;
+        }
+
+        Map<String, Usuario> mapa = new HashMap<>(usuarios * 4 / 3 + 1);
+        SplittableRandom aleatorio = new SplittableRandom(sementeRecados);
+        StringBuilder texto = new StringBuilder();
+        for (int i = 0; i < usuarios; i++) {
+            Usuario usuario = new Usuario(logins[i], SENHA, nomeCompleto(i));
+            if (cidade[i] >= 0) {
+                usuario = usuario.comAtributo("cidade", CIDADES[cidade[i]]);
+            }
+            if (idade[i] >= 0) {
+                usuario = usuario.comAtributo("idade", Integer.toString(idade[i]));
+            }
+            if (profissao[i] >= 0) {
+                usuario = usuario.comAtributo("profissao", PROFISSOES[profissao[i]]);
+            }
+            for (int r = inicio[i]; r < inicio[i + 1]; r++) {
+                if (relacao[r] != CONVITE_RECEBIDO) {
+                    usuario = usuario.comAmizade(logins[parceiro[r]], relacao[r] == AMIZADE);
+                }
+            }
+            for (int k = 0; k < recados[i]; k++) {
+                String remetente = logins[sortearRemetente(aleatorio, i)];
+                usuario = usuario.comRecado(remetente, mensagem(aleatorio, texto));
+            }
+            mapa.put(logins[i], usuario);
+        }
+        return mapa;
+    }
+
+    /**
+     * Grava os dados gerados no formato de importao em massa. Usurios e atributos vm antes das
+     * relaes e dos recados, como na exportao do sistema.
+     *
+     * @param saida Fluxo de destino
+     * @param formato Formato dos registros
+     * @return Quantidade de registros gravados
+     * @throws IOException Se o fluxo no puder ser gravado
+     */
+    public long gravarCarga(Writer saida, CargaEmMassa.Formato formato) throws IOException {
+        long registros = 0;
+        for (int i = 0; i < usuarios; i++) {
+            String login = login(i);
+            CargaEmMassa.escreverRegistro(saida, formato, "usuario", login, SENHA, nomeCompleto(i));
+            registros++;
+            if (cidade[i] >= 0) {
+                CargaEmMassa.escreverRegistro(saida, formato, "atributo", login, "cidade", CIDADES[cidade[i]]);
+                registros++;
+            }
+            if (idade[i] >= 0) {
+                CargaEmMassa.escreverRegistro(saida, formato, "atributo", login, "idade", Integer.toString(idade[i]));
+                registros++;
+            }
+            if (profissao[i] >= 0) {
+                CargaEmMassa.escreverRegistro(saida, formato, "atributo", login, "profissao", PROFISSOES[profissao[i]]);
+                registros++;
+            }
+        }
+        for (int e = 0; e < quantidadeArestas; e++) {
+            String menor = login((int) (arestas[e] >>> 32));
+            String maior = login((int) arestas[e]);
+            switch (tipoAresta[e]) {
+                case CONVITE_DO_MENOR:
+                    CargaEmMassa.escreverRegistro(saida, formato, "convite", menor, maior);
+                    break;
+                case CONVITE_DO_MAIOR:
+                    CargaEmMassa.escreverRegistro(saida, formato, "convite", maior, menor);
+                    break;
+                default:
+                    CargaEmMassa.escreverRegistro(saida, formato, "amizade", menor, maior);
+            }
+            registros++;
+        }
+        SplittableRandom aleatorio = new SplittableRandom(sementeRecados);
+        StringBuilder texto = new StringBuilder();
+        for (int i = 0; i < usuarios; i++) {
+            String login = login(i);
+            for (int k = 0; k < recados[i]; k++) {
+                String remetente = login(sortearRemetente(aleatorio, i));
+                CargaEmMassa.escreverRegistro(saida, formato, "recado", login, remetente, mensagem(aleatorio, texto));
+                registros++;
+            }
+        }
+        saida.flush();
+        return registros;
+    }
+
+    /**
+     * Obtm o login do usurio de nmero {@code i}.
+     *
+     * @param i Nmero do usurio, de 0 a usuarios - 1
+     * @return Login correspondente
+     */
+    public static String login(int i) {
+        return "u" + i;
+    }
+
+    private String nomeCompleto(int i) {
+        return NOMES[nome[i]] + " " + SOBRENOMES[sobrenome[i]];
+    }
+
+    private static String mensagem(SplittableRandom aleatorio, StringBuilder texto) {
+        texto.setLength(0);
+        int palavras = 2 + aleatorio.nextInt(10);
+        for (int p = 0; p < palavras; p++) {
+            if (p > 0) {
+                texto.append(' ');
+            }
+            texto.append(PALAVRAS[aleatorio.nextInt(PALAVRAS.length)]);
+        }
+        return texto.toString();
+    }
+
+    /**
+     * Obtm a quantidade de relaes geradas, entre amizades e convites.
+     *
+     * @return Quantidade de relaes
+     */
+    public int getQuantidadeRelacoes() {
+        return quantidadeArestas;
+    }
+
+    /**
+     * Obtm a quantidade de convites pendentes gerados.
+     *
+     * @return Quantidade de convites
+     */
+    public long getQuantidadeConvites() {
+        long convites = 0;
+        for (int e = 0; e < quantidadeArestas; e++) {
+            if (tipoAresta[e] != AMIZADE) {
+                convites++;
+            }
+        }
+        return convites;
+    }
+
+    /**
+     * Obtm a quantidade total de recados gerados.
+     *
+     * @return Quantidade de recados
+     */
+    public long getQuantidadeRecados() {
+        long total = 0;
+        for (int quantidade : recados) {
+            total += quantidade;
+        }
+        return total;
+    }
+
+    /**
+     * Distribuio de Zipf sobre {@code 0..n-1}, sorteada por busca binria na distribuio acumulada.
+     */
+    private static final class Zipf {
+        private final double[] acumulada;
+
+        Zipf(int n, double expoente) {
+            acumulada = new double[n];
+            double soma = 0;
+            for (int k = 0; k < n; k++) {
+                soma += 1 / Math.pow(k + 1, expoente);
+                acumulada[k] = soma;
+            }
+        }
+
+        int sortear(SplittableRandom aleatorio) {
+            double alvo = aleatorio.nextDouble() * acumulada[acumulada.length - 1];
+            int posicao = Arrays.binarySearch(acumulada, alvo);
+            return Math.min(acumulada.length - 1, posicao >= 0 ? posicao : -posicao - 1);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> opcoes = new HashMap<>();
+        for (String arg : args) {
+            int igual = arg.indexOf('=');
+            if (!arg.startsWith("--") || igual < 0) {
+                throw new IllegalArgumentException("Argumento invlido: " + arg + " (use --opcao=valor)");
+            }
+            opcoes.put(arg.substring(2, igual), arg.substring(igual + 1));
+        }
+        String saida = opcoes.remove("saida");
+        if (saida == null) {
+            throw new IllegalArgumentException("Informe o arquivo de sada com --saida=arquivo");
+        }
+        Path arquivo = Paths.get(saida);
+        String formato = opcoes.remove("formato");
+        if (formato == null) {
+            formato = saida.endsWith(".ser") ? "snapshot"
+                    : CargaEmMassa.Formato.doArquivo(arquivo).name().toLowerCase(Locale.ROOT);
+        }
+
+        GeradorDados gerador = new GeradorDados(Integer.parseInt(opcoes.getOrDefault("usuarios", "100000")),
+                Long.parseLong(opcoes.getOrDefault("semente", "42")));
+        opcoes.remove("usuarios");
+        opcoes.remove("semente");
+        for (Map.Entry<String, String> opcao : opcoes.entrySet()) {
+            switch (opcao.getKey()) {
+                case "grau-medio":
+                    gerador.setGrauMedio(Double.parseDouble(opcao.getValue()));
+                    break;
+                case "expoente":
+                    gerador.setExpoente(Double.parseDouble(opcao.getValue()));
+                    break;
+                case "grau-maximo":
+                    gerador.setGrauMaximo(Integer.parseInt(opcao.getValue()));
+                    break;
+                case "convites":
+                    gerador.setFracaoConvites(Double.parseDouble(opcao.getValue()));
+                    break;
+                case "recados-medio":
+                    gerador.setRecadosMedio(Double.parseDouble(opcao.getValue()));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Opo desconhecida: --" + opcao.getKey());
+            }
+        }
+
+        long inicio = System.nanoTime();
+        gerador.gerar();
+        long gerado = System.nanoTime();
+        switch (formato) {
+            case "snapshot":
+                Persistencia.salvarDados(gerador.montarUsuarios(), arquivo.toFile());
+                break;
+            case "jsonl":
+            case "csv":
+                try (Writer escritor = new BufferedWriter(
+                        Files.newBufferedWriter(arquivo, StandardCharsets.UTF_8), 1 << 16)) {
+                    gerador.gravarCarga(escritor, CargaEmMassa.Formato.valueOf(formato.toUpperCase(Locale.ROOT)));
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Formato desconhecido: " + formato);
+        }
+        long fim = System.nanoTime();
+
+        System.out.printf("%d usurios, %d relaes (%d convites), %d recados%n", gerador.usuarios,
+                gerador.getQuantidadeRelacoes(), gerador.getQuantidadeConvites(), gerador.getQuantidadeRecados());
+        System.out.printf("gerao: %.2f s, gravao (%s): %.2f s -> %s%n", (gerado - inicio) / 1e9,
+                formato, (fim - gerado) / 1e9, arquivo);
+    }
+}
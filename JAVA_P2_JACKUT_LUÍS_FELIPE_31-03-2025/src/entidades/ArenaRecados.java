@@ -0,0 +1,274 @@
+package entidades;
+
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Armazena o contedo dos recados fora do heap, em regies de memria direta
+ * ({@link ByteBuffer#allocateDirect(int)}). Cada {@link Recado} guarda apenas a regio, a posio e o
+ * tamanho do seu texto em UTF-8.
+ *
+ * <p>Os textos so gravados em sequncia na regio corrente; quando ela enche, uma nova  aberta.
+ * Uma regio  devolvida ao conjunto de regies livres quando nenhum recado que a referencia continua
+ * alcanvel: recados consumidos deixam de ser alcanveis assim que nenhuma verso dos usurios
+ * (nem snapshot em andamento) os contm mais. Como a liberao depende apenas da alcanabilidade,
+ * leitores de verses antigas nunca veem uma regio reaproveitada. Textos maiores que
+ * {@link #MAIOR_TEXTO_COMPARTILHADO} ganham uma regio exclusiva, liberada junto com o recado.</p>
+ *
+ * <p>Para que poucos recados no lidos no prendam regies inteiras, cada regio compartilhada conhece
+ * os seus recados e conta os bytes dos que ainda esto na fila corrente de algum usurio; o
+ * {@link Usuario} os {@linkplain #descartar descarta} ao consumi-los. Quando uma regio cheia fica
+ * com menos de {@link #OCUPACAO_MINIMA} bytes vivos, os sobreviventes so copiados para a regio
+ * corrente e cada um passa a apontar para a cpia, com uma nica escrita. A regio antiga continua
+ * vlida para quem ainda a l e  liberada quando deixa de ser alcanvel, como as demais.</p>
+ */
+final class ArenaRecados {
+    static final int TAMANHO_REGIAO = 64 * 1024;
+    static final int MAIOR_TEXTO_COMPARTILHADO = TAMANHO_REGIAO / 4;
+    static final int OCUPACAO_MINIMA = TAMANHO_REGIAO / 8;
+    private static final int MAXIMO_REGIOES_LIVRES = 256;
+
+    private static final Cleaner LIMPADOR = Cleaner.create();
+    private static final ArenaRecados PADRAO = new ArenaRecados();
+
+    private final ConcurrentLinkedQueue<ByteBuffer> livres = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger quantidadeLivres = new AtomicInteger();
+    private final AtomicInteger regioesEmUso = new AtomicInteger();
+    private final AtomicLong bytesEmUso = new AtomicLong();
+    private Regiao corrente;
+    private int usado;
+    private long recadosRealocados;
+
+    private ArenaRecados() {
+    }
+
+    /**
+     * Obtm a arena compartilhada por todos os recados do processo.
+     *
+     * @return Arena padro
+     */
+    static ArenaRecados padrao() {
+        return PADRAO;
+    }
+
+    /**
+     * Regio de memria direta. Os recados a referenciam, o que a mantm viva enquanto algum deles
+     * puder ser lido. Um recado copiado por uma compactao referencia uma vista da regio de destino,
+     * que desconta da posio gravada no recado o quanto o texto mudou de lugar.
+     */
+    static final class Regiao {
+        private final ByteBuffer dados;
+        private final Regiao origem; // regio que de fato contm os bytes: ela mesma, exceto nas vistas
+        private final int deslocamento;
+
+        // Ocupao das regies compartilhadas, protegida pelo bloqueio da arena; null nas demais
+        private Recado[] recados;
+        private int[] posicoes; // posio real de cada recado, em ordem crescente
+        private int quantidade;
+        private int bytesVivos;
+
+        private Regiao(ByteBuffer dados, boolean compartilhada) {
+            this.dados = dados;
+            this.origem = this;
+            this.deslocamento = 0;
+            if (compartilhada) {
+                recados = new Recado[64];
+                posicoes = new int[64];
+            }
+        }
+
+        private Regiao(Regiao origem, int deslocamento) {
+            this.dados = origem.dados;
+            this.origem = origem;
+            this.deslocamento = deslocamento;
+        }
+
+        String ler(int posicao, int tamanho) {
+            byte[] bytes = new byte[tamanho];
+            dados.get(posicao - deslocamento, bytes, 0, tamanho);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private void registrar(Recado recado, int posicao, int tamanho) {
+            if (quantidade == recados.length) {
+                recados = Arrays.copyOf(recados, quantidade * 2);
+                posicoes = Arrays.copyOf(posicoes, quantidade * 2);
+            }
+            recados[quantidade] = recado;
+            posicoes[quantidade++] = posicao;
+            bytesVivos += tamanho;
+        }
+    }
+
+    /**
+     * Grava o texto de um recado na arena e aponta o recado para ele.
+     *
+     * @param recado Recado em construo
+     * @param texto Contedo do recado
+     */
+    void gravar(Recado recado, String texto) {
+        byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAIOR_TEXTO_COMPARTILHADO) {
+            Regiao exclusiva = abrirRegiao(ByteBuffer.allocateDirect(bytes.length), bytes.length, false);
+            exclusiva.dados.put(0, bytes, 0, bytes.length);
+            recado.localizar(exclusiva, 0, bytes.length);
+            return;
+        }
+        synchronized (this) {
+            // A cpia fica dentro do bloqueio: uma compactao s pode copiar recados j gravados.
+            // A publicao da nova verso do usurio torna os bytes visveis aos leitores.
+            int posicao = reservar(bytes.length);
+            corrente.dados.put(posicao, bytes, 0, bytes.length);
+            recado.localizar(corrente, posicao, bytes.length);
+            corrente.registrar(recado, posicao, bytes.length);
+        }
+    }
+
+    /**
+     * Informa que um recado saiu da fila corrente do seu destinatrio. Verses antigas ainda podem
+     * l-lo; ele s deixa de ser copiado numa compactao da sua regio.
+     *
+     * @param recado Recado consumido ou expirado
+     */
+    synchronized void descartar(Recado recado) {
+        Regiao vista = recado.getRegiao();
+        Regiao regiao = vista.origem;
+        if (regiao.recados == null) {
+            return; // regio exclusiva, ou j compactada
+        }
+        int indice = Arrays.binarySearch(regiao.posicoes, 0, regiao.quantidade,
+                recado.getPosicao() - vista.deslocamento);
+        if (indice < 0 || regiao.recados[indice] != recado) {
+            return; // j descartado
+        }
+        regiao.recados[indice] = null;
+        regiao.bytesVivos -= recado.getTamanho();
+        if (regiao != corrente && regiao.bytesVivos < OCUPACAO_MINIMA) {
+            compactar(regiao);
+        }
+    }
+
+    /**
+     * Copia os recados vivos de uma regio esparsa para a regio corrente. Cada recado troca de
+     * regio com uma nica escrita voltil, ento um leitor concorrente v a cpia ou o original,
+     * ambos ntegros.
+     */
+    private void compactar(Regiao regiao) {
+        Recado[] sobreviventes = regiao.recados;
+        int[] posicoes = regiao.posicoes;
+        int quantidade = regiao.quantidade;
+        regiao.recados = null;
+        regiao.posicoes = null;
+        for (int i = 0; i < quantidade; i++) {
+            Recado recado = sobreviventes[i];
+            if (recado == null) {
+                continue;
+            }
+            int tamanho = recado.getTamanho();
+            int destino = reservar(tamanho);
+            corrente.dados.put(destino, regiao.dados, posicoes[i], tamanho);
+            corrente.registrar(recado, destino, tamanho);
+            recado.realocar(new Regiao(corrente, recado.getPosicao() - destino));
+            recadosRealocados++;
+        }
+    }
+
+    /**
+     * Reserva um trecho na regio corrente, abrindo outra se ela no tiver espao. Chamado com o
+     * bloqueio da arena.
+     */
+    private int reservar(int tamanho) {
+        if (corrente == null || usado + tamanho > TAMANHO_REGIAO) {
+            corrente = abrirRegiao(obterRegiaoLivre(), TAMANHO_REGIAO, true);
+            usado = 0;
+        }
+        int posicao = usado;
+        usado += tamanho;
+        return posicao;
+    }
+
+    private ByteBuffer obterRegiaoLivre() {
+        ByteBuffer dados = livres.poll();
+        if (dados == null) {
+            return ByteBuffer.allocateDirect(TAMANHO_REGIAO);
+        }
+        quantidadeLivres.decrementAndGet();
+        return dados;
+    }
+
+    private Regiao abrirRegiao(ByteBuffer dados, int capacidade, boolean compartilhada) {
+        Regiao regiao = new Regiao(dados, compartilhada);
+        regioesEmUso.incrementAndGet();
+        bytesEmUso.addAndGet(capacidade);
+        LIMPADOR.register(regiao, new Devolucao(this, dados, capacidade));
+        return regiao;
+    }
+
+    /**
+     * Devolve o buffer de uma regio que no  mais alcanvel. No referencia a {@link Regiao}, para
+     * no mant-la viva.
+     */
+    private static final class Devolucao implements Runnable {
+        private final ArenaRecados arena;
+        private final ByteBuffer dados;
+        private final int capacidade;
+
+        Devolucao(ArenaRecados arena, ByteBuffer dados, int capacidade) {
+            this.arena = arena;
+            this.dados = dados;
+            this.capacidade = capacidade;
+        }
+
+        @Override
+        public void run() {
+            arena.regioesEmUso.decrementAndGet();
+            arena.bytesEmUso.addAndGet(-capacidade);
+            if (capacidade == TAMANHO_REGIAO && arena.quantidadeLivres.incrementAndGet() <= MAXIMO_REGIOES_LIVRES) {
+                arena.livres.offer(dados);
+            } else if (capacidade == TAMANHO_REGIAO) {
+                arena.quantidadeLivres.decrementAndGet(); // excedente: a memria volta com o prprio buffer
+            }
+        }
+    }
+
+    /**
+     * Obtm a quantidade de regies ainda referenciadas por algum recado, incluindo a corrente.
+     *
+     * @return Regies em uso
+     */
+    int getRegioesEmUso() {
+        return regioesEmUso.get();
+    }
+
+    /**
+     * Obtm a memria direta ocupada pelas regies em uso.
+     *
+     * @return Bytes fora do heap em uso
+     */
+    long getBytesEmUso() {
+        return bytesEmUso.get();
+    }
+
+    /**
+     * Obtm a quantidade de recados copiados por compactaes de regies esparsas.
+     *
+     * @return Recados realocados desde o incio
+     */
+    synchronized long getRecadosRealocados() {
+        return recadosRealocados;
+    }
+
+    /**
+     * Obtm a quantidade de regies livres guardadas para reaproveitamento.
+     *
+     * @return Regies livres
+     */
+    int getRegioesLivres() {
+        return quantidadeLivres.get();
+    }
+}
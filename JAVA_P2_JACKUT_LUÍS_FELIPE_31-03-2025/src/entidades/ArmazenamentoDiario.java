@@ -0,0 +1,290 @@
+package entidades;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.CRC32C;
+import entidades.exceptions.JackutException;
+import entidades.exceptions.PersistenciaException;
+
+/**
+ * Armazenamento com dirio de mutaes. Cada mutao aplicada  acrescentada ao dirio assim que
+ * registrada, de modo que nada se perde se o processo terminar sem {@link Sistema#encerrarSistema()};
+ * {@link #salvar(Map)} grava um ponto de controle no formato de {@link Persistencia} e descarta o
+ * dirio que ele torna desnecessrio.
+ *
+ * <p>Pontos de controle e dirios so numerados por gerao, em arquivos ao lado do caminho base
+ * ({@code base.ponto.N} e {@code base.diario.N}). O dirio de gerao N contm as mutaes
+ * posteriores ao ponto de controle N. A carga parte do ponto de controle mais recente que puder ser
+ * lido e reaplica, em ordem, os dirios dessa gerao em diante; um registro incompleto ou com
+ * checksum errado no fim de um dirio encerra a leitura daquele dirio. Como o ponto de controle e o
+ * dirio nunca cobrem a mesma mutao, nenhuma  reaplicada duas vezes. Um ponto de controle mais
+ * antigo que o dirio mais antigo no serve, porque os dirios seguintes a ele j foram descartados:
+ * se houver pontos de controle e nenhum deles servir, ou se uma mutao do dirio no se aplicar, a
+ * carga falha em vez de devolver dados parciais.</p>
+ *
+ * <p>Por padro o dirio  enviado ao sistema operacional a cada registro, o que sobrevive  queda
+ * do processo; com {@code sincronizar}, cada registro tambm  forado ao disco.</p>
+ */
+public class ArmazenamentoDiario implements MotorArmazenamento {
+    private static final String PONTO = ".ponto.";
+    private static final String DIARIO = ".diario.";
+    private static final int TAMANHO_MAXIMO_REGISTRO = 1 << 24;
+
+    private final File diretorio;
+    private final String nome;
+    private final boolean sincronizar;
+    private final ByteArrayOutputStream registro = new ByteArrayOutputStream(256);
+    private final DataOutputStream saidaRegistro = new DataOutputStream(registro);
+    private final CRC32C crc = new CRC32C();
+
+    private long geracao; // gerao do dirio aberto
+    private long geracaoPendente = -1; // ponto de controle preparado e ainda no gravado
+    private long apagamentos;
+    private FileOutputStream arquivoDiario;
+    private DataOutputStream diario;
+
+    /**
+     * Cria o armazenamento sobre o caminho base informado, enviando o dirio ao sistema
+     * operacional a cada registro.
+     *
+     * @param arquivo Caminho base dos arquivos de dados
+     */
+    public ArmazenamentoDiario(String arquivo) {
+        this(arquivo, false);
+    }
+
+    /**
+     * Cria o armazenamento sobre o caminho base informado.
+     *
+     * @param arquivo Caminho base dos arquivos de dados
+     * @param sincronizar Se cada registro deve ser forado ao disco antes de retornar
+     */
+    public ArmazenamentoDiario(String arquivo, boolean sincronizar) {
+        File base = new File(arquivo).getAbsoluteFile();
+        this.diretorio = base.getParentFile();
+        this.nome = base.getName();
+        this.sincronizar = sincronizar;
+    }
+
+    @Override
+    public synchronized Map<String, Usuario> carregar() {
+        fecharDiario();
+        TreeSet<Long> pontos = geracoes(PONTO);
+        TreeSet<Long> diarios = geracoes(DIARIO);
+
+        long ultima = 0;
+        if (!pontos.isEmpty()) {
+            ultima = Math.max(ultima, pontos.last());
+        }
+        if (!diarios.isEmpty()) {
+            ultima = Math.max(ultima, diarios.last());
+        }
+        try {
+            MapaPersistente<String, Usuario> usuarios = MapaPersistente.vazio();
+            long inicio = 0;
+            if (!pontos.isEmpty()) {
+                long primeiroDiario = diarios.isEmpty() ? Long.MAX_VALUE : diarios.first();
+                PersistenciaException falha = null;
+                inicio = -1;
+                for (long candidata : pontos.descendingSet()) {
+                    if (candidata < primeiroDiario && !diarios.isEmpty()) {
+                        break; // os dirios posteriores a este ponto de controle j foram descartados
+                    }
+                    try {
+                        usuarios = MapaPersistente.de(Persistencia.carregarDados(arquivo(PONTO, candidata)));
+                        inicio = candidata;
+                        break;
+                    } catch (PersistenciaException e) {
+                        System.err.println("Ponto de controle ignorado: " + e.getMessage());
+                        falha = e;
+                    }
+                }
+                if (inicio < 0) {
+                    throw new PersistenciaException("carregar dados", new File(diretorio, nome).getPath(),
+                            "Nenhum ponto de controle legvel cobre os dirios restantes", falha);
+                }
+            }
+            for (long g : diarios.tailSet(inicio)) {
+                usuarios = reaplicar(arquivo(DIARIO, g), usuarios);
+            }
+            return usuarios;
+        } finally {
+            abrirDiario(ultima + 1); // nunca acrescenta depois de um registro possivelmente incompleto
+        }
+    }
+
+    @Override
+    public synchronized void registrar(List<Mutacao> mutacoes) {
+        if (diario == null) {
+            abrirDiario(geracao + 1);
+        }
+        try {
+            for (Mutacao mutacao : mutacoes) {
+                registro.reset();
+                mutacao.escrever(saidaRegistro);
+                crc.reset();
+                crc.update(registro.toByteArray(), 0, registro.size());
+                diario.writeInt(registro.size());
+                registro.writeTo(diario);
+                diario.writeInt((int) crc.getValue());
+            }
+            diario.flush();
+            if (sincronizar) {
+                arquivoDiario.getChannel().force(false);
+            }
+        } catch (IOException e) {
+            throw new PersistenciaException("registrar mutaes", arquivo(DIARIO, geracao).getPath(), e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public synchronized void prepararSalvamento() {
+        abrirDiario(geracao + 1);
+        geracaoPendente = geracao;
+    }
+
+    @Override
+    public void salvar(Map<String, Usuario> usuarios) {
+        long alvo;
+        long apagamentosAntes;
+        synchronized (this) {
+            if (geracaoPendente < 0) {
+                prepararSalvamento();
+            }
+            alvo = geracaoPendente;
+            geracaoPendente = -1;
+            apagamentosAntes = apagamentos;
+        }
+
+        File ponto = arquivo(PONTO, alvo);
+        Persistencia.salvarDados(usuarios, ponto);
+        try (FileChannel canal = FileChannel.open(ponto.toPath(), StandardOpenOption.WRITE)) {
+            canal.force(true);
+        } catch (IOException e) {
+            throw new PersistenciaException("salvar dados", ponto.getPath(), e.getMessage(), e);
+        }
+
+        synchronized (this) {
+            if (apagamentos != apagamentosAntes) {
+                ponto.delete(); // os dados foram apagados enquanto o ponto de controle era gravado
+                return;
+            }
+            for (long g : geracoes(PONTO).headSet(alvo)) {
+                arquivo(PONTO, g).delete();
+            }
+            for (long g : geracoes(DIARIO).headSet(alvo)) {
+                arquivo(DIARIO, g).delete();
+            }
+        }
+    }
+
+    @Override
+    public synchronized void apagar() {
+        fecharDiario();
+        boolean sucesso = true;
+        for (long g : geracoes(PONTO)) {
+            sucesso = arquivo(PONTO, g).delete() && sucesso;
+        }
+        for (long g : geracoes(DIARIO)) {
+            sucesso = arquivo(DIARIO, g).delete() && sucesso;
+        }
+        apagamentos++;
+        geracaoPendente = -1;
+        abrirDiario(geracao + 1);
+        if (!sucesso) {
+            throw new PersistenciaException("apagar dados", new File(diretorio, nome).getPath(),
+                    "No foi possvel remover os arquivos de dados");
+        }
+    }
+
+    // Mtodos auxiliares
+
+    private MapaPersistente<String, Usuario> reaplicar(File arquivo, MapaPersistente<String, Usuario> usuarios) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(arquivo)))) {
+            CRC32C verificacao = new CRC32C();
+            while (true) {
+                int tamanho;
+                byte[] bytes;
+                try {
+                    tamanho = in.readInt();
+                    if (tamanho < 0 || tamanho > TAMANHO_MAXIMO_REGISTRO) {
+                        return usuarios;
+                    }
+                    bytes = in.readNBytes(tamanho);
+                    if (bytes.length < tamanho) {
+                        return usuarios;
+                    }
+                    verificacao.reset();
+                    verificacao.update(bytes);
+                    if (in.readInt() != (int) verificacao.getValue()) {
+                        return usuarios;
+                    }
+                } catch (EOFException e) {
+                    return usuarios; // fim do dirio, possivelmente no meio de um registro
+                }
+                Mutacao mutacao = Mutacao.ler(new DataInputStream(new ByteArrayInputStream(bytes)));
+                try {
+                    // o amigo ou o remetente podem morar em outra partio do SistemaParticionado
+                    usuarios = mutacao.aplicarEm(usuarios, false);
+                } catch (JackutException e) {
+                    // s mutaes j validadas so registradas: se uma no se aplica, o estado diverge
+                    throw new PersistenciaException("carregar dados", arquivo.getPath(),
+                            "Mutao do dirio no se aplica (" + mutacao.getTipo() + "): " + e.getMessage(), e);
+                }
+            }
+        } catch (IOException e) {
+            throw new PersistenciaException("carregar dados", arquivo.getPath(), e.getMessage(), e);
+        }
+    }
+
+    private void abrirDiario(long novaGeracao) {
+        fecharDiario();
+        File arquivo = arquivo(DIARIO, novaGeracao);
+        try {
+            if (!diretorio.exists()) {
+                diretorio.mkdirs();
+            }
+            arquivoDiario = new FileOutputStream(arquivo);
+            diario = new DataOutputStream(new BufferedOutputStream(arquivoDiario, 64 * 1024));
+            geracao = novaGeracao;
+        } catch (IOException e) {
+            throw new PersistenciaException("abrir dirio", arquivo.getPath(), e.getMessage(), e);
+        }
+    }
+
+    private void fecharDiario() {
+        if (diario != null) {
+            try {
+                diario.close();
+            } catch (IOException e) {
+                System.err.println("Erro ao fechar dirio: " + e.getMessage());
+            }
+            diario = null;
+            arquivoDiario = null;
+        }
+    }
+
+    private File arquivo(String tipo, long g) {
+        return new File(diretorio, nome + tipo + g);
+    }
+
+    private TreeSet<Long> geracoes(String tipo) {
+        TreeSet<Long> encontradas = new TreeSet<>();
+        String prefixo = nome + tipo;
+        String[] nomes = diretorio.list();
+        if (nomes != null) {
+            for (String arquivo : nomes) {
+                if (arquivo.startsWith(prefixo)) {
+                    try {
+                        encontradas.add(Long.parseLong(arquivo.substring(prefixo.length())));
+                    } catch (NumberFormatException e) {
+                        // backup ou arquivo alheio
+                    }
+                }
+            }
+        }
+        return encontradas;
+    }
+}
@@ -0,0 +1,46 @@
+package entidades;
+
+import java.io.*;
+import java.util.HashMap;
+import java.util.Map;
+import entidades.exceptions.PersistenciaException;
+
+/**
+ * Armazenamento em memria, para testes e execues descartveis. Os usurios so serializados
+ * como no {@link ArmazenamentoSerializado}, mas para um arranjo de bytes: um novo {@link Sistema}
+ * criado sobre o mesmo armazenamento passa pela mesma ida e volta de serializao que passaria
+ * com o arquivo, sem tocar no disco.
+ */
+public class ArmazenamentoMemoria implements MotorArmazenamento {
+    private volatile byte[] dados;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<String, Usuario> carregar() {
+        byte[] atuais = dados;
+        if (atuais == null) {
+            return new HashMap<>();
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(atuais))) {
+            return (Map<String, Usuario>) in.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            throw new PersistenciaException("carregar dados", "memria", e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void salvar(Map<String, Usuario> usuarios) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(usuarios instanceof HashMap ? usuarios : new HashMap<>(usuarios));
+        } catch (IOException e) {
+            throw new PersistenciaException("salvar dados", "memria", e.getMessage(), e);
+        }
+        dados = bytes.toByteArray();
+    }
+
+    @Override
+    public void apagar() {
+        dados = null;
+    }
+}
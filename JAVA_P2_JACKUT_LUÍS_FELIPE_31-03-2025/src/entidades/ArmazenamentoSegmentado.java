@@ -0,0 +1,37 @@
+package entidades;
+
+import java.io.File;
+import java.util.Map;
+
+/**
+ * Armazenamento no formato segmentado e comprimido de {@link Persistencia}, com backup ao lado do
+ * arquivo. L tambm arquivos no formato original, de modo que pode substituir o
+ * {@link ArmazenamentoSerializado} sobre dados j existentes.
+ */
+public class ArmazenamentoSegmentado implements MotorArmazenamento {
+    private final File arquivo;
+
+    /**
+     * Cria o armazenamento sobre o arquivo informado.
+     *
+     * @param arquivo Caminho do arquivo de dados
+     */
+    public ArmazenamentoSegmentado(String arquivo) {
+        this.arquivo = new File(arquivo);
+    }
+
+    @Override
+    public Map<String, Usuario> carregar() {
+        return Persistencia.carregarDados(arquivo);
+    }
+
+    @Override
+    public void salvar(Map<String, Usuario> usuarios) {
+        Persistencia.salvarDados(usuarios, arquivo);
+    }
+
+    @Override
+    public void apagar() {
+        Persistencia.limparDados(arquivo);
+    }
+}
@@ -0,0 +1,50 @@
+package entidades;
+
+import java.io.*;
+import java.util.HashMap;
+import java.util.Map;
+import entidades.exceptions.PersistenciaException;
+
+/**
+ * Armazenamento no formato original do Jackut: um nico arquivo com o mapa de usurios gravado por
+ * serializao Java.
+ */
+public class ArmazenamentoSerializado implements MotorArmazenamento {
+    private final File arquivo;
+
+    /**
+     * Cria o armazenamento sobre o arquivo informado.
+     *
+     * @param arquivo Caminho do arquivo de dados
+     */
+    public ArmazenamentoSerializado(String arquivo) {
+        this.arquivo = new File(arquivo);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<String, Usuario> carregar() {
+        if (!arquivo.exists()) {
+            return new HashMap<>();
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(arquivo)))) {
+            return (Map<String, Usuario>) in.readObject();
+        } catch (IOException | ClassNotFoundException e) {
+            throw new PersistenciaException("carregar dados", arquivo.getPath(), e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void salvar(Map<String, Usuario> usuarios) {
+        try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(arquivo)))) {
+            out.writeObject(usuarios instanceof HashMap ? usuarios : new HashMap<>(usuarios)); // formato original
+        } catch (IOException e) {
+            throw new PersistenciaException("salvar dados", arquivo.getPath(), e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void apagar() {
+        arquivo.delete();
+    }
+}
@@ -0,0 +1,63 @@
+package entidades;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Balde de fichas sem bloqueio, implementado como algoritmo de taxa genrica (GCRA): em vez de
+ * contar fichas, guarda o instante terico em que o balde estaria cheio novamente. Consumir uma
+ * ficha  uma nica troca atmica desse instante.
+ */
+class BaldeFichas {
+    private final AtomicLong instanteTeorico;
+
+    /**
+     * Cria um balde cheio.
+     *
+     * @param agora Instante atual, em nanossegundos ({@link System#nanoTime()})
+     */
+    BaldeFichas(long agora) {
+        this.instanteTeorico = new AtomicLong(agora);
+    }
+
+    /**
+     * Tenta consumir uma ficha.
+     *
+     * @param agora Instante atual, em nanossegundos
+     * @param intervalo Tempo para repor uma ficha, em nanossegundos
+     * @param tolerancia Adiantamento mximo permitido: (capacidade - 1) * intervalo
+     * @return true se havia ficha disponvel
+     */
+    boolean consumir(long agora, long intervalo, long tolerancia) {
+        while (true) {
+            long atual = instanteTeorico.get();
+            long base = atual - agora > 0 ? atual : agora;
+            if (base - agora > tolerancia) {
+                return false;
+            }
+            if (instanteTeorico.compareAndSet(atual, base + intervalo)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Indica se h ficha disponvel, sem consumi-la.
+     *
+     * @param agora Instante atual, em nanossegundos
+     * @param tolerancia Adiantamento mximo permitido: (capacidade - 1) * intervalo
+     * @return true se {@link #consumir} aceitaria uma ficha agora
+     */
+    boolean temFicha(long agora, long tolerancia) {
+        return instanteTeorico.get() - agora <= tolerancia;
+    }
+
+    /**
+     * Indica se o balde j se recomps por completo e pode ser descartado sem efeito algum.
+     *
+     * @param agora Instante atual, em nanossegundos
+     * @return true se o balde est cheio
+     */
+    boolean cheio(long agora) {
+        return instanteTeorico.get() - agora <= 0;
+    }
+}
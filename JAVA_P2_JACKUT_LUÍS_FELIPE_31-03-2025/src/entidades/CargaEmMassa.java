@@ -0,0 +1,686 @@
+package entidades;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import entidades.exceptions.*;
+
+/**
+ * Importao e exportao em massa de usurios, atributos de perfil, amizades, convites e recados,
+ * em arquivos JSONL (um objeto por linha) ou CSV.
+ *
+ * <p>Cada registro tem um tipo e campos prprios:</p>
+ * <ul>
+ *   <li>{@code usuario}: login, senha, nome</li>
+ *   <li>{@code atributo}: login, atributo, valor</li>
+ *   <li>{@code amizade}: login, amigo (amizade confirmada nos dois sentidos)</li>
+ *   <li>{@code convite}: login, amigo (convite pendente enviado por login)</li>
+ *   <li>{@code recado}: login (destinatrio), remetente, mensagem, instante (opcional)</li>
+ * </ul>
+ * <p>O remetente de um recado pode ficar vazio, j que o sistema no o guarda e a exportao no
+ * tem como preench-lo; se informado, precisa existir e ser diferente do destinatrio. O instante
+ * de envio, em milissegundos desde a poca, preserva a idade do recado para a poltica de
+ * reteno; sem ele, vale o momento da importao.</p>
+ * <p>Em JSONL os campos so nomeados, como em {@code {"tipo":"usuario","login":"ana","senha":"x","nome":"Ana"}};
+ * em CSV vm na ordem acima, aps o tipo, como em {@code usuario,ana,x,Ana}. Um registro s pode
+ * citar usurios definidos antes dele no arquivo, ou j existentes no sistema.</p>
+ *
+ * <p>A importao l o arquivo em blocos de linhas, interpreta vrios blocos em paralelo e aplica
+ * cada bloco ao {@link Sistema} como uma nica nova verso, na ordem do arquivo. Apenas um nmero
+ * fixo de blocos fica em memria, qualquer que seja o tamanho do arquivo. Registros invlidos so
+ * rejeitados com as mesmas regras da {@link Facade} e relatados no {@link Resultado}, sem
+ * interromper a carga. A exportao percorre uma verso fixa dos usurios e grava registro a
+ * registro.</p>
+ */
+public class CargaEmMassa {
+
+    /**
+     * Formatos de arquivo suportados.
+     */
+    public enum Formato {
+        JSONL, CSV;
+
+        /**
+         * Deduz o formato pela extenso do arquivo ({@code .csv} ou, nos demais casos, JSONL).
+         *
+         * @param arquivo Caminho do arquivo
+         * @return Formato correspondente
+         */
+        public static Formato doArquivo(Path arquivo) {
+            return arquivo.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".csv") ? CSV : JSONL;
+        }
+    }
+
+    private static final int REGISTROS_POR_BLOCO = 4096;
+    private static final int BLOCOS_EM_VOO = Math.max(2, 2 * Runtime.getRuntime().availableProcessors());
+    private static final int MAXIMO_ERROS_GUARDADOS = 100;
+
+    private static final String[] CAMPOS_USUARIO = {"login", "senha", "nome"};
+    private static final String[] CAMPOS_ATRIBUTO = {"login", "atributo", "valor"};
+    private static final String[] CAMPOS_AMIZADE = {"login", "amigo"};
+    private static final String[] CAMPOS_RECADO = {"login", "remetente", "mensagem", "instante"};
+
+    private CargaEmMassa() {
+    }
+
+    // Importao
+
+    /**
+     * Importa um arquivo, com o formato deduzido pela extenso.
+     *
+     * @param sistema Sistema que receber os dados
+     * @param arquivo Arquivo JSONL ou CSV, em UTF-8
+     * @return Resumo da importao
+     * @throws IOException Se o arquivo no puder ser lido
+     */
+    public static Resultado importar(Sistema sistema, Path arquivo) throws IOException {
+        try (Reader leitor = Files.newBufferedReader(arquivo, StandardCharsets.UTF_8)) {
+            return importar(sistema, leitor, Formato.doArquivo(arquivo));
+        }
+    }
+
+    /**
+     * Importa registros de um fluxo de caracteres.
+     *
+     * @param sistema Sistema que receber os dados
+     * @param entrada Fluxo com os registros
+     * @param formato Formato dos registros
+     * @return Resumo da importao
+     * @throws IOException Se o fluxo no puder ser lido
+     */
+    public static Resultado importar(Sistema sistema, Reader entrada, Formato formato) throws IOException {
+        LeitorRegistros leitor = new LeitorRegistros(entrada, formato);
+        Resultado resultado = new Resultado();
+        Deque<CompletableFuture<Bloco>> emVoo = new ArrayDeque<>();
+        Bloco bloco = new Bloco();
+
+        String registro;
+        do {
+            registro = leitor.proximo();
+            if (registro != null && !registro.isBlank()) {
+                bloco.adicionar(registro, leitor.getLinhaDoRegistro());
+            }
+            if (bloco.tamanho() == REGISTROS_POR_BLOCO || (registro == null && bloco.tamanho() > 0)) {
+                Bloco cheio = bloco;
+                emVoo.add(CompletableFuture.supplyAsync(() -> cheio.interpretar(formato)));
+                bloco = new Bloco();
+                if (emVoo.size() >= BLOCOS_EM_VOO) {
+                    emVoo.poll().join().aplicar(sistema, resultado);
+                }
+            }
+        } while (registro != null);
+
+        while (!emVoo.isEmpty()) {
+            emVoo.poll().join().aplicar(sistema, resultado);
+        }
+        return resultado;
+    }
+
+    /**
+     * Bloco de registros lidos do arquivo, interpretado em paralelo e aplicado em ordem.
+     */
+    private static final class Bloco {
+        private final List<String> registros = new ArrayList<>(REGISTROS_POR_BLOCO);
+        private final List<Long> linhas = new ArrayList<>(REGISTROS_POR_BLOCO);
+        private final List<Mutacao> mutacoes = new ArrayList<>(REGISTROS_POR_BLOCO);
+        private final List<Integer> origem = new ArrayList<>(REGISTROS_POR_BLOCO); // registro de cada mutao
+        private final String[] tipos = new String[REGISTROS_POR_BLOCO];
+        private final String[] errosDeLeitura = new String[REGISTROS_POR_BLOCO];
+
+        void adicionar(String registro, long linha) {
+            registros.add(registro);
+            linhas.add(linha);
+        }
+
+        int tamanho() {
+            return registros.size();
+        }
+
+        Bloco interpretar(Formato formato) {
+            for (int i = 0; i < registros.size(); i++) {
+                try {
+                    Map<String, String> campos = formato == Formato.CSV
+                            ? camposCsv(registros.get(i))
+                            : lerObjetoJson(registros.get(i));
+                    if (campos == null) {
+                        continue; // cabealho CSV
+                    }
+                    tipos[i] = campos.get("tipo");
+                    for (Mutacao mutacao : paraMutacoes(campos)) {
+                        mutacoes.add(mutacao);
+                        origem.add(i);
+                    }
+                } catch (IllegalArgumentException e) {
+                    errosDeLeitura[i] = e.getMessage();
+                }
+            }
+            registros.clear(); // o texto no  mais necessrio
+            return this;
+        }
+
+        void aplicar(Sistema sistema, Resultado resultado) {
+            JackutException[] falhas = mutacoes.isEmpty() ? new JackutException[0] : sistema.aplicarLote(mutacoes);
+            String[] erros = errosDeLeitura.clone();
+            for (int m = 0; m < falhas.length; m++) {
+                int i = origem.get(m);
+                if (falhas[m] != null && erros[i] == null) {
+                    erros[i] = falhas[m].getMessage();
+                }
+            }
+            for (int i = 0; i < linhas.size(); i++) {
+                if (erros[i] != null) {
+                    resultado.rejeitar(linhas.get(i), erros[i]);
+                } else if (tipos[i] != null) {
+                    resultado.contar(tipos[i]);
+                }
+            }
+        }
+    }
+
+    private static List<Mutacao> paraMutacoes(Map<String, String> campos) {
+        String tipo = campos.get("tipo");
+        if (tipo == null) {
+            throw new IllegalArgumentException("Tipo de registro ausente.");
+        }
+        switch (tipo) {
+            case "usuario":
+                return List.of(Mutacao.criarUsuario(campos.get("login"), campos.get("senha"), campos.get("nome")));
+            case "atributo":
+                return List.of(Mutacao.editarAtributo(obrigatorio(campos, "login"),
+                        obrigatorio(campos, "atributo"), campos.get("valor")));
+            case "amizade": {
+                String login = obrigatorio(campos, "login");
+                String amigo = obrigatorio(campos, "amigo");
+                return List.of(Mutacao.amizade(login, amigo, true), Mutacao.amizade(amigo, login, true));
+            }
+            case "convite":
+                return List.of(Mutacao.amizade(obrigatorio(campos, "login"), obrigatorio(campos, "amigo"), false));
+            case "recado": {
+                String login = obrigatorio(campos, "login");
+                String remetente = campos.get("remetente");
+                if (remetente != null && remetente.isEmpty()) {
+                    remetente = null;
+                }
+                if (login.equals(remetente)) {
+                    throw RecadoParaSiException.INSTANCIA;
+                }
+                String instante = campos.get("instante");
+                return List.of(instante == null
+                        ? Mutacao.recado(login, remetente, campos.get("mensagem"))
+                        : Mutacao.recado(login, remetente, campos.get("mensagem"), lerInstante(instante)));
+            }
+            default:
+                throw new IllegalArgumentException("Tipo de registro desconhecido: " + tipo);
+        }
+    }
+
+    private static long lerInstante(String texto) {
+        try {
+            return Long.parseLong(texto.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Instante invlido: " + texto);
+        }
+    }
+
+    private static String obrigatorio(Map<String, String> campos, String nome) {
+        String valor = campos.get(nome);
+        if (valor == null) {
+            throw new IllegalArgumentException("Campo obrigatrio ausente: " + nome);
+        }
+        return valor;
+    }
+
+    private static String[] camposDoTipo(String tipo) {
+        switch (tipo) {
+            case "usuario":
+                return CAMPOS_USUARIO;
+            case "atributo":
+                return CAMPOS_ATRIBUTO;
+            case "amizade":
+            case "convite":
+                return CAMPOS_AMIZADE;
+            case "recado":
+                return CAMPOS_RECADO;
+            default:
+                throw new IllegalArgumentException("Tipo de registro desconhecido: " + tipo);
+        }
+    }
+
+    /**
+     * L registros lgicos: uma linha em JSONL; em CSV, as linhas necessrias para fechar as aspas.
+     */
+    private static final class LeitorRegistros {
+        private final BufferedReader entrada;
+        private final Formato formato;
+        private long linhaAtual;
+        private long linhaDoRegistro;
+
+        LeitorRegistros(Reader entrada, Formato formato) {
+            this.entrada = entrada instanceof BufferedReader ? (BufferedReader) entrada : new BufferedReader(entrada, 1 << 16);
+            this.formato = formato;
+        }
+
+        String proximo() throws IOException {
+            String linha = entrada.readLine();
+            if (linha == null) {
+                return null;
+            }
+            linhaDoRegistro = ++linhaAtual;
+            if (formato != Formato.CSV || aspasEquilibradas(linha)) {
+                return linha;
+            }
+            StringBuilder registro = new StringBuilder(linha);
+            String continuacao;
+            while ((continuacao = entrada.readLine()) != null) {
+                linhaAtual++;
+                registro.append('\n').append(continuacao);
+                if (aspasEquilibradas(registro)) {
+                    break;
+                }
+            }
+            return registro.toString();
+        }
+
+        long getLinhaDoRegistro() {
+            return linhaDoRegistro;
+        }
+
+        private static boolean aspasEquilibradas(CharSequence texto) {
+            int aspas = 0;
+            for (int i = 0; i < texto.length(); i++) {
+                if (texto.charAt(i) == '"') {
+                    aspas++;
+                }
+            }
+            return aspas % 2 == 0;
+        }
+    }
+
+    // Exportao
+
+    /**
+     * Exporta a verso atual dos usurios para um arquivo, com o formato deduzido pela extenso.
+     *
+     * @param sistema Sistema de origem
+     * @param arquivo Arquivo de destino, gravado em UTF-8
+     * @return Quantidade de registros gravados
+     * @throws IOException Se o arquivo no puder ser gravado
+     */
+    public static long exportar(Sistema sistema, Path arquivo) throws IOException {
+        try (Writer saida = Files.newBufferedWriter(arquivo, StandardCharsets.UTF_8)) {
+            return exportar(sistema.getVersaoAtual(), saida, Formato.doArquivo(arquivo));
+        }
+    }
+
+    /**
+     * Exporta usurios para um fluxo de caracteres. Todos os registros {@code usuario} e
+     * {@code atributo} vm antes das amizades, convites e recados, de modo que o resultado pode ser
+     * importado em uma nica passada.
+     *
+     * @param usuarios Verso dos usurios a exportar (ver {@link Sistema#getVersaoAtual()})
+     * @param saida Fluxo de destino
+     * @param formato Formato dos registros
+     * @return Quantidade de registros gravados
+     * @throws IOException Se o fluxo no puder ser gravado
+     */
+    public static long exportar(Map<String, Usuario> usuarios, Writer saida, Formato formato) throws IOException {
+        Writer destino = saida instanceof BufferedWriter ? saida : new BufferedWriter(saida, 1 << 16);
+        long registros = 0;
+        for (Usuario usuario : usuarios.values()) {
+            escrever(destino, formato, "usuario", usuario.getLogin(), usuario.getSenha(), usuario.getNome());
+            registros++;
+            for (Map.Entry<String, String> atributo : usuario.getAtributos().entrySet()) {
+                escrever(destino, formato, "atributo", usuario.getLogin(), atributo.getKey(), atributo.getValue());
+                registros++;
+            }
+        }
+        for (Usuario usuario : usuarios.values()) {
+            String login = usuario.getLogin();
+            for (String outro : usuario.getRelacionamentos()) {
+                if (usuario.temConvitePendente(outro)) {
+                    escrever(destino, formato, "convite", login, outro);
+                    registros++;
+                } else if (login.compareTo(outro) < 0) { // amizades so simtricas: grava uma vez
+                    escrever(destino, formato, "amizade", login, outro);
+                    registros++;
+                }
+            }
+            for (Recado recado : usuario.getRecados(0, usuario.getQuantidadeRecados())) {
+                escrever(destino, formato, "recado", login, null, recado.getMensagem(),
+                        Long.toString(recado.getInstante()));
+                registros++;
+            }
+        }
+        destino.flush();
+        return registros;
+    }
+
+    /**
+     * Grava um nico registro no formato de importao, para quem gera arquivos de carga sem
+     * passar por um {@link Sistema}.
+     *
+     * @param saida Fluxo de destino
+     * @param formato Formato do registro
+     * @param tipo Tipo do registro ({@code usuario}, {@code atributo}, {@code amizade}, {@code convite} ou {@code recado})
+     * @param valores Valores dos campos, na ordem do tipo
+     * @throws IOException Se o fluxo no puder ser gravado
+     * @throws IllegalArgumentException Se o tipo for desconhecido ou a quantidade de valores no corresponder a ele
+     *         (o instante de um recado pode ser omitido)
+     */
+    public static void escreverRegistro(Writer saida, Formato formato, String tipo, String... valores)
+            throws IOException {
+        int campos = camposDoTipo(tipo).length;
+        if (valores.length != campos && !(tipo.equals("recado") && valores.length == campos - 1)) {
+            throw new IllegalArgumentException("Quantidade de campos invlida para " + tipo + ".");
+        }
+        escrever(saida, formato, tipo, valores);
+    }
+
+    private static void escrever(Writer saida, Formato formato, String tipo, String... valores) throws IOException {
+        String[] nomes = camposDoTipo(tipo);
+        if (formato == Formato.CSV) {
+            saida.write(tipo);
+            for (String valor : valores) {
+                saida.write(',');
+                escreverCsv(saida, valor);
+            }
+        } else {
+            saida.write("{\"tipo\":\"");
+            saida.write(tipo);
+            saida.write('"');
+            for (int i = 0; i < valores.length; i++) {
+                saida.write(",\"");
+                saida.write(nomes[i]);
+                saida.write("\":");
+                escreverJson(saida, valores[i]);
+            }
+            saida.write('}');
+        }
+        saida.write('\n');
+    }
+
+    // CSV
+
+    private static void escreverCsv(Writer saida, String valor) throws IOException {
+        if (valor == null) {
+            return;
+        }
+        boolean aspas = valor.isEmpty() || valor.indexOf(',') >= 0 || valor.indexOf('"') >= 0
+                || valor.indexOf('\n') >= 0 || valor.indexOf('\r') >= 0;
+        if (!aspas) {
+            saida.write(valor);
+            return;
+        }
+        saida.write('"');
+        saida.write(valor.replace("\"", "\"\""));
+        saida.write('"');
+    }
+
+    /**
+     * Interpreta um registro CSV. Campos entre aspas podem conter vrgulas, quebras de linha e
+     * aspas duplicadas; um campo vazio sem aspas vale null, e {@code ""} vale o texto vazio.
+     *
+     * @return Campos nomeados, ou null se o registro for o cabealho
+     */
+    private static Map<String, String> camposCsv(String registro) {
+        List<String> valores = new ArrayList<>(4);
+        StringBuilder atual = new StringBuilder();
+        boolean entreAspas = false;
+        boolean citado = false;
+        for (int i = 0; i < registro.length(); i++) {
+            char c = registro.charAt(i);
+            if (entreAspas) {
+                if (c == '"') {
+                    if (i + 1 < registro.length() && registro.charAt(i + 1) == '"') {
+                        atual.append('"');
+                        i++;
+                    } else {
+                        entreAspas = false;
+                    }
+                } else {
+                    atual.append(c);
+                }
+            } else if (c == '"') {
+                entreAspas = true;
+                citado = true;
+            } else if (c == ',') {
+                valores.add(citado || atual.length() > 0 ? atual.toString() : null);
+                atual.setLength(0);
+                citado = false;
+            } else if (c != '\r') {
+                atual.append(c);
+            }
+        }
+        valores.add(citado || atual.length() > 0 ? atual.toString() : null);
+
+        String tipo = valores.get(0);
+        if ("tipo".equals(tipo)) {
+            return null;
+        }
+        if (tipo == null) {
+            throw new IllegalArgumentException("Tipo de registro ausente.");
+        }
+        String[] nomes = camposDoTipo(tipo);
+        if (valores.size() - 1 > nomes.length) {
+            throw new IllegalArgumentException("Campos demais para o tipo " + tipo + ".");
+        }
+        Map<String, String> campos = new HashMap<>();
+        campos.put("tipo", tipo);
+        for (int i = 1; i < valores.size(); i++) {
+            campos.put(nomes[i - 1], valores.get(i));
+        }
+        return campos;
+    }
+
+    // JSON
+
+    private static void escreverJson(Writer saida, String valor) throws IOException {
+        if (valor == null) {
+            saida.write("null");
+            return;
+        }
+        saida.write('"');
+        int trecho = 0; // incio do trecho que no precisa de escape
+        for (int i = 0; i < valor.length(); i++) {
+            char c = valor.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\') {
+                continue;
+            }
+            saida.write(valor, trecho, i - trecho);
+            trecho = i + 1;
+            switch (c) {
+                case '"':
+                    saida.write("\\\"");
+                    break;
+                case '\\':
+                    saida.write("\\\\");
+                    break;
+                case '\n':
+                    saida.write("\\n");
+                    break;
+                case '\r':
+                    saida.write("\\r");
+                    break;
+                case '\t':
+                    saida.write("\\t");
+                    break;
+                default:
+                    saida.write(String.format("\\u%04x", (int) c));
+            }
+        }
+        saida.write(valor, trecho, valor.length() - trecho);
+        saida.write('"');
+    }
+
+    /**
+     * Interpreta um objeto JSON plano, cujos valores so textos ou null.
+     */
+    private static Map<String, String> lerObjetoJson(String texto) {
+        Map<String, String> campos = new HashMap<>();
+        int[] pos = {0};
+        esperar(texto, pos, '{');
+        pularEspacos(texto, pos);
+        if (pos[0] < texto.length() && texto.charAt(pos[0]) == '}') {
+            pos[0]++;
+        } else {
+            while (true) {
+                pularEspacos(texto, pos);
+                String nome = lerTextoJson(texto, pos);
+                esperar(texto, pos, ':');
+                pularEspacos(texto, pos);
+                campos.put(nome, lerValorJson(texto, pos));
+                pularEspacos(texto, pos);
+                if (pos[0] < texto.length() && texto.charAt(pos[0]) == ',') {
+                    pos[0]++;
+                    continue;
+                }
+                esperar(texto, pos, '}');
+                break;
+            }
+        }
+        pularEspacos(texto, pos);
+        if (pos[0] != texto.length()) {
+            throw new IllegalArgumentException("JSON invlido: contedo aps o objeto.");
+        }
+        return campos;
+    }
+
+    private static String lerValorJson(String texto, int[] pos) {
+        if (pos[0] < texto.length() && texto.charAt(pos[0]) == '"') {
+            return lerTextoJson(texto, pos);
+        }
+        int inicio = pos[0];
+        while (pos[0] < texto.length() && ",} \t".indexOf(texto.charAt(pos[0])) < 0) {
+            pos[0]++;
+        }
+        String literal = texto.substring(inicio, pos[0]);
+        if (literal.isEmpty()) {
+            throw new IllegalArgumentException("JSON invlido: valor ausente na posio " + inicio + ".");
+        }
+        return "null".equals(literal) ? null : literal;
+    }
+
+    private static String lerTextoJson(String texto, int[] pos) {
+        if (pos[0] >= texto.length() || texto.charAt(pos[0]) != '"') {
+            throw new IllegalArgumentException("JSON invlido: texto esperado na posio " + pos[0] + ".");
+        }
+        StringBuilder valor = new StringBuilder();
+        int i = pos[0] + 1;
+        while (i < texto.length()) {
+            char c = texto.charAt(i++);
+            if (c == '"') {
+                pos[0] = i;
+                return valor.toString();
+            }
+            if (c != '\\') {
+                valor.append(c);
+                continue;
+            }
+            if (i >= texto.length()) {
+                break;
+            }
+            char escape = texto.charAt(i++);
+            switch (escape) {
+                case 'n':
+                    valor.append('\n');
+                    break;
+                case 'r':
+                    valor.append('\r');
+                    break;
+                case 't':
+                    valor.append('\t');
+                    break;
+                case 'b':
+                    valor.append('\b');
+                    break;
+                case 'f':
+                    valor.append('\f');
+                    break;
+                case 'u':
+                    if (i + 4 > texto.length()) {
+                        throw new IllegalArgumentException("JSON invlido: escape \\u incompleto.");
+                    }
+                    try {
+                        valor.append((char) Integer.parseInt(texto.substring(i, i + 4), 16));
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("JSON invlido: escape \\u malformado.");
+                    }
+                    i += 4;
+                    break;
+                default:
+                    valor.append(escape); // \" \\ \/
+            }
+        }
+        throw new IllegalArgumentException("JSON invlido: texto no terminado.");
+    }
+
+    private static void esperar(String texto, int[] pos, char esperado) {
+        pularEspacos(texto, pos);
+        if (pos[0] >= texto.length() || texto.charAt(pos[0]) != esperado) {
+            throw new IllegalArgumentException("JSON invlido: '" + esperado + "' esperado na posio " + pos[0] + ".");
+        }
+        pos[0]++;
+    }
+
+    private static void pularEspacos(String texto, int[] pos) {
+        while (pos[0] < texto.length() && Character.isWhitespace(texto.charAt(pos[0]))) {
+            pos[0]++;
+        }
+    }
+
+    /**
+     * Resumo de uma importao: registros aceitos por tipo e registros rejeitados.
+     */
+    public static final class Resultado {
+        private final Map<String, Long> aceitos = new TreeMap<>();
+        private final List<String> erros = new ArrayList<>();
+        private long rejeitados;
+
+        void contar(String tipo) {
+            aceitos.merge(tipo, 1L, Long::sum);
+        }
+
+        void rejeitar(long linha, String motivo) {
+            rejeitados++;
+            if (erros.size() < MAXIMO_ERROS_GUARDADOS) {
+                erros.add("linha " + linha + ": " + motivo);
+            }
+        }
+
+        /**
+         * Obtm a quantidade de registros aceitos de um tipo.
+         *
+         * @param tipo Tipo de registro ({@code usuario}, {@code atributo}, {@code amizade}, {@code convite} ou {@code recado})
+         * @return Registros aceitos
+         */
+        public long getAceitos(String tipo) {
+            return aceitos.getOrDefault(tipo, 0L);
+        }
+
+        /**
+         * Obtm a quantidade de registros rejeitados.
+         *
+         * @return Registros rejeitados
+         */
+        public long getRejeitados() {
+            return rejeitados;
+        }
+
+        /**
+         * Obtm a descrio dos primeiros registros rejeitados, com o nmero da linha.
+         *
+         * @return At 100 mensagens de erro
+         */
+        public List<String> getErros() {
+            return Collections.unmodifiableList(erros);
+        }
+
+        @Override
+        public String toString() {
+            return "aceitos=" + aceitos + ", rejeitados=" + rejeitados;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package entidades;
+
+import java.io.*;
+import java.util.zip.CRC32C;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import entidades.exceptions.*;
+
+/**
+ * Fluxo de entrada que l os blocos gravados por {@link SaidaBlocos}, descomprimindo e verificando
+ * o CRC32C de cada bloco  medida que os dados so consumidos.
+ *
+ * <p>Apenas um bloco fica em memria por vez. Um bloco corrompido  informado com o seu ndice
+ * e posio dentro do fluxo, identificando exatamente onde est o dano. Como o
+ * {@link ObjectInputStream} pode mascarar excees do fluxo subjacente, a falha tambm fica
+ * disponvel em {@link #falha()}.</p>
+ */
+class EntradaBlocos extends InputStream {
+    private final DataInputStream origem;
+    private final String recurso;
+    private final Inflater inflater = new Inflater(true);
+    private final byte[] bloco = new byte[SaidaBlocos.TAMANHO_BLOCO];
+    private final byte[] gravado = new byte[SaidaBlocos.TAMANHO_BLOCO];
+    private final CRC32C crc = new CRC32C();
+    private int posicao;
+    private int limite;
+    private int indiceBloco = -1;
+    private long deslocamento;
+    private boolean fim;
+    private PersistenciaException falha;
+
+    /**
+     * Cria um leitor de blocos.
+     *
+     * @param origem Fluxo contendo os blocos (no  fechado por esta classe)
+     * @param recurso Descrio do recurso lido, usada nas mensagens de erro
+     */
+    EntradaBlocos(InputStream origem, String recurso) {
+        this.origem = new DataInputStream(origem);
+        this.recurso = recurso;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (posicao == limite && !carregarBloco()) {
+            return -1;
+        }
+        return bloco[posicao++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (posicao == limite && !carregarBloco()) {
+            return -1;
+        }
+        int n = Math.min(len, limite - posicao);
+        System.arraycopy(bloco, posicao, b, off, n);
+        posicao += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return limite - posicao;
+    }
+
+    @Override
+    public void close() {
+        inflater.end();
+    }
+
+    /**
+     * Indica se o marcador de fim do fluxo de blocos j foi lido.
+     *
+     * @return true se todos os blocos foram consumidos
+     */
+    boolean terminou() {
+        return fim;
+    }
+
+    /**
+     * Obtm a falha de integridade detectada durante a leitura, se houver.
+     *
+     * @return Exceo descrevendo o bloco corrompido, ou null se nenhum dano foi encontrado
+     */
+    PersistenciaException falha() {
+        return falha;
+    }
+
+    private boolean carregarBloco() throws IOException {
+        if (falha != null) {
+            throw falha;
+        }
+        if (fim) {
+            return false;
+        }
+        indiceBloco++;
+        long inicio = deslocamento;
+
+        byte codec;
+        int tamanhoOriginal;
+        int tamanhoGravado;
+        int crcEsperado;
+        try {
+            codec = origem.readByte();
+            tamanhoOriginal = origem.readInt();
+            tamanhoGravado = origem.readInt();
+            crcEsperado = origem.readInt();
+        } catch (EOFException e) {
+            throw corrompido(inicio, "Fluxo truncado antes do marcador de fim");
+        }
+        deslocamento += 13;
+
+        if (tamanhoOriginal == 0) {
+            fim = true;
+            return false;
+        }
+        if (tamanhoOriginal < 0 || tamanhoOriginal > bloco.length
+                || tamanhoGravado < 0 || tamanhoGravado > gravado.length) {
+            throw corrompido(inicio, "Cabealho de bloco invlido");
+        }
+
+        try {
+            origem.readFully(gravado, 0, tamanhoGravado);
+        } catch (EOFException e) {
+            throw corrompido(inicio, "Bloco truncado");
+        }
+        deslocamento += tamanhoGravado;
+
+        if (codec == SaidaBlocos.CODEC_ARMAZENADO && tamanhoGravado == tamanhoOriginal) {
+            System.arraycopy(gravado, 0, bloco, 0, tamanhoOriginal);
+        } else if (codec == SaidaBlocos.CODEC_DEFLATE) {
+            descomprimir(inicio, tamanhoGravado, tamanhoOriginal);
+        } else {
+            throw corrompido(inicio, "Codec de bloco desconhecido: " + codec);
+        }
+
+        crc.reset();
+        crc.update(bloco, 0, tamanhoOriginal);
+        if ((int) crc.getValue() != crcEsperado) {
+            throw corrompido(inicio, "Checksum CRC32C no confere");
+        }
+
+        posicao = 0;
+        limite = tamanhoOriginal;
+        return true;
+    }
+
+    private void descomprimir(long inicio, int tamanhoGravado, int tamanhoOriginal) {
+        inflater.reset();
+        inflater.setInput(gravado, 0, tamanhoGravado);
+        try {
+            int n = inflater.inflate(bloco, 0, tamanhoOriginal);
+            if (n != tamanhoOriginal || !inflater.finished()) {
+                throw corrompido(inicio, "Tamanho descomprimido no confere");
+            }
+        } catch (DataFormatException e) {
+            throw corrompido(inicio, "Dados comprimidos invlidos: " + e.getMessage());
+        }
+    }
+
+    private PersistenciaException corrompido(long inicio, String detalhe) {
+        falha = new PersistenciaException("Dados corrompidos",
+                recurso + ", bloco " + indiceBloco + " (byte " + inicio + ")", detalhe);
+        return falha;
+    }
+}
@@ -0,0 +1,81 @@
+package entidades;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Registro de avisos de chegada de recados, por login.
+ *
+ * <p>Cada aviso  disparado uma nica vez: {@link #avisar(String)} retira todos os avisos do login
+ * e os executa no {@link Executor} configurado, fora da thread que entregou o recado. Um aviso
+ * retirado por {@link #remover} no  mais executado, o que permite decidir sem ambiguidade entre
+ * a chegada de um recado e o fim do prazo de espera.</p>
+ */
+class EsperasRecados {
+    private final ConcurrentHashMap<String, List<Runnable>> avisos = new ConcurrentHashMap<>();
+    private final Executor executor;
+
+    /**
+     * Cria o registro, executando os avisos no executor informado.
+     *
+     * @param executor Executor dos avisos
+     */
+    EsperasRecados(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Registra um aviso para o prximo recado entregue ao login.
+     *
+     * @param login Login do destinatrio
+     * @param aviso Ao executada quando chegar um recado
+     */
+    void registrar(String login, Runnable aviso) {
+        avisos.compute(login, (chave, lista) -> {
+            if (lista == null) {
+                lista = new ArrayList<>(2);
+            }
+            lista.add(aviso);
+            return lista;
+        });
+    }
+
+    /**
+     * Retira um aviso ainda no disparado.
+     *
+     * @param login Login do destinatrio
+     * @param aviso Aviso registrado
+     * @return true se o aviso foi retirado e no ser executado; false se ele j foi disparado
+     */
+    boolean remover(String login, Runnable aviso) {
+        boolean[] removido = new boolean[1];
+        avisos.computeIfPresent(login, (chave, lista) -> {
+            removido[0] = lista.remove(aviso);
+            return lista.isEmpty() ? null : lista;
+        });
+        return removido[0];
+    }
+
+    /**
+     * Dispara todos os avisos registrados para o login.
+     *
+     * @param login Login que recebeu um recado
+     */
+    void avisar(String login) {
+        List<Runnable> disparados = avisos.remove(login);
+        if (disparados != null) {
+            for (Runnable aviso : disparados) {
+                executor.execute(aviso);
+            }
+        }
+    }
+
+    /**
+     * Dispara os avisos de todos os logins, usado quando o estado inteiro  substitudo.
+     */
+    void avisarTodos() {
+        for (String login : avisos.keySet()) {
+            avisar(login);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package entidades;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.concurrent.atomic.LongAdder;
+import entidades.exceptions.UsuarioNaoCadastradoException;
+
+/**
+ * Aplica uma {@link PoliticaRetencao} em segundo plano, descartando os recados no lidos que
+ * expiraram por idade ou que excedem o mximo por caixa de entrada.
+ *
+ * <p>A varredura percorre os usurios de uma verso fixa do {@link Sistema} em fatias curtas, de at
+ * {@link #USUARIOS_POR_FATIA} usurios ou {@link #DURACAO_FATIA_NANOS} nanossegundos, com uma pausa
+ * entre as fatias; nunca bloqueia o sistema por mais que a aplicao de uma mutao. Cada caixa com
+ * recados a descartar recebe uma mutao {@link Mutacao.Tipo#EXPIRAR_RECADOS}, que  replicada como
+ * as demais. Terminada uma passada, a prxima comea aps o intervalo configurado, sobre a verso
+ * ento corrente.</p>
+ *
+ * <p>Uma falha ao expurgar uma caixa (por exemplo, uma {@code PersistenciaException} ao registrar a
+ * mutao)  relatada e contada, e a varredura segue para o prximo usurio; a caixa  tentada de
+ * novo na passada seguinte.</p>
+ *
+ * <p>As quantidades descartadas, as falhas e o progresso da varredura ficam disponveis como
+ * mtricas.</p>
+ */
+public class ExpurgoRecados implements Closeable {
+    static final int USUARIOS_POR_FATIA = 256;
+    static final long DURACAO_FATIA_NANOS = 2_000_000;
+    private static final long PAUSA_ENTRE_FATIAS_MILLIS = 10;
+
+    private final Sistema sistema;
+    private final long intervaloMillis;
+    private final Thread thread;
+    private volatile PoliticaRetencao politica;
+    private volatile boolean ativo = true;
+
+    private final LongAdder expiradosPorIdade = new LongAdder();
+    private final LongAdder expiradosPorExcesso = new LongAdder();
+    private final LongAdder usuariosVerificados = new LongAdder();
+    private final LongAdder varreduras = new LongAdder();
+    private final LongAdder falhas = new LongAdder();
+
+    /**
+     * Inicia o expurgo em segundo plano.
+     *
+     * @param sistema Sistema cujas caixas de entrada sero expurgadas
+     * @param politica Poltica de reteno
+     * @param intervaloMillis Intervalo entre o fim de uma passada e o incio da seguinte
+     */
+    public ExpurgoRecados(Sistema sistema, PoliticaRetencao politica, long intervaloMillis) {
+        if (politica == null) {
+            throw new IllegalArgumentException("Poltica de reteno no informada.");
+        }
+        if (intervaloMillis < 0) {
+            throw new IllegalArgumentException("Intervalo no pode ser negativo.");
+        }
+        this.sistema = sistema;
+        this.politica = politica;
+        this.intervaloMillis = intervaloMillis;
+
+        thread = new Thread(this::varrer, "jackut-expurgo");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Troca a poltica de reteno. Vale a partir da prxima fatia da varredura.
+     *
+     * @param politica Nova poltica
+     */
+    public void setPolitica(PoliticaRetencao politica) {
+        if (politica == null) {
+            throw new IllegalArgumentException("Poltica de reteno no informada.");
+        }
+        this.politica = politica;
+    }
+
+    /**
+     * Obtm a poltica de reteno em vigor.
+     *
+     * @return Poltica atual
+     */
+    public PoliticaRetencao getPolitica() {
+        return politica;
+    }
+
+    /**
+     * Obtm a quantidade de recados descartados por terem passado da idade mxima.
+     *
+     * @return Recados expirados por idade
+     */
+    public long getRecadosExpiradosPorIdade() {
+        return expiradosPorIdade.sum();
+    }
+
+    /**
+     * Obtm a quantidade de recados descartados por excederem o mximo por caixa de entrada.
+     *
+     * @return Recados descartados por excesso
+     */
+    public long getRecadosExpiradosPorExcesso() {
+        return expiradosPorExcesso.sum();
+    }
+
+    /**
+     * Obtm a quantidade de caixas de entrada verificadas desde o incio.
+     *
+     * @return Usurios verificados
+     */
+    public long getUsuariosVerificados() {
+        return usuariosVerificados.sum();
+    }
+
+    /**
+     * Obtm a quantidade de passadas completas sobre todos os usurios.
+     *
+     * @return Varreduras completas
+     */
+    public long getVarredurasCompletas() {
+        return varreduras.sum();
+    }
+
+    /**
+     * Obtm a quantidade de caixas de entrada cujo expurgo falhou.
+     *
+     * @return Falhas de expurgo
+     */
+    public long getFalhas() {
+        return falhas.sum();
+    }
+
+    /**
+     * Interrompe o expurgo.
+     */
+    @Override
+    public void close() {
+        ativo = false;
+        thread.interrupt();
+    }
+
+    private void varrer() {
+        try {
+            while (ativo) {
+                Iterator<Usuario> usuarios = sistema.getVersaoAtual().values().iterator();
+                while (ativo && usuarios.hasNext()) {
+                    varrerFatia(usuarios);
+                    Thread.sleep(PAUSA_ENTRE_FATIAS_MILLIS);
+                }
+                varreduras.increment();
+                Thread.sleep(intervaloMillis);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void varrerFatia(Iterator<Usuario> usuarios) {
+        PoliticaRetencao politica = this.politica;
+        long limite = politica.limiteDeIdade(System.currentTimeMillis());
+        int maximo = politica.getMaximoPorCaixa();
+        long fim = System.nanoTime() + DURACAO_FATIA_NANOS;
+        for (int i = 0; i < USUARIOS_POR_FATIA && usuarios.hasNext() && System.nanoTime() < fim; i++) {
+            Usuario usuario = usuarios.next();
+            usuariosVerificados.increment();
+            int[] expirados = usuario.contarRecadosExpirados(limite, maximo);
+            if (expirados[0] + expirados[1] > 0) {
+                expurgar(usuario.getLogin(), limite, maximo);
+            }
+        }
+    }
+
+    private void expurgar(String login, long limite, int maximo) {
+        try {
+            // A verso varrida pode estar defasada: a mutao reavalia a caixa no estado atual
+            int[] expirados = (int[]) sistema.registrar(Mutacao.expirarRecados(login, limite, maximo));
+            expiradosPorIdade.add(expirados[0]);
+            expiradosPorExcesso.add(expirados[1]);
+        } catch (UsuarioNaoCadastradoException e) {
+            // usurio removido (sistema zerado) depois da verso varrida
+        } catch (RuntimeException e) { // deix-la escapar encerraria a thread de expurgo
+            falhas.increment();
+            System.err.println("Expurgo de recados de " + login + " falhou: " + e);
+        }
+    }
+}
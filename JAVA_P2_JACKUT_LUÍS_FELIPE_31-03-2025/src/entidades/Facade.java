@@ -1,6 +1,8 @@
 package entidades;
 
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.*;
 import entidades.exceptions.*;
 
 /**
@@ -8,13 +10,93 @@ import entidades.exceptions.*;
  * Centraliza as operaes relacionadas a usurios, perfis, amizades e mensagens.
  */
 public class Facade {
+    private static final String ARQUIVO_DADOS_REPLICA = "dados_jackut_replica.ser";
+
     private final Sistema sistema;
+    private final SeguidorReplicacao seguidor; // null se esta instncia aceita escritas
 
     /**
      * Constri uma nova instncia da Facade, inicializando o sistema interno.
      */
     public Facade() {
-        this.sistema = new Sistema();
+        this(new Sistema(), null);
+    }
+
+    /**
+     * Constri uma Facade sobre um sistema j criado, por exemplo com um armazenamento prprio
+     * (ver {@link Sistema#Sistema(MotorArmazenamento)}).
+     *
+     * @param sistema Sistema a ser usado
+     */
+    public Facade(Sistema sistema) {
+        this(sistema, null);
+    }
+
+    private Facade(Sistema sistema, SeguidorReplicacao seguidor) {
+        this.sistema = sistema;
+        this.seguidor = seguidor;
+    }
+
+    /**
+     * Obtm o sistema usado por esta Facade, para camadas construdas sobre ela.
+     *
+     * @return Sistema interno
+     */
+    Sistema getSistema() {
+        return sistema;
+    }
+
+    // Replicao
+
+    /**
+     * Cria uma Facade somente leitura que replica o estado de um lder Jackut pela rede.
+     * Consultas como {@link #getAtributoUsuario}, {@link #ehAmigo} e {@link #getAmigos} so
+     * atendidas pela rplica local; operaes de escrita so recusadas.
+     *
+     * @param host Endereo do lder
+     * @param porta Porta em que o lder aceita rplicas
+     * @return Facade rplica
+     * @see #iniciarReplicacao(int)
+     */
+    public static Facade seguidor(String host, int porta) {
+        Sistema sistema = new Sistema(ARQUIVO_DADOS_REPLICA);
+        return new Facade(sistema, new SeguidorReplicacao(sistema, host, porta));
+    }
+
+    /**
+     * Passa a publicar as mutaes desta instncia para rplicas conectadas na porta informada.
+     *
+     * @param porta Porta TCP local (0 para escolher uma porta livre)
+     * @return Lder de replicao, que informa a porta efetiva e pode ser encerrado
+     * @throws IOException Se a porta no puder ser aberta
+     */
+    public LiderReplicacao iniciarReplicacao(int porta) throws IOException {
+        verificarEscrita();
+        return new LiderReplicacao(sistema, porta);
+    }
+
+    /**
+     * Obtm o seguidor de replicao desta instncia, para consulta de atraso.
+     *
+     * @return Seguidor de replicao, ou null se esta instncia no  uma rplica
+     */
+    public SeguidorReplicacao getReplicacao() {
+        return seguidor;
+    }
+
+    // Reteno de recados
+
+    /**
+     * Passa a descartar em segundo plano os recados no lidos que violam a poltica de reteno.
+     *
+     * @param politica Poltica de reteno
+     * @param intervaloMillis Intervalo entre passadas completas sobre os usurios
+     * @return Expurgo em execuo, que expe as mtricas e pode ser encerrado
+     * @throws OperacaoNaoPermitidaException Se esta instncia for uma rplica
+     */
+    public ExpurgoRecados iniciarExpurgo(PoliticaRetencao politica, long intervaloMillis) {
+        verificarEscrita();
+        return new ExpurgoRecados(sistema, politica, intervaloMillis);
     }
 
     // US1 - User Account Management
@@ -28,16 +110,8 @@ public class Facade {
      * @throws IllegalArgumentException Se o login, senha forem invlidos ou se o usurio j existir
      */
     public void criarUsuario(String login, String senha, String nome) {
-        try {
-            Usuario novoUsuario = new Usuario(login, senha, nome);
-            sistema.adicionarUsuario(novoUsuario);
-        } catch (LoginInvalidoException e) {
-            throw new IllegalArgumentException("Login invlido.");
-        } catch (SenhaInvalidaException e) {
-            throw new IllegalArgumentException("Senha invlida.");
-        } catch (UsuarioJaExisteException e) {
-            throw new IllegalArgumentException("Conta com esse nome j existe.");
-        }
+        verificarEscrita();
+        sistema.registrar(Mutacao.criarUsuario(login, senha, nome));
     }
 
     /**
@@ -49,11 +123,7 @@ public class Facade {
      * @throws IllegalArgumentException Se o login ou senha forem invlidos
      */
     public String abrirSessao(String login, String senha) {
-        try {
-            return sistema.abrirSessao(login, senha);
-        } catch (LoginOuSenhaInvalidosException e) {
-            throw new IllegalArgumentException("Login ou senha invlidos.");
-        }
+        return sistema.abrirSessao(login, senha);
     }
 
     /**
@@ -67,7 +137,7 @@ public class Facade {
     public String getAtributoUsuario(String login, String atributo) {
         Usuario usuario = sistema.getUsuario(login);
         if (usuario == null) {
-            throw new IllegalArgumentException("Usurio no cadastrado.");
+            throw UsuarioNaoCadastradoException.INSTANCIA;
         }
 
         if ("nome".equals(atributo)) {
@@ -75,7 +145,7 @@ public class Facade {
         }
 
         if (!usuario.possuiAtributo(atributo)) {
-            throw new IllegalArgumentException("Atributo no preenchido.");
+            throw AtributoNaoPreenchidoException.INSTANCIA;
         }
         return usuario.getAtributo(atributo);
     }
@@ -91,18 +161,19 @@ public class Facade {
      * @throws IllegalArgumentException Se a sesso for invlida ou o usurio no existir
      */
     public void editarPerfil(String idSessao, String atributo, String valor) {
+        verificarEscrita();
         if (idSessao == null || idSessao.isEmpty()) {
-            throw new IllegalArgumentException("Usurio no cadastrado.");
+            throw UsuarioNaoCadastradoException.INSTANCIA;
         }
 
         String login = sistema.getLoginPorSessao(idSessao);
         Usuario usuario = sistema.getUsuario(login);
 
         if (usuario == null) {
-            throw new IllegalArgumentException("Usurio no cadastrado.");
+            throw UsuarioNaoCadastradoException.INSTANCIA;
         }
 
-        usuario.editarAtributo(atributo, valor);
+        sistema.registrar(Mutacao.editarAtributo(login, atributo, valor));
     }
 
     // US3 - Friendship Management
@@ -116,39 +187,18 @@ public class Facade {
      *         tentar adicionar a si mesmo, ou se a amizade j existir
      */
     public void adicionarAmigo(String idSessao, String amigo) {
+        verificarEscrita();
         if (idSessao == null || idSessao.isEmpty()) {
-            throw new IllegalArgumentException("Usurio no cadastrado.");
+            throw UsuarioNaoCadastradoException.INSTANCIA;
         }
 
         String login = sistema.getLoginPorSessao(idSessao);
 
         if (login.equals(amigo)) {
-            throw new IllegalArgumentException("Usurio no pode adicionar a si mesmo como amigo.");
-        }
-
-        Usuario usuario = sistema.getUsuario(login);
-        Usuario amigoUsuario = sistema.getUsuario(amigo);
-
-        if (amigoUsuario == null) {
-            throw new IllegalArgumentException("Usurio no cadastrado.");
-        }
-
-        if (usuario.ehAmigo(amigo)) {
-            throw new IllegalArgumentException("Usurio j est adicionado como amigo.");
+            throw AutoAmizadeException.INSTANCIA;
         }
 
-        if (usuario.temConvitePendente(amigo)) {
-            throw new IllegalArgumentException("Usurio j est adicionado como amigo, esperando aceitao do convite.");
-        }
-
-        if (amigoUsuario.temConvitePendente(login)) {
-            // Aceitao mtua
-            usuario.adicionarAmizade(amigo, true);
-            amigoUsuario.adicionarAmizade(login, true);
-        } else {
-            // Envia convite
-            usuario.adicionarAmizade(amigo, false);
-        }
+        sistema.registrarAmizade(login, amigo);
     }
 
     /**
@@ -174,7 +224,6 @@ public class Facade {
         if (usuario == null) {
             return "{}";
         }
-
         LinkedHashSet<String> amigos = usuario.getAmigosOrdenados();
         if (amigos.isEmpty()) {
             return "{}";
@@ -202,18 +251,19 @@ public class Facade {
      *         ou tentar enviar mensagem para si mesmo
      */
     public void enviarRecado(String idSessao, String destinatario, String recado) {
+        verificarEscrita();
         String remetente = sistema.getLoginPorSessao(idSessao);
 
         if (remetente.equals(destinatario)) {
-            throw new IllegalArgumentException("Usurio no pode enviar recado para si mesmo.");
+            throw RecadoParaSiException.INSTANCIA;
         }
 
         Usuario usuarioDestino = sistema.getUsuario(destinatario);
         if (usuarioDestino == null) {
-            throw new IllegalArgumentException("Usurio no cadastrado.");
+            throw UsuarioNaoCadastradoException.INSTANCIA;
         }
 
-        usuarioDestino.receberRecado(remetente, recado);
+        sistema.registrar(Mutacao.recado(destinatario, remetente, recado));
     }
 
     /**
@@ -224,23 +274,123 @@ public class Facade {
      * @throws IllegalArgumentException Se no houver recados para ler
      */
     public String lerRecado(String idSessao) {
+        verificarEscrita();
         String login = sistema.getLoginPorSessao(idSessao);
-        Usuario usuario = sistema.getUsuario(login);
 
-        String recado = usuario.lerRecado();
+        String recado = (String) sistema.registrar(Mutacao.lerRecado(login));
         if (recado == null) {
-            throw new IllegalArgumentException("No h recados.");
+            throw SemRecadosException.INSTANCIA;
         }
         return recado;
     }
 
+    /**
+     * L de uma s vez at {@code maximo} recados do usurio da sesso, na ordem de chegada.
+     * Os recados devolvidos so consumidos atomicamente.
+     *
+     * @param idSessao ID da sesso do usurio
+     * @param maximo Quantidade mxima de recados a ler
+     * @return Recados lidos (lista vazia se no houver recados)
+     * @throws IllegalArgumentException Se a sesso for invlida ou a quantidade no for positiva
+     */
+    @SuppressWarnings("unchecked")
+    public List<String> lerRecados(String idSessao, int maximo) {
+        verificarEscrita();
+        if (maximo <= 0) {
+            throw new IllegalArgumentException("Quantidade invlida.");
+        }
+        String login = sistema.getLoginPorSessao(idSessao);
+        return (List<String>) sistema.registrar(Mutacao.lerRecados(login, maximo));
+    }
+
+    /**
+     * Consulta uma pgina dos recados no lidos do usurio da sesso, sem consumi-los.
+     *
+     * @param idSessao ID da sesso do usurio
+     * @param inicio Posio do primeiro recado da pgina (0  o prximo a ser lido)
+     * @param limite Quantidade mxima de recados na pgina
+     * @return Recados da pgina (lista vazia se {@code inicio} passar do fim da fila)
+     * @throws IllegalArgumentException Se a sesso for invlida ou a pgina for invlida
+     */
+    public List<String> espiarRecados(String idSessao, int inicio, int limite) {
+        if (inicio < 0 || limite <= 0) {
+            throw new IllegalArgumentException("Quantidade invlida.");
+        }
+        String login = sistema.getLoginPorSessao(idSessao);
+        List<String> pagina = new ArrayList<>();
+        for (Recado recado : sistema.getUsuario(login).getRecados(inicio, limite)) {
+            pagina.add(recado.toString());
+        }
+        return pagina;
+    }
+
+    /**
+     * Aguarda a chegada de um recado para o usurio da sesso, consumindo-o como {@link #lerRecado}.
+     * Se j houver recados, devolve o prximo imediatamente.
+     *
+     * @param idSessao ID da sesso do usurio
+     * @param prazoMillis Tempo mximo de espera, em milissegundos
+     * @return Contedo do recado, ou null se o prazo esgotar sem recados ou a thread for interrompida
+     *         antes de algum recado ser consumido
+     * @throws IllegalArgumentException Se a sesso for invlida
+     */
+    public String aguardarRecado(String idSessao, long prazoMillis) {
+        CompletableFuture<String> futuro = aguardarRecadoAsync(idSessao, prazoMillis);
+        try {
+            return futuro.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (futuro.cancel(false)) { // seno o prximo recado seria consumido por uma espera abandonada
+                return null;
+            }
+            try {
+                return futuro.join(); // o recado j foi consumido: devolv-lo em vez de descart-lo
+            } catch (CompletionException erro) {
+                throw erro.getCause() instanceof RuntimeException ? (RuntimeException) erro.getCause() : erro;
+            }
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException
+                    ? (RuntimeException) e.getCause()
+                    : new CompletionException(e.getCause());
+        }
+    }
+
+    /**
+     * Verso assncrona de {@link #aguardarRecado}: nenhuma thread fica bloqueada durante a espera.
+     *
+     * @param idSessao ID da sesso do usurio
+     * @param prazoMillis Tempo mximo de espera, em milissegundos
+     * @return Futuro com o contedo do recado, ou null se o prazo esgotar sem recados
+     * @throws IllegalArgumentException Se a sesso for invlida
+     */
+    public CompletableFuture<String> aguardarRecadoAsync(String idSessao, long prazoMillis) {
+        verificarEscrita();
+        String login = sistema.getLoginPorSessao(idSessao);
+        return sistema.aguardarRecado(login, prazoMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Assina os recados do usurio da sesso. Cada recado entregue ao assinante  consumido da fila,
+     * na ordem de chegada e conforme a demanda solicitada pelo assinante.
+     *
+     * @param idSessao ID da sesso do usurio
+     * @return Publicador dos recados
+     * @throws IllegalArgumentException Se a sesso for invlida
+     */
+    public Flow.Publisher<String> assinarRecados(String idSessao) {
+        verificarEscrita();
+        String login = sistema.getLoginPorSessao(idSessao);
+        return new PublicadorRecados(sistema, login, ForkJoinPool.commonPool());
+    }
+
     // System Control
 
     /**
      * Reinicia o sistema, removendo todos os dados.
      */
     public void zerarSistema() {
-        sistema.zerarSistema();
+        verificarEscrita();
+        sistema.registrar(Mutacao.zerar());
     }
 
     /**
@@ -250,6 +400,17 @@ public class Facade {
         sistema.encerrarSistema();
     }
 
+    /**
+     * Recusa operaes de escrita quando esta instncia  uma rplica somente leitura.
+     *
+     * @throws OperacaoNaoPermitidaException Se esta instncia for uma rplica
+     */
+    private void verificarEscrita() {
+        if (seguidor != null) {
+            throw OperacaoNaoPermitidaException.INSTANCIA;
+        }
+    }
+
     /**
      * Valida se um usurio pode adicionar outro como amigo.
      *
@@ -260,11 +421,11 @@ public class Facade {
      */
     private void validarAdicaoAmigo(String login, String amigo) {
         if (login.equals(amigo)) {
-            throw new IllegalArgumentException("Usurio no pode adicionar a si mesmo como amigo.");
+            throw AutoAmizadeException.INSTANCIA;
         }
 
         if (sistema.getUsuario(amigo) == null) {
-            throw new IllegalArgumentException("Usurio no cadastrado.");
+            throw UsuarioNaoCadastradoException.INSTANCIA;
         }
     }
 }
\ No newline at end of file
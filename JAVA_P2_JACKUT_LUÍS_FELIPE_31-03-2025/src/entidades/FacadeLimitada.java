@@ -0,0 +1,236 @@
+package entidades;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import entidades.exceptions.*;
+
+/**
+ * Facade com limitao de taxa por sesso e por usurio. Cada operao limitada tem um balde de
+ * fichas por sesso e outro por login; a requisio s prossegue se houver ficha nos dois.
+ *
+ * <p>Requisies rejeitadas lanam {@link LimiteExcedidoException#INSTANCIA}, sem alocao, e so
+ * contadas por operao em {@link #getRejeicoes()}. Requisies com sesso invlida no so
+ * limitadas: seguem para a {@link Facade}, que relata o erro como de costume.</p>
+ *
+ * <p>Na abertura de sesso s as autenticaes que falham gastam ficha, no balde do login; com o
+ * balde vazio, nenhuma tentativa  verificada at que ele se recomponha. Assim quem conhece um login
+ * no consegue bloquear o dono apenas abrindo sesses vlidas. A criao de usurios no tem sesso
+ * nem dono: todas as criaes dividem um nico balde.</p>
+ */
+public class FacadeLimitada extends Facade {
+
+    /**
+     * Operaes sujeitas a limite.
+     */
+    public enum Operacao {
+        CRIAR_USUARIO(10, 50),
+        ABRIR_SESSAO(1, 5),
+        EDITAR_PERFIL(10, 20),
+        ADICIONAR_AMIGO(5, 10),
+        ENVIAR_RECADO(20, 40),
+        LER_RECADO(100, 200),
+        ASSINAR_RECADOS(1, 5);
+
+        private final double porSegundoPadrao;
+        private final int capacidadePadrao;
+
+        Operacao(double porSegundoPadrao, int capacidadePadrao) {
+            this.porSegundoPadrao = porSegundoPadrao;
+            this.capacidadePadrao = capacidadePadrao;
+        }
+    }
+
+    private static final Operacao[] OPERACOES = Operacao.values();
+    private static final int MAXIMO_BALDES = 100_000; // por operao, antes de descartar os cheios
+    private static final String TODOS = ""; // chave do balde compartilhado por todas as criaes
+
+    private final long[] intervalos = new long[OPERACOES.length];
+    private final long[] tolerancias = new long[OPERACOES.length];
+    private final List<Map<String, BaldeFichas>> porSessao = new ArrayList<>();
+    private final List<Map<String, BaldeFichas>> porLogin = new ArrayList<>();
+    private final LongAdder[] rejeicoes = new LongAdder[OPERACOES.length];
+    private final AtomicBoolean limpando = new AtomicBoolean();
+
+    /**
+     * Constri a Facade com os limites padro de cada operao.
+     */
+    public FacadeLimitada() {
+        for (Operacao operacao : OPERACOES) {
+            definirLimite(operacao, operacao.porSegundoPadrao, operacao.capacidadePadrao);
+            porSessao.add(new ConcurrentHashMap<>());
+            porLogin.add(new ConcurrentHashMap<>());
+            rejeicoes[operacao.ordinal()] = new LongAdder();
+        }
+    }
+
+    /**
+     * Define o limite de uma operao, aplicado separadamente a cada sesso e a cada usurio (ou,
+     * na criao de usurios, a todas as criaes juntas).
+     *
+     * @param operacao Operao limitada
+     * @param porSegundo Taxa sustentada de requisies por segundo
+     * @param capacidade Quantidade de requisies aceitas em rajada
+     * @throws IllegalArgumentException Se a taxa ou a capacidade no forem positivas
+     */
+    public void definirLimite(Operacao operacao, double porSegundo, int capacidade) {
+        if (porSegundo <= 0 || capacidade < 1) {
+            throw new IllegalArgumentException("Limite invlido.");
+        }
+        long intervalo = Math.max(1, (long) (1_000_000_000L / porSegundo));
+        intervalos[operacao.ordinal()] = intervalo;
+        tolerancias[operacao.ordinal()] = intervalo * (capacidade - 1);
+    }
+
+    /**
+     * Obtm a quantidade de requisies rejeitadas de uma operao.
+     *
+     * @param operacao Operao limitada
+     * @return Total de rejeies desde a criao
+     */
+    public long getRejeicoes(Operacao operacao) {
+        return rejeicoes[operacao.ordinal()].sum();
+    }
+
+    /**
+     * Obtm a quantidade de requisies rejeitadas de cada operao.
+     *
+     * @return Mapa de operao para total de rejeies
+     */
+    public Map<Operacao, Long> getRejeicoes() {
+        Map<Operacao, Long> totais = new EnumMap<>(Operacao.class);
+        for (Operacao operacao : OPERACOES) {
+            totais.put(operacao, getRejeicoes(operacao));
+        }
+        return totais;
+    }
+
+    @Override
+    public void criarUsuario(String login, String senha, String nome) {
+        if (!consumir(porLogin, Operacao.CRIAR_USUARIO, TODOS, System.nanoTime())) {
+            throw rejeitar(Operacao.CRIAR_USUARIO);
+        }
+        super.criarUsuario(login, senha, nome);
+    }
+
+    @Override
+    public String abrirSessao(String login, String senha) {
+        // logins inexistentes no ganham balde: seno logins aleatrios fariam o mapa crescer sem limite
+        if (login == null || !getSistema().existeUsuario(login)) {
+            return super.abrirSessao(login, senha);
+        }
+        if (!temFicha(porLogin, Operacao.ABRIR_SESSAO, login, System.nanoTime())) {
+            throw rejeitar(Operacao.ABRIR_SESSAO);
+        }
+        try {
+            return super.abrirSessao(login, senha);
+        } catch (LoginOuSenhaInvalidosException e) {
+            consumir(porLogin, Operacao.ABRIR_SESSAO, login, System.nanoTime());
+            throw e;
+        }
+    }
+
+    @Override
+    public void editarPerfil(String idSessao, String atributo, String valor) {
+        limitar(Operacao.EDITAR_PERFIL, idSessao);
+        super.editarPerfil(idSessao, atributo, valor);
+    }
+
+    @Override
+    public void adicionarAmigo(String idSessao, String amigo) {
+        limitar(Operacao.ADICIONAR_AMIGO, idSessao);
+        super.adicionarAmigo(idSessao, amigo);
+    }
+
+    @Override
+    public void enviarRecado(String idSessao, String destinatario, String recado) {
+        limitar(Operacao.ENVIAR_RECADO, idSessao);
+        super.enviarRecado(idSessao, destinatario, recado);
+    }
+
+    @Override
+    public String lerRecado(String idSessao) {
+        limitar(Operacao.LER_RECADO, idSessao);
+        return super.lerRecado(idSessao);
+    }
+
+    @Override
+    public List<String> lerRecados(String idSessao, int maximo) {
+        limitar(Operacao.LER_RECADO, idSessao);
+        return super.lerRecados(idSessao, maximo);
+    }
+
+    @Override
+    public List<String> espiarRecados(String idSessao, int inicio, int limite) {
+        limitar(Operacao.LER_RECADO, idSessao);
+        return super.espiarRecados(idSessao, inicio, limite);
+    }
+
+    @Override
+    public CompletableFuture<String> aguardarRecadoAsync(String idSessao, long prazoMillis) {
+        // tambm cobre aguardarRecado, que espera por este futuro
+        limitar(Operacao.LER_RECADO, idSessao);
+        return super.aguardarRecadoAsync(idSessao, prazoMillis);
+    }
+
+    @Override
+    public Flow.Publisher<String> assinarRecados(String idSessao) {
+        limitar(Operacao.ASSINAR_RECADOS, idSessao);
+        return super.assinarRecados(idSessao);
+    }
+
+    /**
+     * Consome uma ficha da sesso e uma do usurio dono da sesso.
+     *
+     * @throws LimiteExcedidoException Se algum dos baldes estiver vazio
+     */
+    private void limitar(Operacao operacao, String idSessao) {
+        Sistema sistema = getSistema();
+        if (!sistema.validarSessao(idSessao)) {
+            return;
+        }
+        long agora = System.nanoTime();
+        if (!consumir(porSessao, operacao, idSessao, agora)
+                || !consumir(porLogin, operacao, sistema.getLoginPorSessao(idSessao), agora)) {
+            throw rejeitar(operacao);
+        }
+    }
+
+    private boolean temFicha(List<Map<String, BaldeFichas>> baldes, Operacao operacao, String chave, long agora) {
+        BaldeFichas balde = baldes.get(operacao.ordinal()).get(chave);
+        return balde == null || balde.temFicha(agora, tolerancias[operacao.ordinal()]);
+    }
+
+    private boolean consumir(List<Map<String, BaldeFichas>> baldes, Operacao operacao, String chave, long agora) {
+        Map<String, BaldeFichas> mapa = baldes.get(operacao.ordinal());
+        BaldeFichas balde = mapa.get(chave);
+        if (balde == null) {
+            if (mapa.size() >= MAXIMO_BALDES) {
+                descartarCheios(mapa, agora);
+            }
+            balde = mapa.computeIfAbsent(chave, k -> new BaldeFichas(agora));
+        }
+        return balde.consumir(agora, intervalos[operacao.ordinal()], tolerancias[operacao.ordinal()]);
+    }
+
+    /**
+     * Remove os baldes que j se recompuseram: recri-los depois equivale a mant-los.
+     */
+    private void descartarCheios(Map<String, BaldeFichas> mapa, long agora) {
+        if (limpando.compareAndSet(false, true)) {
+            try {
+                mapa.values().removeIf(balde -> balde.cheio(agora));
+            } finally {
+                limpando.set(false);
+            }
+        }
+    }
+
+    private LimiteExcedidoException rejeitar(Operacao operacao) {
+        rejeicoes[operacao.ordinal()].increment();
+        return LimiteExcedidoException.INSTANCIA;
+    }
+}
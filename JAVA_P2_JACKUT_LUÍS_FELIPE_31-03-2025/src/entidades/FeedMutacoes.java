@@ -0,0 +1,89 @@
+package entidades;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Registro em memria das mutaes mais recentes do sistema, numeradas sequencialmente a partir de 1.
+ *
+ * <p>Mantm apenas as ltimas {@code capacidade} mutaes em um buffer circular. Leitores que
+ * ficaram para trs alm desse limite precisam se recuperar a partir de um snapshot completo.</p>
+ */
+public class FeedMutacoes {
+    private final Mutacao[] buffer;
+    private long ultima;
+
+    /**
+     * Cria um feed que guarda at {@code capacidade} mutaes.
+     *
+     * @param capacidade Quantidade mxima de mutaes mantidas
+     */
+    public FeedMutacoes(int capacidade) {
+        if (capacidade < 1) {
+            throw new IllegalArgumentException("Capacidade deve ser positiva.");
+        }
+        this.buffer = new Mutacao[capacidade];
+    }
+
+    /**
+     * Publica uma mutao j aplicada, acordando os leitores que aguardam novas mutaes.
+     *
+     * @param mutacao Mutao aplicada
+     * @return Nmero de sequncia atribudo
+     */
+    public synchronized long publicar(Mutacao mutacao) {
+        ultima++;
+        buffer[(int) (ultima % buffer.length)] = mutacao;
+        notifyAll();
+        return ultima;
+    }
+
+    /**
+     * Obtm a sequncia da ltima mutao publicada (0 se nenhuma).
+     *
+     * @return ltima sequncia publicada
+     */
+    public synchronized long getUltima() {
+        return ultima;
+    }
+
+    /**
+     * Obtm a sequncia mais antiga ainda disponvel no buffer.
+     *
+     * @return Primeira sequncia disponvel
+     */
+    public synchronized long getPrimeiraDisponivel() {
+        return Math.max(1, ultima - buffer.length + 1);
+    }
+
+    /**
+     * Aguarda e devolve as mutaes posteriores a {@code sequencia}.
+     *
+     * @param sequencia ltima sequncia j conhecida pelo leitor
+     * @param maximo Quantidade mxima de mutaes devolvidas
+     * @param esperaMillis Tempo mximo de espera se no houver mutaes novas
+     * @return Mutaes seguintes, na ordem (possivelmente vazia se o tempo esgotar),
+     *         ou null se alguma delas j saiu do buffer e o leitor precisa de um snapshot
+     * @throws InterruptedException Se a thread for interrompida durante a espera
+     */
+    public synchronized List<Mutacao> aguardarApos(long sequencia, int maximo, long esperaMillis)
+            throws InterruptedException {
+        long limite = System.currentTimeMillis() + esperaMillis;
+        while (ultima <= sequencia) {
+            long restante = limite - System.currentTimeMillis();
+            if (restante <= 0) {
+                return new ArrayList<>();
+            }
+            wait(restante);
+        }
+        if (sequencia + 1 < getPrimeiraDisponivel()) {
+            return null;
+        }
+        int quantidade = (int) Math.min(maximo, ultima - sequencia);
+        List<Mutacao> mutacoes = new ArrayList<>(quantidade);
+        for (long s = sequencia + 1; s <= sequencia + quantidade; s++) {
+            mutacoes.add(buffer[(int) (s % buffer.length)]);
+        }
+        return mutacoes;
+    }
+}
@@ -0,0 +1,217 @@
+package entidades;
+
+import java.util.*;
+
+/**
+ * Fila imutvel com compartilhamento estrutural, formada por duas listas encadeadas: a frente,
+ * na ordem de sada, e o fim, em ordem inversa. Inserir no fim e remover do incio custam O(1)
+ * amortizado, e verses anteriores da fila continuam vlidas e inalteradas. Leituras que chegam
+ * ao fim montam uma nica vez, por verso, uma cpia dele na ordem de sada, reaproveitada por
+ * todas as pginas e iteraes seguintes dessa verso.
+ *
+ * @param <T> Tipo dos elementos
+ */
+public final class FilaPersistente<T> implements Iterable<T> {
+    private static final FilaPersistente<?> VAZIA = new FilaPersistente<>(null, null, 0);
+
+    private final No<T> frente;
+    private final No<T> fim; // em ordem inversa
+    private final int tamanho;
+    private volatile Object[] fimEmOrdem; // cpia do fim na ordem de sada, montada sob demanda
+
+    private FilaPersistente(No<T> frente, No<T> fim, int tamanho) {
+        this.frente = frente;
+        this.fim = fim;
+        this.tamanho = tamanho;
+    }
+
+    /**
+     * Obtm a fila vazia.
+     *
+     * @return Fila sem elementos
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> FilaPersistente<T> vazia() {
+        return (FilaPersistente<T>) VAZIA;
+    }
+
+    /**
+     * Devolve uma fila com o elemento acrescentado ao final.
+     *
+     * @param elemento Elemento a acrescentar
+     * @return Nova fila
+     */
+    public FilaPersistente<T> comFinal(T elemento) {
+        if (frente == null) {
+            return new FilaPersistente<>(new No<>(elemento, null), null, 1);
+        }
+        return new FilaPersistente<>(frente, new No<>(elemento, fim), tamanho + 1);
+    }
+
+    /**
+     * Obtm o primeiro elemento sem remov-lo.
+     *
+     * @return Primeiro elemento, ou null se a fila estiver vazia
+     */
+    public T primeiro() {
+        return frente == null ? null : frente.valor;
+    }
+
+    /**
+     * Devolve a fila sem o primeiro elemento.
+     *
+     * @return Nova fila, ou esta mesma se estiver vazia
+     */
+    public FilaPersistente<T> semPrimeiro() {
+        if (frente == null) {
+            return this;
+        }
+        if (frente.proximo != null) {
+            return new FilaPersistente<>(frente.proximo, fim, tamanho - 1);
+        }
+        if (fim == null) {
+            return vazia();
+        }
+        return new FilaPersistente<>(inverter(fim), null, tamanho - 1);
+    }
+
+    /**
+     * Devolve a fila sem os primeiros elementos. Custa O(n) no nmero de elementos removidos.
+     *
+     * @param quantidade Quantidade de elementos a remover do incio
+     * @return Nova fila, ou esta mesma se nada for removido
+     */
+    public FilaPersistente<T> semPrimeiros(int quantidade) {
+        if (quantidade <= 0 || frente == null) {
+            return this;
+        }
+        if (quantidade >= tamanho) {
+            return vazia();
+        }
+        No<T> novaFrente = frente;
+        No<T> novoFim = fim;
+        for (int i = 0; i < quantidade; i++) {
+            novaFrente = novaFrente.proximo;
+            if (novaFrente == null) {
+                novaFrente = inverter(novoFim);
+                novoFim = null;
+            }
+        }
+        return new FilaPersistente<>(novaFrente, novoFim, tamanho - quantidade);
+    }
+
+    /**
+     * Copia um trecho da fila, na ordem de sada, sem alter-la. Depois da primeira leitura do fim
+     * desta verso, cada pgina custa O(limite) mais o trecho percorrido da frente.
+     *
+     * @param inicio Posio do primeiro elemento (0  o incio da fila)
+     * @param limite Quantidade mxima de elementos
+     * @return Lista com os elementos do trecho (vazia se {@code inicio} passar do fim)
+     */
+    public List<T> trecho(int inicio, int limite) {
+        int quantidade = Math.max(0, Math.min(limite, tamanho - inicio));
+        List<T> copia = new ArrayList<>(quantidade);
+        if (quantidade == 0) {
+            return copia;
+        }
+        int posicao = 0;
+        for (No<T> no = frente; no != null && copia.size() < quantidade; no = no.proximo, posicao++) {
+            if (posicao >= inicio) {
+                copia.add(no.valor);
+            }
+        }
+        if (copia.size() < quantidade) {
+            Object[] resto = fimEmOrdem();
+            int deslocamento = tamanho - resto.length; // posio na fila do primeiro elemento do fim
+            for (int p = Math.max(inicio, posicao); copia.size() < quantidade; p++) {
+                @SuppressWarnings("unchecked")
+                T elemento = (T) resto[p - deslocamento];
+                copia.add(elemento);
+            }
+        }
+        return copia;
+    }
+
+    /**
+     * Obtm a quantidade de elementos.
+     *
+     * @return Tamanho da fila
+     */
+    public int tamanho() {
+        return tamanho;
+    }
+
+    /**
+     * Indica se a fila est vazia.
+     *
+     * @return true se no houver elementos
+     */
+    public boolean estaVazia() {
+        return tamanho == 0;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            private No<T> atual = frente;
+            private Object[] resto; // s montado se a iterao chegar ao fim
+            private int indice;
+
+            @Override
+            public boolean hasNext() {
+                return atual != null || (fim != null && (resto == null || indice < resto.length));
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public T next() {
+                if (atual != null) {
+                    T valor = atual.valor;
+                    atual = atual.proximo;
+                    return valor;
+                }
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                if (resto == null) {
+                    resto = fimEmOrdem();
+                }
+                return (T) resto[indice++];
+            }
+        };
+    }
+
+    private Object[] fimEmOrdem() {
+        Object[] emOrdem = fimEmOrdem;
+        if (emOrdem == null) {
+            int quantidade = 0;
+            for (No<T> no = fim; no != null; no = no.proximo) {
+                quantidade++;
+            }
+            emOrdem = new Object[quantidade];
+            for (No<T> no = fim; no != null; no = no.proximo) {
+                emOrdem[--quantidade] = no.valor;
+            }
+            fimEmOrdem = emOrdem; // corrida benigna: verses concorrentes montam cpias iguais
+        }
+        return emOrdem;
+    }
+
+    private static <T> No<T> inverter(No<T> lista) {
+        No<T> invertida = null;
+        for (No<T> no = lista; no != null; no = no.proximo) {
+            invertida = new No<>(no.valor, invertida);
+        }
+        return invertida;
+    }
+
+    private static final class No<T> {
+        final T valor;
+        final No<T> proximo;
+
+        No(T valor, No<T> proximo) {
+            this.valor = valor;
+            this.proximo = proximo;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package entidades;
+
+import java.io.*;
+import java.net.*;
+import java.security.SecureRandom;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Lado lder da replicao do Jackut. Publica o feed de mutaes do {@link Sistema} para as
+ * rplicas conectadas por TCP.
+ *
+ * <p>Protocolo: ao conectar, a rplica envia a poca do lder de quem recebeu o estado (0 se no
+ * tem estado) e a sequncia da ltima mutao que aplicou. Cada instncia do lder sorteia uma
+ * poca nova e numera o feed a partir de 1, ento sequncias de outra poca no significam nada
+ * aqui. Se a poca for a deste lder e a sequncia ainda estiver no feed, o lder envia apenas as
+ * mutaes seguintes; caso contrrio, envia antes um snapshot completo. Cada quadro comea com um
+ * byte de tipo:</p>
+ * <ul>
+ *   <li>{@link #QUADRO_SNAPSHOT}: long poca, long sequncia, int tamanho, bytes do snapshot</li>
+ *   <li>{@link #QUADRO_MUTACAO}: long sequncia, mutao codificada</li>
+ *   <li>{@link #QUADRO_PULSO}: long ltima sequncia do lder, long instante do lder</li>
+ * </ul>
+ * <p>Pulsos so enviados quando no h mutaes novas, permitindo  rplica medir o seu atraso.</p>
+ */
+public class LiderReplicacao implements Closeable {
+    static final byte QUADRO_SNAPSHOT = 1;
+    static final byte QUADRO_MUTACAO = 2;
+    static final byte QUADRO_PULSO = 3;
+
+    private static final int CAPACIDADE_FEED = 100_000;
+    private static final int LOTE = 1024;
+    private static final long INTERVALO_PULSO_MILLIS = 500;
+
+    private final Sistema sistema;
+    private final FeedMutacoes feed;
+    private final long epoca = sortearEpoca();
+    private final ServerSocket servidor;
+    private final Set<Socket> replicas = ConcurrentHashMap.newKeySet();
+    private volatile boolean ativo = true;
+
+    /**
+     * Ativa o feed de mutaes do sistema e passa a aceitar rplicas na porta informada,
+     * apenas na interface local.
+     *
+     * @param sistema Sistema a ser replicado
+     * @param porta Porta TCP (0 para escolher uma porta livre)
+     * @throws IOException Se a porta no puder ser aberta
+     */
+    public LiderReplicacao(Sistema sistema, int porta) throws IOException {
+        this.sistema = sistema;
+        this.feed = new FeedMutacoes(CAPACIDADE_FEED);
+        this.servidor = new ServerSocket(porta, 50, InetAddress.getLoopbackAddress());
+        sistema.setFeed(feed);
+
+        Thread aceitador = new Thread(this::aceitarReplicas, "jackut-lider");
+        aceitador.setDaemon(true);
+        aceitador.start();
+    }
+
+    /**
+     * Obtm a porta em que o lder est escutando.
+     *
+     * @return Porta TCP local
+     */
+    public int getPorta() {
+        return servidor.getLocalPort();
+    }
+
+    /**
+     * Obtm a sequncia da ltima mutao publicada.
+     *
+     * @return ltima sequncia do feed
+     */
+    public long getUltimaSequencia() {
+        return feed.getUltima();
+    }
+
+    /**
+     * Para de aceitar rplicas e encerra as conexes abertas.
+     */
+    @Override
+    public void close() throws IOException {
+        ativo = false;
+        sistema.setFeed(null);
+        servidor.close();
+        for (Socket socket : replicas) {
+            socket.close(); // a thread da rplica sai na prxima escrita ou pulso
+        }
+    }
+
+    private void aceitarReplicas() {
+        while (ativo) {
+            try {
+                Socket socket = servidor.accept();
+                replicas.add(socket);
+                if (!ativo) { // close() pode ter percorrido as conexes antes desta entrar
+                    replicas.remove(socket);
+                    socket.close();
+                    continue;
+                }
+                Thread thread = new Thread(() -> atenderReplica(socket), "jackut-lider-" + socket.getPort());
+                thread.setDaemon(true);
+                thread.start();
+            } catch (IOException e) {
+                if (ativo) {
+                    System.err.println("Erro ao aceitar rplica: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void atenderReplica(Socket socket) {
+        try (socket) {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+            long epocaReplica = in.readLong();
+            long enviada = in.readLong();
+            if (epocaReplica != epoca || enviada < feed.getPrimeiraDisponivel() - 1 || enviada > feed.getUltima()) {
+                enviada = enviarSnapshot(out);
+            }
+
+            while (ativo) {
+                List<Mutacao> lote = feed.aguardarApos(enviada, LOTE, INTERVALO_PULSO_MILLIS);
+                if (lote == null) {
+                    enviada = enviarSnapshot(out); // rplica ficou para trs alm do feed
+                    continue;
+                }
+                if (lote.isEmpty()) {
+                    out.writeByte(QUADRO_PULSO);
+                    out.writeLong(feed.getUltima());
+                    out.writeLong(System.currentTimeMillis());
+                }
+                for (Mutacao mutacao : lote) {
+                    out.writeByte(QUADRO_MUTACAO);
+                    out.writeLong(++enviada);
+                    mutacao.escrever(out);
+                }
+                out.flush();
+            }
+        } catch (IOException e) {
+            // rplica desconectou; ela reconecta informando a ltima sequncia aplicada
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            replicas.remove(socket);
+        }
+    }
+
+    private long enviarSnapshot(DataOutputStream out) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        long sequencia = sistema.capturarSnapshot(bytes);
+        out.writeByte(QUADRO_SNAPSHOT);
+        out.writeLong(epoca);
+        out.writeLong(sequencia);
+        out.writeInt(bytes.size());
+        bytes.writeTo(out);
+        out.flush();
+        return sequencia;
+    }
+
+    private static long sortearEpoca() {
+        long epoca;
+        do {
+            epoca = new SecureRandom().nextLong();
+        } while (epoca == 0); // 0  a poca de quem ainda no tem estado
+        return epoca;
+    }
+}
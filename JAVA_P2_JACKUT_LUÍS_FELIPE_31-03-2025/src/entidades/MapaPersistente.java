@@ -0,0 +1,428 @@
+package entidades;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Mapa imutvel com compartilhamento estrutural (hash array mapped trie).
+ *
+ * <p>As operaes {@link #com} e {@link #sem} devolvem um novo mapa, copiando apenas o caminho da
+ * raiz at a entrada alterada (no mximo sete ns de at 32 posies); todo o restante 
+ * compartilhado com o mapa original. Isso permite publicar verses do estado por simples troca
+ * de referncia: quem j obteve uma verso continua lendo-a sem bloqueios, enquanto as novas
+ * verses so construdas.</p>
+ *
+ * <p>Implementa {@link Map} somente leitura; chaves nulas no so permitidas.</p>
+ *
+ * @param <K> Tipo das chaves
+ * @param <V> Tipo dos valores
+ */
+public final class MapaPersistente<K, V> extends AbstractMap<K, V> implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private static final MapaPersistente<?, ?> VAZIO = new MapaPersistente<>(null, 0);
+
+    private final transient No raiz;
+    private final transient int tamanho;
+
+    private MapaPersistente(No raiz, int tamanho) {
+        this.raiz = raiz;
+        this.tamanho = tamanho;
+    }
+
+    /**
+     * Obtm o mapa vazio.
+     *
+     * @return Mapa sem entradas
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> MapaPersistente<K, V> vazio() {
+        return (MapaPersistente<K, V>) VAZIO;
+    }
+
+    /**
+     * Cria um mapa persistente com as mesmas entradas de outro mapa.
+     *
+     * @param origem Mapa de origem
+     * @return Mapa persistente equivalente
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> MapaPersistente<K, V> de(Map<? extends K, ? extends V> origem) {
+        if (origem instanceof MapaPersistente) {
+            return (MapaPersistente<K, V>) origem;
+        }
+        MapaPersistente<K, V> mapa = vazio();
+        for (Map.Entry<? extends K, ? extends V> entrada : origem.entrySet()) {
+            mapa = mapa.com(entrada.getKey(), entrada.getValue());
+        }
+        return mapa;
+    }
+
+    /**
+     * Devolve um mapa com a chave associada ao valor informado.
+     *
+     * @param chave Chave (no nula)
+     * @param valor Valor
+     * @return Novo mapa, ou este mesmo se nada mudou
+     */
+    public MapaPersistente<K, V> com(K chave, V valor) {
+        Objects.requireNonNull(chave, "chave");
+        boolean[] adicionou = new boolean[1];
+        No novaRaiz = (raiz == null ? NoBitmap.VAZIO : raiz).com(0, espalhar(chave), chave, valor, adicionou);
+        if (novaRaiz == raiz) {
+            return this;
+        }
+        return new MapaPersistente<>(novaRaiz, adicionou[0] ? tamanho + 1 : tamanho);
+    }
+
+    /**
+     * Devolve um mapa sem a chave informada.
+     *
+     * @param chave Chave a remover
+     * @return Novo mapa, ou este mesmo se a chave no existia
+     */
+    public MapaPersistente<K, V> sem(Object chave) {
+        if (raiz == null || chave == null) {
+            return this;
+        }
+        No novaRaiz = raiz.sem(0, espalhar(chave), chave);
+        if (novaRaiz == raiz) {
+            return this;
+        }
+        return novaRaiz == null ? vazio() : new MapaPersistente<>(novaRaiz, tamanho - 1);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object chave) {
+        if (raiz == null || chave == null) {
+            return null;
+        }
+        // Mesma busca de No.buscar, sem recurso:  a operao mais frequente do sistema
+        int hash = espalhar(chave);
+        No no = raiz;
+        for (int deslocamento = 0; no instanceof NoBitmap; deslocamento += 5) {
+            NoBitmap bitmap = (NoBitmap) no;
+            int bit = 1 << ((hash >>> deslocamento) & 31);
+            if ((bitmap.bitmap & bit) == 0) {
+                return null;
+            }
+            int i = 2 * indice(bitmap.bitmap, bit);
+            Object k = bitmap.pares[i];
+            if (k != null) {
+                return chave.equals(k) ? (V) bitmap.pares[i + 1] : null;
+            }
+            no = (No) bitmap.pares[i + 1];
+        }
+        return (V) no.buscar(0, hash, chave, null);
+    }
+
+    @Override
+    public boolean containsKey(Object chave) {
+        return raiz != null && chave != null && raiz.buscar(0, espalhar(chave), chave, AUSENTE) != AUSENTE;
+    }
+
+    @Override
+    public int size() {
+        return tamanho;
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new AbstractSet<Map.Entry<K, V>>() {
+            @Override
+            public Iterator<Map.Entry<K, V>> iterator() {
+                return new Iterador<>(raiz);
+            }
+
+            @Override
+            public int size() {
+                return tamanho;
+            }
+        };
+    }
+
+    private static final Object AUSENTE = new Object();
+
+    private static int espalhar(Object chave) {
+        int h = chave.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private static int indice(int bitmap, int bit) {
+        return Integer.bitCount(bitmap & (bit - 1));
+    }
+
+    // Ns da trie. Os pares so guardados em um nico arranjo [chave, valor, chave, valor, ...];
+    // uma chave nula indica que o valor correspondente  um n filho.
+
+    private abstract static class No {
+        abstract Object buscar(int deslocamento, int hash, Object chave, Object padrao);
+
+        abstract No com(int deslocamento, int hash, Object chave, Object valor, boolean[] adicionou);
+
+        abstract No sem(int deslocamento, int hash, Object chave);
+
+        abstract Object[] pares();
+    }
+
+    private static final class NoBitmap extends No {
+        static final NoBitmap VAZIO = new NoBitmap(0, new Object[0]);
+
+        final int bitmap;
+        final Object[] pares;
+
+        NoBitmap(int bitmap, Object[] pares) {
+            this.bitmap = bitmap;
+            this.pares = pares;
+        }
+
+        @Override
+        Object buscar(int deslocamento, int hash, Object chave, Object padrao) {
+            int bit = 1 << ((hash >>> deslocamento) & 31);
+            if ((bitmap & bit) == 0) {
+                return padrao;
+            }
+            int i = 2 * indice(bitmap, bit);
+            Object k = pares[i];
+            if (k == null) {
+                return ((No) pares[i + 1]).buscar(deslocamento + 5, hash, chave, padrao);
+            }
+            return chave.equals(k) ? pares[i + 1] : padrao;
+        }
+
+        @Override
+        No com(int deslocamento, int hash, Object chave, Object valor, boolean[] adicionou) {
+            int bit = 1 << ((hash >>> deslocamento) & 31);
+            int i = 2 * indice(bitmap, bit);
+            if ((bitmap & bit) == 0) {
+                Object[] novos = new Object[pares.length + 2];
+                System.arraycopy(pares, 0, novos, 0, i);
+                novos[i] = chave;
+                novos[i + 1] = valor;
+                System.arraycopy(pares, i, novos, i + 2, pares.length - i);
+                adicionou[0] = true;
+                return new NoBitmap(bitmap | bit, novos);
+            }
+
+            Object k = pares[i];
+            Object v = pares[i + 1];
+            if (k == null) {
+                No filho = ((No) v).com(deslocamento + 5, hash, chave, valor, adicionou);
+                return filho == v ? this : copiarCom(i + 1, filho);
+            }
+            if (chave.equals(k)) {
+                return v == valor ? this : copiarCom(i + 1, valor);
+            }
+            adicionou[0] = true;
+            No filho = criarFilho(deslocamento + 5, k, v, hash, chave, valor);
+            Object[] novos = pares.clone();
+            novos[i] = null;
+            novos[i + 1] = filho;
+            return new NoBitmap(bitmap, novos);
+        }
+
+        @Override
+        No sem(int deslocamento, int hash, Object chave) {
+            int bit = 1 << ((hash >>> deslocamento) & 31);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+            int i = 2 * indice(bitmap, bit);
+            Object k = pares[i];
+            if (k == null) {
+                No filho = (No) pares[i + 1];
+                No novoFilho = filho.sem(deslocamento + 5, hash, chave);
+                if (novoFilho == filho) {
+                    return this;
+                }
+                if (novoFilho != null) {
+                    return copiarCom(i + 1, novoFilho);
+                }
+            } else if (!chave.equals(k)) {
+                return this;
+            }
+            if (bitmap == bit) {
+                return null;
+            }
+            Object[] novos = new Object[pares.length - 2];
+            System.arraycopy(pares, 0, novos, 0, i);
+            System.arraycopy(pares, i + 2, novos, i, pares.length - i - 2);
+            return new NoBitmap(bitmap & ~bit, novos);
+        }
+
+        @Override
+        Object[] pares() {
+            return pares;
+        }
+
+        private NoBitmap copiarCom(int posicao, Object valor) {
+            Object[] novos = pares.clone();
+            novos[posicao] = valor;
+            return new NoBitmap(bitmap, novos);
+        }
+
+        private static No criarFilho(int deslocamento, Object k1, Object v1, int h2, Object k2, Object v2) {
+            int h1 = espalhar(k1);
+            if (h1 == h2) {
+                return new NoColisao(h1, new Object[]{k1, v1, k2, v2});
+            }
+            boolean[] ignorado = new boolean[1];
+            return VAZIO.com(deslocamento, h1, k1, v1, ignorado).com(deslocamento, h2, k2, v2, ignorado);
+        }
+    }
+
+    /**
+     * N para chaves distintas com o mesmo hash.
+     */
+    private static final class NoColisao extends No {
+        final int hash;
+        final Object[] pares;
+
+        NoColisao(int hash, Object[] pares) {
+            this.hash = hash;
+            this.pares = pares;
+        }
+
+        @Override
+        Object buscar(int deslocamento, int hash, Object chave, Object padrao) {
+            int i = procurar(chave);
+            return i < 0 ? padrao : pares[i + 1];
+        }
+
+        @Override
+        No com(int deslocamento, int hash, Object chave, Object valor, boolean[] adicionou) {
+            if (hash != this.hash) {
+                NoBitmap envolvente = new NoBitmap(1 << ((this.hash >>> deslocamento) & 31), new Object[]{null, this});
+                return envolvente.com(deslocamento, hash, chave, valor, adicionou);
+            }
+            int i = procurar(chave);
+            if (i >= 0) {
+                if (pares[i + 1] == valor) {
+                    return this;
+                }
+                Object[] novos = pares.clone();
+                novos[i + 1] = valor;
+                return new NoColisao(hash, novos);
+            }
+            Object[] novos = Arrays.copyOf(pares, pares.length + 2);
+            novos[pares.length] = chave;
+            novos[pares.length + 1] = valor;
+            adicionou[0] = true;
+            return new NoColisao(hash, novos);
+        }
+
+        @Override
+        No sem(int deslocamento, int hash, Object chave) {
+            int i = procurar(chave);
+            if (i < 0) {
+                return this;
+            }
+            if (pares.length == 2) {
+                return null;
+            }
+            Object[] novos = new Object[pares.length - 2];
+            System.arraycopy(pares, 0, novos, 0, i);
+            System.arraycopy(pares, i + 2, novos, i, pares.length - i - 2);
+            return new NoColisao(hash, novos);
+        }
+
+        @Override
+        Object[] pares() {
+            return pares;
+        }
+
+        private int procurar(Object chave) {
+            for (int i = 0; i < pares.length; i += 2) {
+                if (chave.equals(pares[i])) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * Percorre a trie em profundidade usando uma pilha explcita.
+     */
+    private static final class Iterador<K, V> implements Iterator<Map.Entry<K, V>> {
+        private final Deque<Object[]> pilha = new ArrayDeque<>();
+        private final Deque<Integer> posicoes = new ArrayDeque<>();
+        private Map.Entry<K, V> proxima;
+
+        Iterador(No raiz) {
+            if (raiz != null) {
+                pilha.push(raiz.pares());
+                posicoes.push(0);
+            }
+            avancar();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return proxima != null;
+        }
+
+        @Override
+        public Map.Entry<K, V> next() {
+            if (proxima == null) {
+                throw new NoSuchElementException();
+            }
+            Map.Entry<K, V> atual = proxima;
+            avancar();
+            return atual;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void avancar() {
+            proxima = null;
+            while (!pilha.isEmpty()) {
+                Object[] pares = pilha.peek();
+                int i = posicoes.pop();
+                if (i >= pares.length) {
+                    pilha.pop();
+                    continue;
+                }
+                posicoes.push(i + 2);
+                if (pares[i] == null) {
+                    pilha.push(((No) pares[i + 1]).pares());
+                    posicoes.push(0);
+                } else {
+                    proxima = new AbstractMap.SimpleImmutableEntry<>((K) pares[i], (V) pares[i + 1]);
+                    return;
+                }
+            }
+        }
+    }
+
+    // Serializao: grava apenas os pares, a estrutura  reconstruda na leitura.
+
+    private Object writeReplace() {
+        return new FormaSerial(this);
+    }
+
+    private void readObject(ObjectInputStream in) throws InvalidObjectException {
+        throw new InvalidObjectException("Use a forma serial");
+    }
+
+    private static final class FormaSerial implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private final Object[] pares;
+
+        FormaSerial(MapaPersistente<?, ?> mapa) {
+            pares = new Object[mapa.size() * 2];
+            int i = 0;
+            for (Map.Entry<?, ?> entrada : mapa.entrySet()) {
+                pares[i++] = entrada.getKey();
+                pares[i++] = entrada.getValue();
+            }
+        }
+
+        private Object readResolve() {
+            MapaPersistente<Object, Object> mapa = vazio();
+            for (int i = 0; i < pares.length; i += 2) {
+                mapa = mapa.com(pares[i], pares[i + 1]);
+            }
+            return mapa;
+        }
+    }
+}
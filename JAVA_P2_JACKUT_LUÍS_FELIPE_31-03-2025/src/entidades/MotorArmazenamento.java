@@ -0,0 +1,102 @@
+package entidades;
+
+import java.util.List;
+import java.util.Map;
+import entidades.exceptions.PersistenciaException;
+
+/**
+ * Armazenamento durvel dos usurios de um {@link Sistema}. O sistema carrega os usurios ao ser
+ * construdo, grava a verso corrente em {@link Sistema#encerrarSistema()} e apaga tudo em
+ * {@link Sistema#zerarSistema()}; a forma de guardar fica a cargo de cada implementao.
+ *
+ * <p>Implementaes que mantm um dirio recebem tambm cada mutao aplicada, por
+ * {@link #registrar(List)}, e so avisadas por {@link #prepararSalvamento()} do ponto exato em que
+ * a verso a ser gravada foi capturada. As demais ignoram essas chamadas.</p>
+ *
+ * <p>A implementao usada pelos construtores de {@link Sistema} que recebem apenas um caminho 
+ * escolhida pela propriedade de sistema {@value #PROPRIEDADE} (ver {@link #configurado(String)}).</p>
+ */
+public interface MotorArmazenamento {
+
+    /** Propriedade de sistema que escolhe o armazenamento: serializado, segmentado, diario ou memoria. */
+    String PROPRIEDADE = "jackut.armazenamento";
+
+    /**
+     * Cria o armazenamento escolhido pela propriedade {@value #PROPRIEDADE}, ou o
+     * {@link ArmazenamentoSerializado} se ela no estiver definida.
+     *
+     * @param arquivo Caminho base dos dados
+     * @return Armazenamento configurado
+     * @throws IllegalArgumentException Se a propriedade indicar um tipo desconhecido
+     */
+    static MotorArmazenamento configurado(String arquivo) {
+        return criar(System.getProperty(PROPRIEDADE, "serializado"), arquivo);
+    }
+
+    /**
+     * Cria um armazenamento pelo nome do seu tipo.
+     *
+     * @param tipo serializado, segmentado, diario ou memoria
+     * @param arquivo Caminho base dos dados (ignorado em memria)
+     * @return Novo armazenamento
+     * @throws IllegalArgumentException Se o tipo for desconhecido
+     */
+    static MotorArmazenamento criar(String tipo, String arquivo) {
+        switch (tipo) {
+            case "serializado":
+                return new ArmazenamentoSerializado(arquivo);
+            case "segmentado":
+                return new ArmazenamentoSegmentado(arquivo);
+            case "diario":
+                return new ArmazenamentoDiario(arquivo);
+            case "memoria":
+                return new ArmazenamentoMemoria();
+            default:
+                throw new IllegalArgumentException("Armazenamento desconhecido: " + tipo);
+        }
+    }
+
+    /**
+     * Carrega os usurios gravados.
+     *
+     * @return Usurios por login (vazio se nada foi gravado)
+     * @throws PersistenciaException Se os dados no puderem ser lidos
+     */
+    Map<String, Usuario> carregar();
+
+    /**
+     * Grava os usurios, substituindo o que havia antes.
+     *
+     * @param usuarios Usurios por login
+     * @throws PersistenciaException Se os dados no puderem ser gravados
+     */
+    void salvar(Map<String, Usuario> usuarios);
+
+    /**
+     * Remove todos os dados gravados.
+     *
+     * @throws PersistenciaException Se os dados no puderem ser removidos
+     */
+    void apagar();
+
+    /**
+     * Registra mutaes que acabaram de ser aplicadas, na ordem de aplicao. Chamado sob o mesmo
+     * bloqueio que aplica as mutaes; quando retorna, as mutaes devem sobreviver a uma nova
+     * carga. A implementao padro no faz nada.
+     *
+     * @param mutacoes Mutaes aplicadas
+     * @throws PersistenciaException Se as mutaes no puderem ser registradas (elas j esto aplicadas em memria)
+     */
+    default void registrar(List<Mutacao> mutacoes) {
+    }
+
+    /**
+     * Avisa que a verso corrente acaba de ser capturada para um {@link #salvar(Map)} que vir a
+     * seguir. Chamado sob o mesmo bloqueio de {@link #registrar(List)}: toda mutao registrada antes
+     * est na verso capturada, e nenhuma registrada depois est. A implementao padro no faz nada.
+     *
+     * @throws PersistenciaException Se o armazenamento no puder se preparar
+     */
+    default void prepararSalvamento() {
+    }
+}
@@ -0,0 +1,291 @@
+package entidades;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import entidades.exceptions.*;
+
+/**
+ * Representa uma alterao elementar no estado do sistema, j validada pela {@link Facade}.
+ *
+ * <p>Todas as alteraes de usurios passam por {@link Sistema#registrar(Mutacao)}, que registra a
+ * mutao no armazenamento, a aplica e a publica no feed de mutaes, quando houver um. Aplicar a mesma sequncia de mutaes
+ * sobre o mesmo estado inicial produz sempre o mesmo estado, o que permite reproduzi-las em uma
+ * rplica.</p>
+ */
+public final class Mutacao {
+
+    /**
+     * Tipos de mutao suportados.
+     */
+    public enum Tipo {
+        CRIAR_USUARIO, EDITAR_ATRIBUTO, CONVITE, AMIZADE, RECADO, LER_RECADO, ZERAR, LER_RECADOS, EXPIRAR_RECADOS
+    }
+
+    private static final Tipo[] TIPOS = Tipo.values();
+
+    private final Tipo tipo;
+    private final String login;
+    private final String arg1;
+    private final String arg2;
+    private final long instante; // envio, para RECADO; limite de idade, para EXPIRAR_RECADOS
+
+    private Mutacao(Tipo tipo, String login, String arg1, String arg2) {
+        this(tipo, login, arg1, arg2, 0);
+    }
+
+    private Mutacao(Tipo tipo, String login, String arg1, String arg2, long instante) {
+        this.tipo = tipo;
+        this.login = login;
+        this.arg1 = arg1;
+        this.arg2 = arg2;
+        this.instante = instante;
+    }
+
+    /**
+     * Cria a mutao de cadastro de um usurio.
+     */
+    public static Mutacao criarUsuario(String login, String senha, String nome) {
+        return new Mutacao(Tipo.CRIAR_USUARIO, login, senha, nome);
+    }
+
+    /**
+     * Cria a mutao de edio (ou remoo, se o valor for vazio) de um atributo de perfil.
+     */
+    public static Mutacao editarAtributo(String login, String atributo, String valor) {
+        return new Mutacao(Tipo.EDITAR_ATRIBUTO, login, atributo, valor);
+    }
+
+    /**
+     * Cria a mutao que registra, no lado de {@code login}, um convite ou uma amizade confirmada com {@code amigo}.
+     */
+    public static Mutacao amizade(String login, String amigo, boolean confirmada) {
+        return new Mutacao(confirmada ? Tipo.AMIZADE : Tipo.CONVITE, login, amigo, null);
+    }
+
+    /**
+     * Cria a mutao de entrega de um recado na fila do destinatrio. O instante de envio  fixado
+     * aqui, para que todas as rplicas guardem o mesmo.
+     */
+    public static Mutacao recado(String destinatario, String remetente, String mensagem) {
+        return recado(destinatario, remetente, mensagem, System.currentTimeMillis());
+    }
+
+    /**
+     * Cria a mutao de entrega de um recado enviado no instante informado, para cargas de dados
+     * que preservam a idade original dos recados.
+     */
+    public static Mutacao recado(String destinatario, String remetente, String mensagem, long instante) {
+        return new Mutacao(Tipo.RECADO, destinatario, remetente, mensagem, instante);
+    }
+
+    /**
+     * Cria a mutao de consumo do prximo recado da fila de um usurio.
+     */
+    public static Mutacao lerRecado(String login) {
+        return new Mutacao(Tipo.LER_RECADO, login, null, null);
+    }
+
+    /**
+     * Cria a mutao de consumo de at {@code maximo} recados da fila de um usurio, de uma s vez.
+     */
+    public static Mutacao lerRecados(String login, int maximo) {
+        return new Mutacao(Tipo.LER_RECADOS, login, Integer.toString(maximo), null);
+    }
+
+    /**
+     * Cria a mutao que descarta, do incio da fila de um usurio, os recados enviados antes de
+     * {@code limite} e os que excedem {@code maximo} recados. Os critrios so avaliados no momento
+     * da aplicao, de modo que recados lidos ou recebidos nesse meio-tempo so respeitados.
+     */
+    public static Mutacao expirarRecados(String login, long limite, int maximo) {
+        return new Mutacao(Tipo.EXPIRAR_RECADOS, login, Integer.toString(maximo), null, limite);
+    }
+
+    /**
+     * Cria a mutao que remove todos os usurios do sistema.
+     */
+    public static Mutacao zerar() {
+        return new Mutacao(Tipo.ZERAR, null, null, null);
+    }
+
+    /**
+     * Obtm o que a mutao devolve a quem a registrou, calculado sobre a verso dos usurios
+     * anterior a ela. Chamado por {@link Sistema#registrar(Mutacao)} depois de {@link #aplicarEm}
+     * validar a mutao nessa mesma verso.
+     *
+     * @param anterior Verso dos usurios antes da mutao
+     * @return O recado consumido, para {@link Tipo#LER_RECADO}; a lista de recados consumidos,
+     *         para {@link Tipo#LER_RECADOS}; as quantidades descartadas por idade e por excesso,
+     *         para {@link Tipo#EXPIRAR_RECADOS}; null nos demais casos
+     */
+    Object resultadoEm(MapaPersistente<String, Usuario> anterior) {
+        switch (tipo) {
+            case LER_RECADO:
+                Recado lido = existente(anterior, login).getProximoRecado();
+                return lido != null ? lido.toString() : null;
+            case LER_RECADOS:
+                int maximo = Integer.parseInt(arg1);
+                List<String> lidos = new ArrayList<>();
+                for (Recado recado : existente(anterior, login).getRecados(0, maximo)) {
+                    lidos.add(recado.toString());
+                }
+                return lidos;
+            case EXPIRAR_RECADOS:
+                return existente(anterior, login).contarRecadosExpirados(instante, Integer.parseInt(arg1));
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Aplica a mutao sobre uma verso dos usurios, sem passar pelo {@link Sistema} nem publicar
+     * nada. Usado para preparar a verso que {@link Sistema#registrar(Mutacao)} publica depois de
+     * registrar a mutao, para aplicar lotes inteiros de uma s vez e para reaplicar dirios; os
+     * consumos de recados so aplicados sem devolver os recados consumidos (ver {@link #resultadoEm}).
+     *
+     * @param versao Verso atual dos usurios
+     * @param verificarCitados Se convites e amizades exigem que o amigo exista e recados com
+     *        remetente exigem que ele exista, alm do usurio alterado
+     * @return Nova verso dos usurios
+     * @throws JackutException Se a mutao violar alguma regra do sistema
+     */
+    MapaPersistente<String, Usuario> aplicarEm(MapaPersistente<String, Usuario> versao, boolean verificarCitados) {
+        switch (tipo) {
+            case CRIAR_USUARIO:
+                Usuario novo = new Usuario(login, arg1, arg2);
+                if (versao.containsKey(login)) {
+                    throw UsuarioJaExisteException.INSTANCIA;
+                }
+                return versao.com(login, novo);
+            case EDITAR_ATRIBUTO:
+                return versao.com(login, existente(versao, login).comAtributo(arg1, arg2));
+            case CONVITE:
+            case AMIZADE:
+                if (login.equals(arg1)) {
+                    throw AutoAmizadeException.INSTANCIA;
+                }
+                if (verificarCitados) {
+                    existente(versao, arg1);
+                }
+                return versao.com(login, existente(versao, login).comAmizade(arg1, tipo == Tipo.AMIZADE));
+            case RECADO:
+                if (verificarCitados && arg1 != null) {
+                    existente(versao, arg1);
+                }
+                return versao.com(login, existente(versao, login).comRecado(arg1, arg2, instante));
+            case LER_RECADO:
+                return versao.com(login, existente(versao, login).semProximoRecado());
+            case LER_RECADOS:
+                return versao.com(login, existente(versao, login).semPrimeirosRecados(Integer.parseInt(arg1)));
+            case EXPIRAR_RECADOS:
+                Usuario usuario = existente(versao, login);
+                int[] expirados = usuario.contarRecadosExpirados(instante, Integer.parseInt(arg1));
+                return versao.com(login, usuario.semPrimeirosRecados(expirados[0] + expirados[1]));
+            case ZERAR:
+                return MapaPersistente.vazio();
+            default:
+                throw new IllegalStateException("Mutao no aplicvel em lote: " + tipo);
+        }
+    }
+
+    private static Usuario existente(MapaPersistente<String, Usuario> versao, String login) {
+        Usuario usuario = login == null ? null : versao.get(login);
+        if (usuario == null) {
+            throw UsuarioNaoCadastradoException.INSTANCIA;
+        }
+        return usuario;
+    }
+
+    /**
+     * Indica se a aplicao teve efeito e deve ser publicada. Uma leitura de fila vazia no altera nada.
+     *
+     * @param resultado Valor devolvido por {@link #resultadoEm}
+     * @return true se a mutao alterou o estado
+     */
+    boolean alterou(Object resultado) {
+        if (tipo == Tipo.LER_RECADOS) {
+            return !((List<?>) resultado).isEmpty();
+        }
+        if (tipo == Tipo.EXPIRAR_RECADOS) {
+            int[] expirados = (int[]) resultado;
+            return expirados[0] + expirados[1] > 0;
+        }
+        return tipo != Tipo.LER_RECADO || resultado != null;
+    }
+
+    /**
+     * Obtm o tipo da mutao.
+     *
+     * @return Tipo da mutao
+     */
+    public Tipo getTipo() {
+        return tipo;
+    }
+
+    /**
+     * Obtm o login do usurio alterado (null para {@link Tipo#ZERAR}).
+     *
+     * @return Login do usurio alterado
+     */
+    public String getLogin() {
+        return login;
+    }
+
+    // Codificao binria
+
+    /**
+     * Escreve a mutao em formato binrio compacto.
+     *
+     * @param out Fluxo de sada
+     * @throws IOException Se ocorrer um erro de escrita
+     */
+    public void escrever(DataOutput out) throws IOException {
+        out.writeByte(tipo.ordinal());
+        escreverTexto(out, login);
+        escreverTexto(out, arg1);
+        escreverTexto(out, arg2);
+        out.writeLong(instante);
+    }
+
+    /**
+     * L uma mutao escrita por {@link #escrever(DataOutput)}.
+     *
+     * @param in Fluxo de entrada
+     * @return Mutao lida
+     * @throws IOException Se ocorrer um erro de leitura ou os dados forem invlidos
+     */
+    public static Mutacao ler(DataInput in) throws IOException {
+        int ordinal = in.readUnsignedByte();
+        if (ordinal >= TIPOS.length) {
+            throw new StreamCorruptedException("Tipo de mutao invlido: " + ordinal);
+        }
+        return new Mutacao(TIPOS[ordinal], lerTexto(in), lerTexto(in), lerTexto(in), in.readLong());
+    }
+
+    private static void escreverTexto(DataOutput out, String texto) throws IOException {
+        if (texto == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String lerTexto(DataInput in) throws IOException {
+        int tamanho = in.readInt();
+        if (tamanho < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[tamanho];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String toString() {
+        return tipo + "(" + login + ")"; // no expe senhas nem contedo de recados
+    }
+}
@@ -1,7 +1,17 @@
 package entidades;
 
 import java.io.*;
-import java.util.Map;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.Deflater;
 import entidades.exceptions.*;
 
 /**
@@ -10,31 +20,127 @@ import entidades.exceptions.*;
  * com suporte a backup automtico e recuperao em caso de falhas.
  *
  * <p>Os dados so armazenados em um arquivo serializado no diretrio 'dados/',
- * com um arquivo de backup criado automaticamente antes de cada operao de salvamento.</p>
+ * com um arquivo de backup criado automaticamente antes de cada operao de salvamento.
+ * O arquivo  dividido em segmentos independentes, com cabealho e checksum prprios,
+ * permitindo que o carregamento decodifique os segmentos em paralelo. O contedo de cada segmento
+ *  comprimido em blocos, cada um com o seu CRC32C.</p>
  */
 public class Persistencia {
     private static final String ARQUIVO_DADOS = "dados_jackut.ser";
     private static final String DIRETORIO_DADOS = "dados";
     private static final String BACKUP_SUFFIX = "_bkp";
 
+    private static final int MAGICO = 0x4A4B5453; // "JKTS"
+    private static final int MAGICO_SEGMENTO = 0x4A4B5347; // "JKSG"
+    private static final int VERSAO = 2; // 1: segmentos sem compresso; 2: segmentos em blocos comprimidos
+    private static final int TAMANHO_DESCRITOR = 24; // offset, tamanho, usuarios, crc
+    private static final int NUM_SEGMENTOS = Math.max(1, Runtime.getRuntime().availableProcessors());
+    private static final int NIVEL_COMPRESSAO = Deflater.BEST_SPEED;
+    private static final int USUARIOS_POR_RESET = 1024;
+
+    /**
+     * Salva o mapa de usurios no arquivo de dados, dividido no nmero padro de segmentos
+     * (um por processador disponvel).
+     *
+     * @param usuarios Mapa de usurios a ser salvo
+     * @throws PersistenciaException Se ocorrer um erro durante a operao de salvamento
+     * @see #salvarDados(Map, int, int)
+     */
+    public static void salvarDados(Map<String, Usuario> usuarios) throws PersistenciaException {
+        salvarDados(usuarios, NUM_SEGMENTOS, NIVEL_COMPRESSAO);
+    }
+
     /**
-     * Salva o mapa de usurios no arquivo de dados.
+     * Salva o mapa de usurios no arquivo de dados em formato segmentado.
+     *
+     * <p>Os usurios so distribudos em {@code numSegmentos} segmentos independentes pelo hash do login.
+     * O arquivo comea com um cabealho contendo a tabela de descritores (posio, tamanho,
+     * quantidade de usurios e CRC32C de cada segmento), seguido dos segmentos, cada um com seu
+     * prprio cabealho e seu prprio fluxo de serializao. Assim cada segmento pode ser
+     * decodificado isoladamente e em paralelo durante o carregamento.</p>
+     *
+     * <p>O fluxo de serializao de cada segmento  gravado em blocos comprimidos com {@link Deflater}
+     * no nvel informado, cada bloco com o CRC32C dos seus dados originais (ver {@link SaidaBlocos}).
+     * Os blocos so gravados  medida que a serializao avana, sem montar o arquivo em memria.</p>
      *
      * <p>Antes de salvar, cria um backup do arquivo atual. Se ocorrer um erro durante o salvamento,
      * tenta restaurar o backup automaticamente.</p>
      *
      * @param usuarios Mapa de usurios a ser salvo
+     * @param numSegmentos Quantidade de segmentos do arquivo (mnimo 1)
+     * @param nivelCompressao Nvel de compresso, de {@link Deflater#NO_COMPRESSION} a {@link Deflater#BEST_COMPRESSION}
      * @throws PersistenciaException Se ocorrer um erro durante a operao de salvamento
      */
-    public static void salvarDados(Map<String, Usuario> usuarios) throws PersistenciaException {
-        criarDiretorioSeNaoExistir();
-        fazerBackup(); // Cria backup antes de sobrescrever
+    public static void salvarDados(Map<String, Usuario> usuarios, int numSegmentos, int nivelCompressao)
+            throws PersistenciaException {
+        salvarDados(usuarios, arquivoPadrao(), numSegmentos, nivelCompressao);
+    }
+
+    /**
+     * Salva o mapa de usurios em um arquivo qualquer, com o nmero padro de segmentos.
+     *
+     * @param usuarios Mapa de usurios a ser salvo
+     * @param arquivo Arquivo de destino
+     * @throws PersistenciaException Se ocorrer um erro durante a operao de salvamento
+     * @see #salvarDados(Map, File, int, int)
+     */
+    public static void salvarDados(Map<String, Usuario> usuarios, File arquivo) throws PersistenciaException {
+        salvarDados(usuarios, arquivo, NUM_SEGMENTOS, NIVEL_COMPRESSAO);
+    }
+
+    /**
+     * Salva o mapa de usurios em formato segmentado em um arquivo qualquer, como em
+     * {@link #salvarDados(Map, int, int)}. O backup  criado ao lado do arquivo.
+     *
+     * @param usuarios Mapa de usurios a ser salvo
+     * @param arquivo Arquivo de destino
+     * @param numSegmentos Quantidade de segmentos do arquivo (mnimo 1)
+     * @param nivelCompressao Nvel de compresso, de {@link Deflater#NO_COMPRESSION} a {@link Deflater#BEST_COMPRESSION}
+     * @throws PersistenciaException Se ocorrer um erro durante a operao de salvamento
+     */
+    public static void salvarDados(Map<String, Usuario> usuarios, File arquivo, int numSegmentos, int nivelCompressao)
+            throws PersistenciaException {
+        if (numSegmentos < 1) {
+            throw new IllegalArgumentException("Nmero de segmentos deve ser positivo.");
+        }
+        if (nivelCompressao < Deflater.NO_COMPRESSION || nivelCompressao > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Nvel de compresso invlido: " + nivelCompressao);
+        }
+        criarDiretorioSeNaoExistir(arquivo);
+        fazerBackup(arquivo); // Cria backup antes de sobrescrever
 
-        try (ObjectOutputStream out = new ObjectOutputStream(
-                new FileOutputStream(getCaminhoCompleto()))) {
-            out.writeObject(usuarios);
+        List<List<Usuario>> segmentos = new ArrayList<>(numSegmentos);
+        for (int i = 0; i < numSegmentos; i++) {
+            segmentos.add(new ArrayList<>());
+        }
+        for (Usuario usuario : usuarios.values()) {
+            segmentos.get(segmentoDe(usuario.getLogin(), numSegmentos)).add(usuario);
+        }
+
+        try (FileChannel canal = FileChannel.open(arquivo.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer cabecalho = ByteBuffer.allocate(12 + numSegmentos * TAMANHO_DESCRITOR);
+            cabecalho.putInt(MAGICO).putInt(VERSAO).putInt(numSegmentos);
+
+            long posicao = cabecalho.capacity();
+            for (int i = 0; i < numSegmentos; i++) {
+                canal.position(posicao);
+                CRC32C crc = new CRC32C();
+                List<Usuario> segmento = segmentos.get(i);
+                escreverSegmento(new CheckedOutputStream(Channels.newOutputStream(canal), crc), i, segmento,
+                        nivelCompressao);
+
+                long tamanho = canal.position() - posicao;
+                cabecalho.putLong(posicao).putLong(tamanho).putInt(segmento.size()).putInt((int) crc.getValue());
+                posicao += tamanho;
+            }
+
+            cabecalho.flip();
+            while (cabecalho.hasRemaining()) {
+                canal.write(cabecalho, cabecalho.position());
+            }
         } catch (IOException e) {
-            restaurarBackup(); // Tenta restaurar se falhar
+            restaurarBackup(arquivo); // Tenta restaurar se falhar
             throw new PersistenciaException(
                     "Falha ao salvar dados dos usurios",
                     "arquivo de dados",
@@ -47,35 +153,94 @@ public class Persistencia {
     /**
      * Carrega os dados de usurios do arquivo de persistncia.
      *
-     * <p>Se o arquivo no existir, retorna um novo mapa vazio. Verifica a integridade
-     * dos dados carregados, garantindo que seja uma instncia de Map&lt;String, Usuario&gt;.</p>
+     * <p>Se o arquivo no existir, retorna um novo mapa vazio. Arquivos no formato segmentado tm
+     * cada segmento decodificado em paralelo no pool fork-join comum, com os blocos descomprimidos
+     * e verificados pelo seu CRC32C durante a leitura;
+     * os resultados so ento reunidos em um nico mapa. Amizades e convites podem citar usurios
+     * ausentes do arquivo, j que no {@link SistemaParticionado} cada partio guarda apenas os seus
+     * usurios. Arquivos no formato antigo (um nico mapa serializado) continuam sendo aceitos.</p>
      *
      * @return Mapa contendo os usurios carregados
      * @throws PersistenciaException Se ocorrer um erro durante o carregamento ou se os dados estiverem corrompidos
      */
-    @SuppressWarnings("unchecked")
     public static Map<String, Usuario> carregarDados() throws PersistenciaException {
-        File arquivo = new File(getCaminhoCompleto());
+        return carregarDados(arquivoPadrao());
+    }
+
+    /**
+     * Carrega os dados de usurios de um arquivo qualquer, como em {@link #carregarDados()}.
+     *
+     * @param arquivo Arquivo de dados
+     * @return Mapa contendo os usurios carregados (vazio se o arquivo no existir)
+     * @throws PersistenciaException Se ocorrer um erro durante o carregamento ou se os dados estiverem corrompidos
+     */
+    public static Map<String, Usuario> carregarDados(File arquivo) throws PersistenciaException {
         if (!arquivo.exists()) {
-            return new java.util.HashMap<>();
+            return new HashMap<>();
         }
 
-        try (ObjectInputStream in = new ObjectInputStream(
-                new FileInputStream(getCaminhoCompleto()))) {
-            Object obj = in.readObject();
+        try (FileChannel canal = FileChannel.open(arquivo.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer inicio = ByteBuffer.allocate(12);
+            while (inicio.hasRemaining() && canal.read(inicio) >= 0) {
+                // l o incio do arquivo para identificar o formato
+            }
+            inicio.flip();
+            if (inicio.remaining() < 12 || inicio.getInt(0) != MAGICO) {
+                return carregarFormatoAntigo(arquivo);
+            }
 
-            if (!(obj instanceof Map)) {
+            int versao = inicio.getInt(4);
+            int numSegmentos = inicio.getInt(8);
+            if (versao < 1 || versao > VERSAO || numSegmentos < 1) {
                 throw new PersistenciaException(
                         "Formato de dados invlido",
                         "arquivo de dados",
-                        "O arquivo no contm um mapa de usurios vlido"
+                        "Verso " + versao + " com " + numSegmentos + " segmentos no suportada"
                 );
             }
 
-            return (Map<String, Usuario>) obj;
-        } catch (FileNotFoundException e) {
-            return new java.util.HashMap<>();
-        } catch (IOException | ClassNotFoundException e) {
+            ByteBuffer descritores = ByteBuffer.allocate(numSegmentos * TAMANHO_DESCRITOR);
+            while (descritores.hasRemaining() && canal.read(descritores, 12 + descritores.position()) >= 0) {
+                // l a tabela de descritores dos segmentos
+            }
+            descritores.flip();
+            if (descritores.remaining() < numSegmentos * TAMANHO_DESCRITOR) {
+                throw new PersistenciaException(
+                        "Formato de dados invlido",
+                        "arquivo de dados",
+                        "Tabela de segmentos truncada"
+                );
+            }
+
+            List<Callable<List<Usuario>>> tarefas = new ArrayList<>(numSegmentos);
+            int totalUsuarios = 0;
+            for (int i = 0; i < numSegmentos; i++) {
+                int indice = i;
+                long posicao = descritores.getLong();
+                long tamanho = descritores.getLong();
+                int quantidade = descritores.getInt();
+                int crc = descritores.getInt();
+                totalUsuarios += quantidade;
+                tarefas.add(() -> lerSegmento(canal, versao, indice, numSegmentos, posicao, tamanho, quantidade, crc));
+            }
+
+            Map<String, Usuario> usuarios = new HashMap<>(Math.max(16, (int) (totalUsuarios / 0.75f) + 1));
+            for (Future<List<Usuario>> resultado : ForkJoinPool.commonPool().invokeAll(tarefas)) {
+                for (Usuario usuario : aguardarSegmento(resultado)) {
+                    if (usuarios.put(usuario.getLogin(), usuario) != null) {
+                        throw new PersistenciaException(
+                                "Formato de dados invlido",
+                                "arquivo de dados",
+                                "Login duplicado entre segmentos: " + usuario.getLogin()
+                        );
+                    }
+                }
+            }
+
+            return usuarios;
+        } catch (NoSuchFileException e) {
+            return new HashMap<>();
+        } catch (IOException e) {
             throw new PersistenciaException(
                     "Falha ao carregar dados dos usurios",
                     "arquivo de dados",
@@ -91,8 +256,17 @@ public class Persistencia {
      * @throws PersistenciaException Se ocorrer um erro durante a remoo dos arquivos
      */
     public static void limparDados() throws PersistenciaException {
-        File arquivo = new File(getCaminhoCompleto());
-        File backup = new File(getCaminhoBackup());
+        limparDados(arquivoPadrao());
+    }
+
+    /**
+     * Remove permanentemente um arquivo de dados qualquer e o seu backup.
+     *
+     * @param arquivo Arquivo de dados
+     * @throws PersistenciaException Se ocorrer um erro durante a remoo dos arquivos
+     */
+    public static void limparDados(File arquivo) throws PersistenciaException {
+        File backup = backupDe(arquivo);
 
         boolean sucesso = true;
         if (arquivo.exists()) {
@@ -116,9 +290,9 @@ public class Persistencia {
     /**
      * Cria o diretrio de dados se ele no existir.
      */
-    private static void criarDiretorioSeNaoExistir() {
-        File dir = new File(DIRETORIO_DADOS);
-        if (!dir.exists()) {
+    private static void criarDiretorioSeNaoExistir(File arquivo) {
+        File dir = arquivo.getAbsoluteFile().getParentFile();
+        if (dir != null && !dir.exists()) {
             dir.mkdirs();
         }
     }
@@ -126,9 +300,8 @@ public class Persistencia {
     /**
      * Cria um backup do arquivo de dados atual.
      */
-    private static void fazerBackup() {
-        File original = new File(getCaminhoCompleto());
-        File backup = new File(getCaminhoBackup());
+    private static void fazerBackup(File original) {
+        File backup = backupDe(original);
 
         if (original.exists()) {
             original.renameTo(backup);
@@ -138,9 +311,8 @@ public class Persistencia {
     /**
      * Restaura o backup como arquivo principal de dados.
      */
-    private static void restaurarBackup() {
-        File original = new File(getCaminhoCompleto());
-        File backup = new File(getCaminhoBackup());
+    private static void restaurarBackup(File original) {
+        File backup = backupDe(original);
 
         if (backup.exists()) {
             backup.renameTo(original);
@@ -164,5 +336,203 @@ public class Persistencia {
     private static String getCaminhoBackup() {
         return DIRETORIO_DADOS + File.separator + ARQUIVO_DADOS + BACKUP_SUFFIX;
     }
-}
 
+    private static File arquivoPadrao() {
+        return new File(getCaminhoCompleto());
+    }
+
+    private static File backupDe(File arquivo) {
+        return new File(arquivo.getPath() + BACKUP_SUFFIX);
+    }
+
+    /**
+     * Obtm o segmento ao qual pertence um login.
+     *
+     * @param login Login do usurio
+     * @param numSegmentos Quantidade de segmentos do arquivo
+     * @return ndice do segmento, entre 0 e {@code numSegmentos - 1}
+     */
+    static int segmentoDe(String login, int numSegmentos) {
+        return Math.floorMod(login.hashCode(), numSegmentos);
+    }
+
+    /**
+     * Escreve um segmento: cabealho prprio seguido dos usurios em um fluxo de serializao
+     * independente, gravado em blocos comprimidos.
+     */
+    private static void escreverSegmento(OutputStream destino, int indice, List<Usuario> usuarios,
+                                         int nivelCompressao) throws IOException {
+        DataOutputStream dados = new DataOutputStream(new BufferedOutputStream(destino, 1 << 16));
+        dados.writeInt(MAGICO_SEGMENTO);
+        dados.writeInt(indice);
+        dados.writeInt(usuarios.size());
+
+        SaidaBlocos blocos = new SaidaBlocos(dados, nivelCompressao);
+        ObjectOutputStream out = new ObjectOutputStream(blocos);
+        int escritos = 0;
+        for (Usuario usuario : usuarios) {
+            out.writeObject(usuario);
+            if (++escritos % USUARIOS_POR_RESET == 0) {
+                out.reset(); // libera as formas serializadas j gravadas, que a tabela de referncias reteria
+            }
+        }
+        out.flush();
+        blocos.finalizar();
+        dados.flush();
+    }
+
+    /**
+     * L e valida um segmento do arquivo. Executado em paralelo, uma tarefa por segmento.
+     *
+     * <p>Na verso 1 o CRC32C do segmento  verificado antes da decodificao. Na verso 2 os blocos
+     * so verificados um a um durante a leitura, e o CRC32C do segmento, calculado no mesmo passo,
+     *  conferido ao final.</p>
+     */
+    private static List<Usuario> lerSegmento(FileChannel canal, int versao, int indice, int numSegmentos,
+                                             long posicao, long tamanho, int quantidade, int crcEsperado)
+            throws IOException, ClassNotFoundException {
+        if (posicao < 0 || tamanho < 12 || tamanho > Integer.MAX_VALUE || posicao + tamanho > canal.size()) {
+            throw new PersistenciaException("Formato de dados invlido", "segmento " + indice,
+                    "Descritor fora dos limites do arquivo");
+        }
+        ByteBuffer bytes = canal.map(FileChannel.MapMode.READ_ONLY, posicao, tamanho);
+
+        CRC32C crc = new CRC32C();
+        if (versao == 1) {
+            crc.update(bytes.duplicate());
+            if ((int) crc.getValue() != crcEsperado) {
+                throw new PersistenciaException("Dados corrompidos", "segmento " + indice,
+                        "Checksum CRC32C no confere");
+            }
+        }
+
+        CheckedInputStream verificado = new CheckedInputStream(new EntradaBuffer(bytes), crc);
+        DataInputStream dados = new DataInputStream(versao == 1 ? new EntradaBuffer(bytes.duplicate()) : verificado);
+        if (dados.readInt() != MAGICO_SEGMENTO || dados.readInt() != indice || dados.readInt() != quantidade) {
+            throw new PersistenciaException("Formato de dados invlido", "segmento " + indice,
+                    "Cabealho do segmento no confere com a tabela");
+        }
+
+        EntradaBlocos blocos = versao == 1 ? null : new EntradaBlocos(dados, "segmento " + indice);
+        List<Usuario> usuarios = new ArrayList<>(quantidade);
+        try {
+            ObjectInputStream in = new ObjectInputStream(blocos == null ? dados : blocos);
+            for (int i = 0; i < quantidade; i++) {
+                Object obj = in.readObject();
+                if (!(obj instanceof Usuario)) {
+                    throw new PersistenciaException("Formato de dados invlido", "segmento " + indice,
+                            "O segmento no contm apenas usurios");
+                }
+                Usuario usuario = (Usuario) obj;
+                if (segmentoDe(usuario.getLogin(), numSegmentos) != indice) {
+                    throw new PersistenciaException("Formato de dados invlido", "segmento " + indice,
+                            "Usurio " + usuario.getLogin() + " fora do seu segmento");
+                }
+                usuarios.add(usuario);
+            }
+        } catch (IOException | ClassNotFoundException | RuntimeException e) {
+            if (blocos != null && blocos.falha() != null) {
+                throw blocos.falha(); // bloco corrompido, mascarado pela desserializao
+            }
+            throw e;
+        }
+
+        if (blocos != null) {
+            if (blocos.read() != -1 || !blocos.terminou() || verificado.read() != -1) {
+                throw new PersistenciaException("Formato de dados invlido", "segmento " + indice,
+                        "Dados excedentes aps os usurios");
+            }
+            blocos.close();
+            if ((int) crc.getValue() != crcEsperado) {
+                throw new PersistenciaException("Dados corrompidos", "segmento " + indice,
+                        "Checksum CRC32C no confere");
+            }
+        }
+        return usuarios;
+    }
+
+    /**
+     * Aguarda o trmino da decodificao de um segmento, propagando a falha original.
+     */
+    private static List<Usuario> aguardarSegmento(Future<List<Usuario>> resultado) throws IOException {
+        try {
+            return resultado.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Carregamento interrompido");
+        } catch (ExecutionException e) {
+            Throwable causa = e.getCause();
+            if (causa instanceof PersistenciaException) {
+                throw (PersistenciaException) causa;
+            }
+            if (causa instanceof IOException) {
+                throw (IOException) causa;
+            }
+            throw new IOException(causa.getMessage(), causa);
+        }
+    }
+
+    /**
+     * Carrega um arquivo no formato antigo, contendo um nico mapa serializado.
+     */
+    @SuppressWarnings("unchecked")
+    private static Map<String, Usuario> carregarFormatoAntigo(File arquivo) throws PersistenciaException {
+        try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(
+                new FileInputStream(arquivo)))) {
+            Object obj = in.readObject();
+
+            if (!(obj instanceof Map)) {
+                throw new PersistenciaException(
+                        "Formato de dados invlido",
+                        "arquivo de dados",
+                        "O arquivo no contm um mapa de usurios vlido"
+                );
+            }
+
+            return (Map<String, Usuario>) obj;
+        } catch (FileNotFoundException e) {
+            return new HashMap<>();
+        } catch (IOException | ClassNotFoundException e) {
+            throw new PersistenciaException(
+                    "Falha ao carregar dados dos usurios",
+                    "arquivo de dados",
+                    e.getMessage(),
+                    e
+            );
+        }
+    }
+
+    /**
+     * Adaptador de leitura sobre um ByteBuffer, usado para decodificar segmentos mapeados em memria.
+     */
+    private static class EntradaBuffer extends InputStream {
+        private final ByteBuffer buffer;
+
+        EntradaBuffer(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,83 @@
+package entidades;
+
+import java.time.Duration;
+
+/**
+ * Poltica de reteno dos recados no lidos: idade mxima de um recado e quantidade mxima de
+ * recados por caixa de entrada.  aplicada em segundo plano pelo {@link ExpurgoRecados}.
+ */
+public final class PoliticaRetencao {
+    /**
+     * Poltica que mantm todos os recados.
+     */
+    public static final PoliticaRetencao SEM_LIMITE = new PoliticaRetencao(Long.MAX_VALUE, Integer.MAX_VALUE);
+
+    private final long idadeMaximaMillis;
+    private final int maximoPorCaixa;
+
+    private PoliticaRetencao(long idadeMaximaMillis, int maximoPorCaixa) {
+        this.idadeMaximaMillis = idadeMaximaMillis;
+        this.maximoPorCaixa = maximoPorCaixa;
+    }
+
+    /**
+     * Cria uma poltica de reteno.
+     *
+     * @param idadeMaxima Idade mxima de um recado no lido, ou null para no limitar
+     * @param maximoPorCaixa Quantidade mxima de recados por caixa de entrada, ou
+     *                       {@link Integer#MAX_VALUE} para no limitar
+     * @return Poltica correspondente
+     * @throws IllegalArgumentException Se a idade for negativa ou o mximo for negativo
+     */
+    public static PoliticaRetencao de(Duration idadeMaxima, int maximoPorCaixa) {
+        if (idadeMaxima != null && idadeMaxima.isNegative()) {
+            throw new IllegalArgumentException("Idade mxima no pode ser negativa.");
+        }
+        if (maximoPorCaixa < 0) {
+            throw new IllegalArgumentException("Mximo de recados no pode ser negativo.");
+        }
+        long millis = idadeMaxima == null ? Long.MAX_VALUE : saturar(idadeMaxima);
+        return new PoliticaRetencao(millis, maximoPorCaixa);
+    }
+
+    private static long saturar(Duration duracao) {
+        try {
+            return duracao.toMillis();
+        } catch (ArithmeticException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Obtm o instante de envio mais antigo mantido pela poltica, no momento informado.
+     *
+     * @param agora Instante atual, em milissegundos desde a poca
+     * @return Limite de idade (recados enviados antes dele so descartados)
+     */
+    public long limiteDeIdade(long agora) {
+        return idadeMaximaMillis >= agora ? Long.MIN_VALUE : agora - idadeMaximaMillis;
+    }
+
+    /**
+     * Obtm a idade mxima de um recado no lido.
+     *
+     * @return Idade mxima em milissegundos ({@link Long#MAX_VALUE} se ilimitada)
+     */
+    public long getIdadeMaximaMillis() {
+        return idadeMaximaMillis;
+    }
+
+    /**
+     * Obtm a quantidade mxima de recados por caixa de entrada.
+     *
+     * @return Mximo de recados ({@link Integer#MAX_VALUE} se ilimitado)
+     */
+    public int getMaximoPorCaixa() {
+        return maximoPorCaixa;
+    }
+
+    @Override
+    public String toString() {
+        return "PoliticaRetencao[idadeMaximaMillis=" + idadeMaximaMillis + ", maximoPorCaixa=" + maximoPorCaixa + "]";
+    }
+}
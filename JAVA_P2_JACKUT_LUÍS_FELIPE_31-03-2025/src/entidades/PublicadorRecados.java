@@ -0,0 +1,113 @@
+package entidades;
+
+import java.util.Objects;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Publica, no padro {@link Flow}, os recados que chegam para um usurio. Cada recado entregue ao
+ * assinante  consumido da fila do usurio, como em {@link Facade#lerRecado}.
+ *
+ * <p>Os recados s so retirados da fila quando h demanda do assinante. Sem demanda, ou sem
+ * recados, a assinatura fica apenas registrada em {@link EsperasRecados} e no consome CPU.</p>
+ */
+class PublicadorRecados implements Flow.Publisher<String> {
+    private final Sistema sistema;
+    private final String login;
+    private final Executor executor;
+
+    /**
+     * Cria um publicador para os recados de um usurio.
+     *
+     * @param sistema Sistema do usurio
+     * @param login Login do usurio
+     * @param executor Executor em que os recados so entregues ao assinante
+     */
+    PublicadorRecados(Sistema sistema, String login, Executor executor) {
+        this.sistema = sistema;
+        this.login = login;
+        this.executor = executor;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super String> assinante) {
+        Objects.requireNonNull(assinante, "assinante");
+        Assinatura assinatura = new Assinatura(assinante);
+        assinante.onSubscribe(assinatura);
+    }
+
+    private final class Assinatura implements Flow.Subscription, Runnable {
+        private final Flow.Subscriber<? super String> assinante;
+        private final AtomicLong demanda = new AtomicLong();
+        private final AtomicInteger pendentes = new AtomicInteger();
+        private final Runnable aviso = this::agendar;
+        private volatile boolean cancelada;
+
+        Assinatura(Flow.Subscriber<? super String> assinante) {
+            this.assinante = assinante;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                cancel();
+                assinante.onError(new IllegalArgumentException("Demanda deve ser positiva: " + n));
+                return;
+            }
+            demanda.getAndAccumulate(n, (atual, extra) -> atual + extra < 0 ? Long.MAX_VALUE : atual + extra);
+            agendar();
+        }
+
+        @Override
+        public void cancel() {
+            cancelada = true;
+            sistema.cancelarEsperaRecado(login, aviso);
+        }
+
+        private void agendar() {
+            if (pendentes.getAndIncrement() == 0) {
+                executor.execute(this);
+            }
+        }
+
+        /**
+         * Entrega recados enquanto houver demanda; execues concorrentes so serializadas pelo
+         * contador de pendncias.
+         */
+        @Override
+        public void run() {
+            int execucoes = 1;
+            do {
+                entregar();
+                execucoes = pendentes.addAndGet(-execucoes);
+            } while (execucoes != 0);
+        }
+
+        private void entregar() {
+            while (!cancelada && demanda.get() > 0) {
+                String recado;
+                try {
+                    recado = (String) sistema.registrar(Mutacao.lerRecado(login));
+                } catch (RuntimeException e) {
+                    cancel();
+                    assinante.onError(e);
+                    return;
+                }
+                if (recado == null) {
+                    esperar();
+                    return;
+                }
+                demanda.decrementAndGet();
+                assinante.onNext(recado);
+            }
+        }
+
+        private void esperar() {
+            sistema.cancelarEsperaRecado(login, aviso);
+            sistema.esperarRecado(login, aviso);
+            if (sistema.temRecado(login) && sistema.cancelarEsperaRecado(login, aviso)) {
+                pendentes.incrementAndGet(); // recado chegou durante o registro: repete a entrega
+            }
+        }
+    }
+}
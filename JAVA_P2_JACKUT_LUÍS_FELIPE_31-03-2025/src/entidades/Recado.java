@@ -1,35 +1,89 @@
 package entidades;
 
-import java.io.Serial;
-import java.io.Serializable;
+import java.io.*;
 
 /**
  * Classe que representa um recado/mensagem no sistema.
- * Contm o contedo da mensagem e implementa Serializable para permitir
- * a serializao dos objetos para armazenamento persistente.
+ * Implementa Serializable para permitir a serializao dos objetos para armazenamento persistente.
+ *
+ * <p>O contedo da mensagem no fica no heap:  gravado em uma regio de memria direta da
+ * {@link ArenaRecados}, e o recado guarda apenas a referncia  regio, a posio e o tamanho. A
+ * arena pode trocar a regio de um recado ao compactar regies esparsas.
+ * A forma serial continua sendo o texto da mensagem, compatvel com arquivos antigos.</p>
  */
 public class Recado implements Serializable {
     @Serial
     private static final long serialVersionUID = 1L;
 
+    @Serial
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("mensagem", String.class),
+            new ObjectStreamField("instante", long.class)
+    };
+
+    // Atribudos apenas na construo ou na desserializao; a regio tambm em ArenaRecados#compactar
+    private volatile ArenaRecados.Regiao regiao;
+    private int posicao;
+    private int tamanho;
+    private long instante;
+
     /**
-     * O contedo textual da mensagem.
-     * Armazenado como final para garantir imutabilidade aps criao.
+     * Constri um novo recado com remetente e mensagem, enviado agora.
+     *
+     * @param remetente Login/nome do usurio que enviou o recado
+     * @param mensagem Contedo textual do recado (no pode ser nulo ou vazio)
+     * @throws IllegalArgumentException Se a mensagem for nula ou vazia
      */
-    private final String mensagem;
+    public Recado(String remetente, String mensagem) {
+        this(remetente, mensagem, System.currentTimeMillis());
+    }
 
     /**
-     * Constri um novo recado com remetente e mensagem.
+     * Constri um novo recado com remetente, mensagem e instante de envio.
      *
      * @param remetente Login/nome do usurio que enviou o recado
      * @param mensagem Contedo textual do recado (no pode ser nulo ou vazio)
+     * @param instante Momento de envio, em milissegundos desde a poca
      * @throws IllegalArgumentException Se a mensagem for nula ou vazia
      */
-    public Recado(String remetente, String mensagem) {
+    public Recado(String remetente, String mensagem, long instante) {
+        this.instante = instante;
+        ArenaRecados.padrao().gravar(this, validar(mensagem));
+    }
+
+    ArenaRecados.Regiao getRegiao() {
+        return regiao;
+    }
+
+    int getPosicao() {
+        return posicao;
+    }
+
+    int getTamanho() {
+        return tamanho;
+    }
+
+    /**
+     * Registra onde o texto do recado foi gravado. Usado por {@link ArenaRecados}.
+     */
+    void localizar(ArenaRecados.Regiao regiao, int posicao, int tamanho) {
+        this.posicao = posicao;
+        this.tamanho = tamanho;
+        this.regiao = regiao;
+    }
+
+    /**
+     * Aponta o recado para uma cpia do seu texto. Usado por {@link ArenaRecados}.
+     */
+    void realocar(ArenaRecados.Regiao copia) {
+        regiao = copia;
+    }
+
+    private static String validar(String mensagem) {
         if (mensagem == null || mensagem.trim().isEmpty()) {
             throw new IllegalArgumentException("Mensagem no pode ser vazia");
         }
-        this.mensagem = mensagem;
+        return mensagem;
     }
 
     /**
@@ -38,7 +92,16 @@ public class Recado implements Serializable {
      * @return String com o texto completo da mensagem
      */
     public String getMensagem() {
-        return mensagem;
+        return regiao.ler(posicao, tamanho);
+    }
+
+    /**
+     * Obtm o instante de envio do recado.
+     *
+     * @return Milissegundos desde a poca
+     */
+    public long getInstante() {
+        return instante;
     }
 
     /**
@@ -49,6 +112,26 @@ public class Recado implements Serializable {
      */
     @Override
     public String toString() {
-        return mensagem;
+        return getMensagem();
+    }
+
+    @Serial
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField campos = out.putFields();
+        campos.put("mensagem", getMensagem());
+        campos.put("instante", instante);
+        out.writeFields();
+    }
+
+    @Serial
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField campos = in.readFields();
+        String mensagem = (String) campos.get("mensagem", null);
+        if (mensagem == null || mensagem.trim().isEmpty()) {
+            throw new InvalidObjectException("Recado sem mensagem.");
+        }
+        // Arquivos anteriores no guardam o instante: o recado conta como recebido na carga
+        this.instante = campos.defaulted("instante") ? System.currentTimeMillis() : campos.get("instante", 0L);
+        ArenaRecados.padrao().gravar(this, mensagem);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,139 @@
+package entidades;
+
+import java.io.*;
+import java.util.zip.CRC32C;
+import java.util.zip.Deflater;
+
+/**
+ * Fluxo de sada que agrupa os bytes escritos em blocos de tamanho fixo, comprime cada bloco
+ * com {@link Deflater} e grava junto dele o CRC32C dos dados originais.
+ *
+ * <p>Cada bloco  gravado assim que fica cheio, de modo que o contedo completo nunca precisa
+ * estar em memria. Formato de cada bloco:</p>
+ * <pre>
+ * byte codec | int tamanhoOriginal | int tamanhoGravado | int crc32c | bytes[tamanhoGravado]
+ * </pre>
+ * <p>O fim do fluxo  marcado por um bloco com tamanho original zero. Blocos que no diminuem
+ * com a compresso so gravados sem compresso.</p>
+ *
+ * @see EntradaBlocos
+ */
+class SaidaBlocos extends OutputStream {
+    static final byte CODEC_ARMAZENADO = 0;
+    static final byte CODEC_DEFLATE = 1;
+    static final int TAMANHO_BLOCO = 1 << 16;
+
+    private final DataOutputStream destino;
+    private final Deflater deflater;
+    private final byte[] bloco = new byte[TAMANHO_BLOCO];
+    private final byte[] comprimido = new byte[TAMANHO_BLOCO];
+    private final CRC32C crc = new CRC32C();
+    private int usado;
+    private boolean finalizado;
+
+    /**
+     * Cria um fluxo de blocos sobre o destino informado.
+     *
+     * @param destino Fluxo onde os blocos sero gravados (no  fechado por esta classe)
+     * @param nivelCompressao Nvel do {@link Deflater}, de 0 (sem compresso) a 9
+     */
+    SaidaBlocos(OutputStream destino, int nivelCompressao) {
+        if (nivelCompressao < Deflater.NO_COMPRESSION || nivelCompressao > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Nvel de compresso invlido: " + nivelCompressao);
+        }
+        this.destino = new DataOutputStream(destino);
+        this.deflater = nivelCompressao == Deflater.NO_COMPRESSION ? null : new Deflater(nivelCompressao, true);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (usado == TAMANHO_BLOCO) {
+            gravarBloco();
+        }
+        bloco[usado++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            if (usado == TAMANHO_BLOCO) {
+                gravarBloco();
+            }
+            int n = Math.min(len, TAMANHO_BLOCO - usado);
+            System.arraycopy(b, off, bloco, usado, n);
+            usado += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * Grava o bloco pendente e o marcador de fim, liberando o compressor.
+     * O fluxo de destino  descarregado, mas no fechado.
+     *
+     * @throws IOException Se ocorrer um erro de escrita
+     */
+    void finalizar() throws IOException {
+        if (finalizado) {
+            return;
+        }
+        finalizado = true;
+        try {
+            if (usado > 0) {
+                gravarBloco();
+            }
+            destino.writeByte(CODEC_ARMAZENADO);
+            destino.writeInt(0);
+            destino.writeInt(0);
+            destino.writeInt(0);
+            destino.flush();
+        } finally {
+            if (deflater != null) {
+                deflater.end();
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        finalizar();
+    }
+
+    private void gravarBloco() throws IOException {
+        crc.reset();
+        crc.update(bloco, 0, usado);
+
+        int tamanhoComprimido = comprimir();
+        if (tamanhoComprimido > 0) {
+            escreverCabecalho(CODEC_DEFLATE, tamanhoComprimido);
+            destino.write(comprimido, 0, tamanhoComprimido);
+        } else {
+            escreverCabecalho(CODEC_ARMAZENADO, usado);
+            destino.write(bloco, 0, usado);
+        }
+        usado = 0;
+    }
+
+    /**
+     * Comprime o bloco atual.
+     *
+     * @return Tamanho comprimido, ou -1 se a compresso estiver desativada ou no reduzir o bloco
+     */
+    private int comprimir() {
+        if (deflater == null) {
+            return -1;
+        }
+        deflater.reset();
+        deflater.setInput(bloco, 0, usado);
+        deflater.finish();
+        int tamanho = deflater.deflate(comprimido, 0, comprimido.length);
+        return deflater.finished() && tamanho < usado ? tamanho : -1;
+    }
+
+    private void escreverCabecalho(byte codec, int tamanhoGravado) throws IOException {
+        destino.writeByte(codec);
+        destino.writeInt(usado);
+        destino.writeInt(tamanhoGravado);
+        destino.writeInt((int) crc.getValue());
+    }
+}
@@ -0,0 +1,167 @@
+package entidades;
+
+import java.io.*;
+import java.net.*;
+
+/**
+ * Lado rplica (seguidor) da replicao do Jackut. Conecta ao {@link LiderReplicacao}, aplica
+ * as mutaes recebidas ao seu prprio {@link Sistema} e reconecta automaticamente se a conexo cair.
+ *
+ * <p>O atraso da rplica pode ser consultado em {@link #getAtraso()} (mutaes ainda no aplicadas)
+ * e {@link #getMillisDesdeUltimoContato()}. Se a rplica ficar para trs alm do feed mantido pelo
+ * lder, ela recebe um snapshot completo e continua a partir dele. O mesmo acontece quando o
+ * lder reinicia (a poca dele muda) e quando uma mutao recebida no pode ser aplicada aqui: o
+ * estado local  tratado como divergente e a rplica volta a se sincronizar por snapshot.</p>
+ */
+public class SeguidorReplicacao implements Closeable {
+    private static final long ESPERA_RECONEXAO_MILLIS = 1000;
+
+    private final Sistema sistema;
+    private final String host;
+    private final int porta;
+    private volatile boolean ativo = true;
+    private volatile long epocaLider;
+    private volatile long aplicada = -1;
+    private volatile long ultimaDoLider = -1;
+    private volatile long ultimoContato;
+    private volatile Socket socket;
+
+    /**
+     * Inicia a replicao em segundo plano a partir do lder informado.
+     *
+     * @param sistema Sistema local que receber as mutaes
+     * @param host Endereo do lder
+     * @param porta Porta do lder
+     */
+    public SeguidorReplicacao(Sistema sistema, String host, int porta) {
+        this.sistema = sistema;
+        this.host = host;
+        this.porta = porta;
+
+        Thread thread = new Thread(this::replicar, "jackut-seguidor");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Obtm a sequncia da ltima mutao aplicada localmente (-1 antes do primeiro snapshot).
+     *
+     * @return ltima sequncia aplicada
+     */
+    public long getSequenciaAplicada() {
+        return aplicada;
+    }
+
+    /**
+     * Obtm o atraso de replicao em nmero de mutaes: quantas mutaes o lder j havia
+     * publicado, no ltimo contato, que ainda no foram aplicadas aqui.
+     *
+     * @return Mutaes pendentes, ou -1 se a rplica ainda no sincronizou
+     */
+    public long getAtraso() {
+        long aplicada = this.aplicada;
+        return aplicada < 0 ? -1 : Math.max(0, ultimaDoLider - aplicada);
+    }
+
+    /**
+     * Obtm o tempo desde o ltimo quadro recebido do lder.
+     *
+     * @return Milissegundos desde o ltimo contato, ou -1 se nunca houve contato
+     */
+    public long getMillisDesdeUltimoContato() {
+        return ultimoContato == 0 ? -1 : System.currentTimeMillis() - ultimoContato;
+    }
+
+    /**
+     * Indica se a rplica j recebeu o estado inicial do lder.
+     *
+     * @return true se j h dados replicados
+     */
+    public boolean sincronizada() {
+        return aplicada >= 0;
+    }
+
+    /**
+     * Interrompe a replicao.
+     */
+    @Override
+    public void close() throws IOException {
+        ativo = false;
+        Socket atual = socket;
+        if (atual != null) {
+            atual.close();
+        }
+    }
+
+    private void replicar() {
+        while (ativo) {
+            try (Socket conexao = new Socket(host, porta)) {
+                socket = conexao;
+                conexao.setTcpNoDelay(true);
+                DataOutputStream out = new DataOutputStream(conexao.getOutputStream());
+                out.writeLong(aplicada < 0 ? 0 : epocaLider);
+                out.writeLong(aplicada);
+                out.flush();
+
+                DataInputStream in = new DataInputStream(new BufferedInputStream(conexao.getInputStream()));
+                while (ativo) {
+                    receberQuadro(in);
+                }
+            } catch (IOException e) {
+                if (ativo) {
+                    esperarReconexao();
+                }
+            } catch (RuntimeException e) {
+                // estado local divergiu do lder: descarta a posio e reconecta pedindo um snapshot
+                System.err.println("Rplica divergente, ressincronizando: " + e);
+                aplicada = -1;
+                if (ativo) {
+                    esperarReconexao();
+                }
+            }
+        }
+    }
+
+    private void receberQuadro(DataInputStream in) throws IOException {
+        byte tipo = in.readByte();
+        switch (tipo) {
+            case LiderReplicacao.QUADRO_SNAPSHOT:
+                long epoca = in.readLong();
+                long sequencia = in.readLong();
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                aplicada = -1;
+                sistema.restaurarSnapshot(new ByteArrayInputStream(bytes));
+                epocaLider = epoca;
+                aplicada = sequencia;
+                ultimaDoLider = sequencia;
+                break;
+            case LiderReplicacao.QUADRO_MUTACAO:
+                long seq = in.readLong();
+                Mutacao mutacao = Mutacao.ler(in);
+                if (seq != aplicada + 1) {
+                    throw new StreamCorruptedException("Sequncia fora de ordem: " + seq + " aps " + aplicada);
+                }
+                sistema.registrar(mutacao);
+                aplicada = seq;
+                ultimaDoLider = Math.max(ultimaDoLider, seq);
+                break;
+            case LiderReplicacao.QUADRO_PULSO:
+                ultimaDoLider = in.readLong();
+                in.readLong(); // instante do lder, apenas informativo
+                break;
+            default:
+                throw new StreamCorruptedException("Quadro de replicao desconhecido: " + tipo);
+        }
+        ultimoContato = System.currentTimeMillis();
+    }
+
+    private void esperarReconexao() {
+        try {
+            Thread.sleep(ESPERA_RECONEXAO_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            ativo = false;
+        }
+    }
+}
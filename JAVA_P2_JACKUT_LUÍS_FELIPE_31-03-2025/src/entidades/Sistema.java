@@ -1,6 +1,11 @@
 package entidades;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.io.*;
 import entidades.exceptions.*;
 
@@ -11,17 +16,49 @@ import entidades.exceptions.*;
  * - Controle do estado do sistema
  *
  * Implementa funcionalidades de autenticao, armazenamento e recuperao de dados.
+ *
+ * <p>Os usurios ficam em um {@link MapaPersistente} imutvel, publicado por troca atmica de
+ * referncia a cada alterao. Leituras nunca bloqueiam: obtm a verso corrente e trabalham sobre
+ * ela, enquanto as gravaes em disco e os snapshots de replicao serializam uma verso fixa sem
+ * impedir novas alteraes.</p>
  */
 public class Sistema {
     private static final String ARQUIVO_DADOS = "dados_jackut.ser";
-    private Map<String, Usuario> usuarios;
-    private Map<String, String> sessoes; // idSessao -> login
+    private final MotorArmazenamento armazenamento;
+    private final Object salvamento = new Object(); // um salvamento por vez
+    private final AtomicReference<MapaPersistente<String, Usuario>> usuarios =
+            new AtomicReference<>(MapaPersistente.vazio());
+    private final Map<String, String> sessoes = new ConcurrentHashMap<>(); // idSessao -> login
+    private final EsperasRecados esperas = new EsperasRecados(ForkJoinPool.commonPool());
+    private FeedMutacoes feed; // null quando a replicao no est ativa
 
     /**
      * Constri uma nova instncia do sistema, carregando os dados persistentes.
      * Se no existirem dados salvos, inicia com estruturas vazias.
      */
     public Sistema() {
+        this(ARQUIVO_DADOS);
+    }
+
+    /**
+     * Constri uma nova instncia do sistema que persiste seus dados no arquivo informado.
+     * Permite que vrias instncias convivam no mesmo processo, cada uma com seu prprio armazenamento.
+     * O tipo de armazenamento  o configurado em {@link MotorArmazenamento#configurado(String)}.
+     *
+     * @param arquivoDados Caminho do arquivo de dados desta instncia
+     */
+    public Sistema(String arquivoDados) {
+        this(MotorArmazenamento.configurado(arquivoDados));
+    }
+
+    /**
+     * Constri uma nova instncia do sistema sobre o armazenamento informado, carregando os dados
+     * j gravados nele.
+     *
+     * @param armazenamento Armazenamento durvel desta instncia
+     */
+    public Sistema(MotorArmazenamento armazenamento) {
+        this.armazenamento = armazenamento;
         carregarDados();
     }
 
@@ -33,11 +70,12 @@ public class Sistema {
      * @param usuario Objeto Usuario a ser adicionado
      * @throws UsuarioJaExisteException Se j existir um usurio com o mesmo login
      */
-    public void adicionarUsuario(Usuario usuario) {
-        if (usuarios.containsKey(usuario.getLogin())) {
-            throw new UsuarioJaExisteException();
+    public synchronized void adicionarUsuario(Usuario usuario) {
+        MapaPersistente<String, Usuario> atual = usuarios.get();
+        if (atual.containsKey(usuario.getLogin())) {
+            throw UsuarioJaExisteException.INSTANCIA;
         }
-        usuarios.put(usuario.getLogin(), usuario);
+        usuarios.set(atual.com(usuario.getLogin(), usuario));
     }
 
     /**
@@ -47,7 +85,17 @@ public class Sistema {
      * @return Objeto Usuario correspondente ou null se no existir
      */
     public Usuario getUsuario(String login) {
-        return usuarios.get(login);
+        return usuarios.get().get(login);
+    }
+
+    /**
+     * Obtm a verso corrente de todos os usurios. O mapa devolvido  imutvel e no reflete
+     * alteraes posteriores, servindo como uma viso consistente do sistema em um instante.
+     *
+     * @return Mapa imutvel de login para usurio
+     */
+    public Map<String, Usuario> getVersaoAtual() {
+        return usuarios.get();
     }
 
     /**
@@ -59,9 +107,9 @@ public class Sistema {
      * @throws LoginOuSenhaInvalidosException Se as credenciais forem invlidas
      */
     public String abrirSessao(String login, String senha) {
-        Usuario usuario = usuarios.get(login);
+        Usuario usuario = getUsuario(login);
         if (usuario == null || !usuario.verificarSenha(senha)) {
-            throw new LoginOuSenhaInvalidosException();
+            throw LoginOuSenhaInvalidosException.INSTANCIA;
         }
 
         String idSessao = UUID.randomUUID().toString();
@@ -76,7 +124,7 @@ public class Sistema {
      * @return true se a sesso for vlida, false caso contrrio
      */
     public boolean validarSessao(String idSessao) {
-        return sessoes.containsKey(idSessao);
+        return idSessao != null && sessoes.containsKey(idSessao);
     }
 
     /**
@@ -88,48 +136,330 @@ public class Sistema {
      */
     public String getLoginPorSessao(String idSessao) {
         if (idSessao == null || idSessao.isEmpty() || !validarSessao(idSessao)) {
-            throw new IllegalArgumentException("Sesso invlida.");
+            throw SessaoInvalidaException.INSTANCIA;
         }
         return sessoes.get(idSessao);
     }
 
+    // Mutaes e replicao
+
+    /**
+     * Registra uma mutao no armazenamento, a aplica ao sistema e, se houver um feed de mutaes
+     * ativo, a publica nele. A nova verso dos usurios  preparada antes e s se torna visvel
+     * depois do registro: se o armazenamento falhar, nada muda. O registro, a aplicao e a
+     * publicao so atmicos em relao a {@link #capturarSnapshot}; leituras no esperam por este
+     * mtodo. Depois de entregar um recado, dispara os avisos de quem aguarda recados do destinatrio.
+     *
+     * @param mutacao Mutao a ser aplicada
+     * @return Resultado da mutao (o recado consumido, para leituras de recado)
+     */
+    public Object registrar(Mutacao mutacao) {
+        Object resultado;
+        synchronized (this) {
+            MapaPersistente<String, Usuario> atual = usuarios.get();
+            MapaPersistente<String, Usuario> nova = mutacao.aplicarEm(atual, false);
+            resultado = mutacao.resultadoEm(atual);
+            if (mutacao.alterou(resultado)) {
+                armazenamento.registrar(Collections.singletonList(mutacao));
+                if (mutacao.getTipo() == Mutacao.Tipo.ZERAR) {
+                    zerarSistema();
+                } else {
+                    usuarios.set(nova);
+                }
+                if (feed != null) {
+                    feed.publicar(mutacao);
+                }
+            }
+        }
+        if (mutacao.getTipo() == Mutacao.Tipo.RECADO) {
+            esperas.avisar(mutacao.getLogin());
+        }
+        return resultado;
+    }
+
+    /**
+     * Aplica um lote de mutaes e publica o resultado como uma nica nova verso dos usurios.
+     * Mutaes que violam alguma regra so ignoradas e relatadas; as demais so registradas no
+     * armazenamento, aplicadas e publicadas no feed na ordem do lote, como em {@link #registrar}.
+     *
+     * @param lote Mutaes a aplicar (ver {@link Mutacao#aplicarEm}), exigindo que os usurios citados existam
+     * @return Arranjo alinhado com o lote: null para as mutaes aplicadas, a exceo para as rejeitadas
+     */
+    JackutException[] aplicarLote(List<Mutacao> lote) {
+        JackutException[] falhas;
+        synchronized (this) {
+            MapaPersistente<String, Usuario> nova = usuarios.get();
+            falhas = new JackutException[lote.size()];
+            for (int i = 0; i < lote.size(); i++) {
+                try {
+                    nova = lote.get(i).aplicarEm(nova, true);
+                } catch (JackutException e) {
+                    falhas[i] = e;
+                }
+            }
+            List<Mutacao> aplicadas = new ArrayList<>(lote.size());
+            for (int i = 0; i < lote.size(); i++) {
+                if (falhas[i] == null) {
+                    aplicadas.add(lote.get(i));
+                }
+            }
+            armazenamento.registrar(aplicadas);
+            usuarios.set(nova);
+            if (feed != null) {
+                for (Mutacao mutacao : aplicadas) {
+                    feed.publicar(mutacao);
+                }
+            }
+        }
+        for (int i = 0; i < lote.size(); i++) {
+            Mutacao mutacao = lote.get(i);
+            if (falhas[i] == null && mutacao.getTipo() == Mutacao.Tipo.RECADO) {
+                esperas.avisar(mutacao.getLogin());
+            }
+        }
+        return falhas;
+    }
+
+    /**
+     * Registra um pedido de amizade de {@code login} para {@code amigo}: um convite, ou a amizade
+     * confirmada dos dois lados se o amigo j havia convidado o usurio. A validao e a deciso
+     * so feitas sob o mesmo bloqueio das gravaes, e os dois lados de uma aceitao mtua entram
+     * em uma nica verso dos usurios, ento nenhum leitor v a amizade s de um lado.
+     *
+     * @param login Login do usurio que pede a amizade
+     * @param amigo Login do usurio convidado
+     * @throws UsuarioNaoCadastradoException Se algum dos usurios no existir
+     * @throws AmizadeJaExistenteException Se os dois j forem amigos
+     * @throws AmizadePendenteException Se o usurio j tiver convidado o amigo
+     */
+    public void registrarAmizade(String login, String amigo) {
+        synchronized (this) {
+            Usuario usuario = getUsuario(login);
+            Usuario amigoUsuario = getUsuario(amigo);
+            if (usuario == null || amigoUsuario == null) {
+                throw UsuarioNaoCadastradoException.INSTANCIA;
+            }
+            if (usuario.ehAmigo(amigo)) {
+                throw AmizadeJaExistenteException.INSTANCIA;
+            }
+            if (usuario.temConvitePendente(amigo)) {
+                throw AmizadePendenteException.INSTANCIA;
+            }
+            List<Mutacao> lote = amigoUsuario.temConvitePendente(login)
+                    ? Arrays.asList(Mutacao.amizade(login, amigo, true), Mutacao.amizade(amigo, login, true))
+                    : Collections.singletonList(Mutacao.amizade(login, amigo, false));
+            for (JackutException falha : aplicarLote(lote)) {
+                if (falha != null) {
+                    throw falha;
+                }
+            }
+        }
+    }
+
+    /**
+     * Ativa a publicao das mutaes registradas no feed informado.
+     *
+     * @param feed Feed que receber as mutaes
+     */
+    public synchronized void setFeed(FeedMutacoes feed) {
+        this.feed = feed;
+    }
+
+    /**
+     * Serializa o estado atual dos usurios junto com a sequncia da ltima mutao publicada,
+     * de forma consistente com o feed. Usado para inicializar rplicas. Apenas a captura da verso
+     *  sincronizada com {@link #registrar}; a serializao ocorre enquanto novas mutaes prosseguem.
+     *
+     * @param out Fluxo onde o snapshot ser escrito
+     * @return Sequncia do feed correspondente ao snapshot (0 se no houver feed)
+     * @throws IOException Se ocorrer um erro de escrita
+     */
+    public long capturarSnapshot(OutputStream out) throws IOException {
+        MapaPersistente<String, Usuario> versao;
+        long sequencia;
+        synchronized (this) {
+            versao = usuarios.get();
+            sequencia = feed != null ? feed.getUltima() : 0;
+        }
+        ObjectOutputStream oos = new ObjectOutputStream(out);
+        oos.writeObject(new HashMap<>(versao));
+        oos.flush();
+        return sequencia;
+    }
+
+    /**
+     * Substitui todos os usurios pelo contedo de um snapshot gerado por {@link #capturarSnapshot}.
+     * As sesses abertas so descartadas, e o novo estado  gravado no armazenamento, que no
+     * conhece as mutaes que o produziram.
+     *
+     * @param in Fluxo contendo o snapshot
+     * @throws IOException Se o snapshot no puder ser lido
+     */
+    @SuppressWarnings("unchecked")
+    public void restaurarSnapshot(InputStream in) throws IOException {
+        synchronized (this) {
+            try {
+                Map<String, Usuario> restaurados = (Map<String, Usuario>) new ObjectInputStream(in).readObject();
+                this.usuarios.set(MapaPersistente.de(restaurados));
+                this.sessoes.clear();
+                esperas.avisarTodos();
+            } catch (ClassNotFoundException | ClassCastException e) {
+                throw new InvalidObjectException("Snapshot invlido: " + e.getMessage());
+            }
+        }
+        salvarDados();
+    }
+
+    // Espera por recados
+
+    /**
+     * Aguarda a chegada de um recado para o usurio e o consome, como {@link Mutacao#lerRecado}.
+     * Se j houver recados na fila, o futuro  concludo imediatamente. Enquanto espera, nenhuma
+     * thread fica bloqueada: apenas um aviso permanece registrado.
+     *
+     * <p>O fim do prazo e o consumo de um recado se excluem: o prazo esgotado conclui o futuro com
+     * null e, a partir da, nenhum recado  consumido para ele. O cancelamento do futuro segue a mesma
+     * regra: s tem efeito se nenhum recado tiver sido consumido; caso contrrio {@code cancel} devolve
+     * false e o futuro fica com o recado consumido, que assim no se perde.</p>
+     *
+     * @param login Login do destinatrio
+     * @param prazo Tempo mximo de espera
+     * @param unidade Unidade do prazo
+     * @return Futuro com o recado lido, ou null se o prazo esgotar sem recados
+     */
+    public CompletableFuture<String> aguardarRecado(String login, long prazo, TimeUnit unidade) {
+        EsperaRecado espera = new EsperaRecado(login);
+        espera.armar();
+        if (!espera.futuro.isDone()) {
+            CompletableFuture.delayedExecutor(prazo, unidade).execute(espera::expirar);
+            espera.futuro.whenComplete((recado, erro) -> esperas.remover(login, espera));
+        }
+        return espera.futuro;
+    }
+
+    /**
+     * Registra um aviso disparado uma nica vez quando o usurio receber um recado.
+     *
+     * @param login Login do destinatrio
+     * @param aviso Ao a executar
+     */
+    void esperarRecado(String login, Runnable aviso) {
+        esperas.registrar(login, aviso);
+    }
+
+    /**
+     * Retira um aviso registrado por {@link #esperarRecado}.
+     *
+     * @param login Login do destinatrio
+     * @param aviso Aviso registrado
+     * @return true se o aviso foi retirado antes de ser disparado
+     */
+    boolean cancelarEsperaRecado(String login, Runnable aviso) {
+        return esperas.remover(login, aviso);
+    }
+
+    /**
+     * Verifica se o usurio tem recados na fila.
+     *
+     * @param login Login do usurio
+     * @return true se houver ao menos um recado no lido
+     */
+    boolean temRecado(String login) {
+        Usuario usuario = getUsuario(login);
+        return usuario != null && usuario.getProximoRecado() != null;
+    }
+
+    /**
+     * Espera de um nico recado. O aviso  registrado antes de consultar a fila, de modo que um
+     * recado entregue entre a consulta e o registro no se perde.
+     */
+    private final class EsperaRecado implements Runnable {
+        private final String login;
+        private final CompletableFuture<String> futuro = new CompletableFuture<>() {
+            // o consumo em run() e a concluso do futuro acontecem sob o mesmo monitor: ou a espera 
+            // cancelada antes de consumir, ou o cancelamento falha e o recado consumido fica no futuro
+            @Override
+            public boolean cancel(boolean interromper) {
+                synchronized (EsperaRecado.this) {
+                    return super.cancel(interromper);
+                }
+            }
+        };
+
+        EsperaRecado(String login) {
+            this.login = login;
+        }
+
+        void armar() {
+            if (futuro.isDone()) {
+                return;
+            }
+            esperas.registrar(login, this);
+            if (temRecado(login) && esperas.remover(login, this)) {
+                run();
+            }
+        }
+
+        synchronized void expirar() {
+            futuro.complete(null);
+        }
+
+        @Override
+        public synchronized void run() {
+            if (futuro.isDone()) {
+                return;
+            }
+            String recado;
+            try {
+                recado = (String) registrar(Mutacao.lerRecado(login));
+            } catch (RuntimeException e) {
+                futuro.completeExceptionally(e);
+                return;
+            }
+            if (recado == null) {
+                armar(); // outro leitor consumiu o recado antes
+            } else {
+                futuro.complete(recado);
+            }
+        }
+    }
+
     // Persistncia
 
     /**
-     * Carrega os dados persistentes do sistema a partir do arquivo de armazenamento.
-     * Se o arquivo no existir, inicia com estruturas vazias.
+     * Carrega os dados persistentes do sistema a partir do armazenamento.
+     * Se no houver dados gravados, inicia com estruturas vazias.
      * Trata erros de leitura inicializando com estruturas vazias.
      */
     private void carregarDados() {
         try {
-            File arquivo = new File(ARQUIVO_DADOS);
-            if (arquivo.exists()) {
-                ObjectInputStream in = new ObjectInputStream(new FileInputStream(ARQUIVO_DADOS));
-                this.usuarios = (Map<String, Usuario>) in.readObject();
-                in.close();
-            } else {
-                this.usuarios = new HashMap<>();
-            }
-            this.sessoes = new HashMap<>();
-        } catch (IOException | ClassNotFoundException e) {
+            this.usuarios.set(MapaPersistente.de(armazenamento.carregar()));
+        } catch (PersistenciaException e) {
             System.err.println("Erro ao carregar dados: " + e.getMessage());
-            this.usuarios = new HashMap<>();
-            this.sessoes = new HashMap<>();
+            this.usuarios.set(MapaPersistente.vazio());
         }
     }
 
     /**
-     * Salva os dados do sistema no arquivo de armazenamento.
-     * Apenas os usurios so persistidos, as sesses so temporrias.
+     * Salva os dados do sistema no armazenamento.
+     * Apenas os usurios so persistidos, as sesses so temporrias.  gravada a verso corrente
+     * no momento da chamada, sem bloquear alteraes concorrentes: apenas a captura da verso e o
+     * aviso ao armazenamento ({@link MotorArmazenamento#prepararSalvamento()}) so sincronizados com
+     * {@link #registrar}. Salvamentos simultneos so feitos um de cada vez.
      * Erros durante o salvamento so registrados no console.
      */
     public void salvarDados() {
-        try {
-            ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(ARQUIVO_DADOS));
-            out.writeObject(usuarios);
-            out.close();
-        } catch (IOException e) {
-            System.err.println("Erro ao salvar dados: " + e.getMessage());
+        synchronized (salvamento) {
+            try {
+                MapaPersistente<String, Usuario> versao;
+                synchronized (this) {
+                    versao = usuarios.get();
+                    armazenamento.prepararSalvamento();
+                }
+                armazenamento.salvar(new HashMap<>(versao)); // mantm o formato original do arquivo
+            } catch (PersistenciaException e) {
+                System.err.println("Erro ao salvar dados: " + e.getMessage());
+            }
         }
     }
 
@@ -137,12 +467,16 @@ public class Sistema {
 
     /**
      * Zera o sistema, removendo todos os usurios e sesses,
-     * e deletando o arquivo de dados persistente.
+     * e apagando os dados persistentes.
      */
     public void zerarSistema() {
-        usuarios.clear();
+        usuarios.set(MapaPersistente.vazio());
         sessoes.clear();
-        new File(ARQUIVO_DADOS).delete();
+        try {
+            armazenamento.apagar();
+        } catch (PersistenciaException e) {
+            System.err.println("Erro ao apagar dados: " + e.getMessage());
+        }
     }
 
     /**
@@ -161,7 +495,7 @@ public class Sistema {
      * @return true se o usurio existir, false caso contrrio
      */
     public boolean existeUsuario(String login) {
-        return usuarios.containsKey(login);
+        return usuarios.get().containsKey(login);
     }
 
     /**
@@ -170,6 +504,6 @@ public class Sistema {
      * @return Coleo no modificvel de usurios
      */
     public Collection<Usuario> getTodosUsuarios() {
-        return new ArrayList<>(usuarios.values());
+        return new ArrayList<>(usuarios.get().values());
     }
 }
\ No newline at end of file
@@ -0,0 +1,463 @@
+package entidades;
+
+import java.io.File;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+import entidades.exceptions.*;
+
+/**
+ * Modo de implantao particionado do Jackut. Os usurios so distribudos entre vrias
+ * instncias de {@link Sistema} por hashing consistente do login, e cada partio tem seu prprio
+ * arquivo de dados e sua prpria thread de execuo.
+ *
+ * <p>O estado de uma partio s  acessado pela thread dela: toda operao  enviada como uma
+ * mensagem (tarefa) para a partio dona do usurio. Operaes que envolvem usurios de parties
+ * diferentes, como {@link #adicionarAmigo} e {@link #enviarRecado}, so encadeadas como uma troca
+ * de mensagens entre as parties, sem nenhum bloqueio compartilhado. Como as parties s se
+ * comunicam por {@link Particao#executar}, trocar essa chamada por um transporte remoto  o
+ * suficiente para distribu-las entre processos.</p>
+ *
+ * <p>Os identificadores de sesso carregam o ndice da partio que os emitiu, de modo que o
+ * roteamento de uma sesso no depende de nenhuma tabela global.</p>
+ *
+ * <p>As operaes e as mensagens de erro so as mesmas da {@link Facade}.</p>
+ */
+public class SistemaParticionado {
+    private static final String PREFIXO_ARQUIVO = "dados_jackut_p";
+    private static final int NOS_VIRTUAIS = 64;
+
+    private final Particao[] particoes;
+    private final TreeMap<Integer, Integer> anel = new TreeMap<>();
+
+    /**
+     * Cria o sistema particionado com o nmero de parties informado,
+     * gravando os arquivos de cada partio no diretrio de trabalho.
+     *
+     * @param numParticoes Quantidade de parties (mnimo 1)
+     */
+    public SistemaParticionado(int numParticoes) {
+        this(numParticoes, new File("."));
+    }
+
+    /**
+     * Cria o sistema particionado com o nmero de parties informado.
+     *
+     * @param numParticoes Quantidade de parties (mnimo 1)
+     * @param diretorio Diretrio onde cada partio guarda o seu arquivo de dados
+     */
+    public SistemaParticionado(int numParticoes, File diretorio) {
+        if (numParticoes < 1) {
+            throw new IllegalArgumentException("Nmero de parties deve ser positivo.");
+        }
+        particoes = new Particao[numParticoes];
+        for (int i = 0; i < numParticoes; i++) {
+            File arquivo = new File(diretorio, PREFIXO_ARQUIVO + i + ".ser");
+            particoes[i] = new Particao(i, arquivo.getPath());
+            for (int v = 0; v < NOS_VIRTUAIS; v++) {
+                anel.put(espalhar(("particao-" + i + "#" + v).hashCode()), i);
+            }
+        }
+    }
+
+    /**
+     * Obtm a quantidade de parties.
+     *
+     * @return Nmero de parties
+     */
+    public int getNumParticoes() {
+        return particoes.length;
+    }
+
+    /**
+     * Obtm a partio dona de um login no anel de hashing consistente.
+     *
+     * @param login Login do usurio
+     * @return ndice da partio
+     */
+    public int particaoDe(String login) {
+        Map.Entry<Integer, Integer> no = anel.ceilingEntry(espalhar(login.hashCode()));
+        return (no != null ? no : anel.firstEntry()).getValue();
+    }
+
+    // US1 - User Account Management
+
+    /**
+     * Cria um novo usurio na partio dona do login.
+     *
+     * @param login Identificador nico do usurio
+     * @param senha Senha do usurio
+     * @param nome Nome completo do usurio
+     * @throws IllegalArgumentException Se o login, senha forem invlidos ou se o usurio j existir
+     */
+    public void criarUsuario(String login, String senha, String nome) {
+        if (login == null || login.trim().isEmpty()) {
+            throw LoginInvalidoException.INSTANCIA;
+        }
+        aguardar(particao(login).executar(sistema -> {
+            sistema.registrar(Mutacao.criarUsuario(login, senha, nome));
+            return null;
+        }));
+    }
+
+    /**
+     * Abre uma nova sesso na partio dona do login.
+     *
+     * @param login Identificador do usurio
+     * @param senha Senha do usurio
+     * @return ID da sesso, prefixado pelo ndice da partio
+     * @throws IllegalArgumentException Se o login ou senha forem invlidos
+     */
+    public String abrirSessao(String login, String senha) {
+        if (login == null) {
+            throw LoginOuSenhaInvalidosException.INSTANCIA;
+        }
+        Particao particao = particao(login);
+        return aguardar(particao.executar(sistema -> {
+            return particao.indice + ":" + sistema.abrirSessao(login, senha);
+        }));
+    }
+
+    /**
+     * Obtm um atributo de um usurio.
+     *
+     * @param login Identificador do usurio
+     * @param atributo Nome do atributo
+     * @return Valor do atributo solicitado
+     * @throws IllegalArgumentException Se o usurio no existir ou o atributo no estiver preenchido
+     */
+    public String getAtributoUsuario(String login, String atributo) {
+        return aguardar(consultar(login, usuario -> {
+            if (usuario == null) {
+                throw UsuarioNaoCadastradoException.INSTANCIA;
+            }
+            if ("nome".equals(atributo)) {
+                return usuario.getNome();
+            }
+            if (!usuario.possuiAtributo(atributo)) {
+                throw AtributoNaoPreenchidoException.INSTANCIA;
+            }
+            return usuario.getAtributo(atributo);
+        }));
+    }
+
+    // US2 - Profile Management
+
+    /**
+     * Edita um atributo do perfil do usurio da sesso.
+     *
+     * @param idSessao ID da sesso ativa
+     * @param atributo Nome do atributo
+     * @param valor Novo valor do atributo
+     * @throws IllegalArgumentException Se a sesso for invlida ou o usurio no existir
+     */
+    public void editarPerfil(String idSessao, String atributo, String valor) {
+        if (idSessao == null || idSessao.isEmpty()) {
+            throw UsuarioNaoCadastradoException.INSTANCIA;
+        }
+        aguardar(naSessao(idSessao, (sistema, login) -> {
+            Usuario usuario = sistema.getUsuario(login);
+            if (usuario == null) {
+                throw UsuarioNaoCadastradoException.INSTANCIA;
+            }
+            sistema.registrar(Mutacao.editarAtributo(login, atributo, valor));
+            return null;
+        }));
+    }
+
+    // US3 - Friendship Management
+
+    /**
+     * Adiciona um amigo para o usurio da sesso. Equivalente a {@link #adicionarAmigoAsync}
+     * aguardando o resultado.
+     *
+     * @param idSessao ID da sesso ativa
+     * @param amigo Login do usurio a ser adicionado como amigo
+     * @throws IllegalArgumentException Nas mesmas situaes de {@link Facade#adicionarAmigo}
+     */
+    public void adicionarAmigo(String idSessao, String amigo) {
+        aguardar(adicionarAmigoAsync(idSessao, amigo));
+    }
+
+    /**
+     * Adiciona um amigo por troca de mensagens entre a partio do usurio e a do amigo:
+     * a partio do usurio valida a sesso, a do amigo informa se ele existe e se j havia
+     * convidado o usurio, a do usurio registra o convite ou a amizade e, se a amizade foi
+     * confirmada, a partio do amigo registra o lado dele.
+     *
+     * <p>A resposta da partio do amigo pode ficar velha antes de o convite ser registrado: se os
+     * dois usurios se convidarem ao mesmo tempo, ambos veem que o outro ainda no convidou. Por
+     * isso, depois de registrar um convite, a partio do amigo confere de novo, j na prpria
+     * thread, se ele convidou o usurio nesse meio-tempo; se sim, ela confirma o lado dele e a
+     * partio do usurio confirma o seu. Como cada partio processa suas mensagens em ordem,
+     * pelo menos uma das duas conferncias enxerga o convite da outra.</p>
+     *
+     * @param idSessao ID da sesso ativa
+     * @param amigo Login do usurio a ser adicionado como amigo
+     * @return Futuro concludo quando todas as parties envolvidas aplicaram a operao
+     */
+    public CompletableFuture<Void> adicionarAmigoAsync(String idSessao, String amigo) {
+        if (idSessao == null || idSessao.isEmpty()) {
+            return CompletableFuture.failedFuture(UsuarioNaoCadastradoException.INSTANCIA);
+        }
+        return naSessao(idSessao, (sistema, login) -> {
+            if (login.equals(amigo)) {
+                throw AutoAmizadeException.INSTANCIA;
+            }
+            return login;
+        }).thenCompose(login -> consultar(amigo, amigoUsuario -> {
+            if (amigoUsuario == null) {
+                throw UsuarioNaoCadastradoException.INSTANCIA;
+            }
+            return amigoUsuario.temConvitePendente(login);
+        }).thenCompose(amigoConvidou -> particao(login).executar(sistema -> {
+            Usuario usuario = sistema.getUsuario(login);
+            if (usuario.ehAmigo(amigo)) {
+                throw AmizadeJaExistenteException.INSTANCIA;
+            }
+            if (usuario.temConvitePendente(amigo)) {
+                throw AmizadePendenteException.INSTANCIA;
+            }
+            sistema.registrar(Mutacao.amizade(login, amigo, amigoConvidou));
+            return amigoConvidou;
+        })).thenCompose(confirmada -> particao(amigo).executar(sistema -> {
+            if (confirmada) {
+                sistema.registrar(Mutacao.amizade(amigo, login, true));
+                return false;
+            }
+            Usuario amigoUsuario = sistema.getUsuario(amigo);
+            if (amigoUsuario == null || !amigoUsuario.temConvitePendente(login)) {
+                return false;
+            }
+            // convites cruzados: o amigo convidou depois da consulta acima
+            sistema.registrar(Mutacao.amizade(amigo, login, true));
+            return true;
+        })).thenCompose(cruzados -> !cruzados
+                ? CompletableFuture.<Void>completedFuture(null)
+                : particao(login).executar(sistema -> {
+                    sistema.registrar(Mutacao.amizade(login, amigo, true));
+                    return null;
+                })));
+    }
+
+    /**
+     * Verifica se dois usurios so amigos.
+     *
+     * @param login1 Login do primeiro usurio
+     * @param login2 Login do segundo usurio
+     * @return true se os usurios so amigos, false caso contrrio
+     */
+    public boolean ehAmigo(String login1, String login2) {
+        if (login1 == null) {
+            return false;
+        }
+        return aguardar(consultar(login1, usuario -> usuario != null && usuario.ehAmigo(login2)));
+    }
+
+    /**
+     * Obtm a lista de amigos de um usurio no formato da {@link Facade#getAmigos}.
+     *
+     * @param login Login do usurio
+     * @return String no formato {@code {amigo1,amigo2}}
+     */
+    public String getAmigos(String login) {
+        if (login == null) {
+            return "{}";
+        }
+        return aguardar(consultar(login, usuario ->
+                usuario == null ? "{}" : "{" + String.join(",", usuario.getAmigosOrdenados()) + "}"));
+    }
+
+    // US4 - Message System
+
+    /**
+     * Envia um recado para outro usurio. Equivalente a {@link #enviarRecadoAsync} aguardando o resultado.
+     *
+     * @param idSessao ID da sesso do remetente
+     * @param destinatario Login do destinatrio
+     * @param recado Contedo da mensagem
+     * @throws IllegalArgumentException Nas mesmas situaes de {@link Facade#enviarRecado}
+     */
+    public void enviarRecado(String idSessao, String destinatario, String recado) {
+        aguardar(enviarRecadoAsync(idSessao, destinatario, recado));
+    }
+
+    /**
+     * Envia um recado: a partio do remetente valida a sesso e repassa a mensagem
+     * para a partio do destinatrio, que a coloca na fila dele.
+     *
+     * @param idSessao ID da sesso do remetente
+     * @param destinatario Login do destinatrio
+     * @param recado Contedo da mensagem
+     * @return Futuro concludo quando o recado foi entregue
+     */
+    public CompletableFuture<Void> enviarRecadoAsync(String idSessao, String destinatario, String recado) {
+        return naSessao(idSessao, (sistema, remetente) -> {
+            if (remetente.equals(destinatario)) {
+                throw RecadoParaSiException.INSTANCIA;
+            }
+            return remetente;
+        }).thenCompose(remetente -> particao(destinatario).executar(sistema -> {
+            if (!sistema.existeUsuario(destinatario)) {
+                throw UsuarioNaoCadastradoException.INSTANCIA;
+            }
+            sistema.registrar(Mutacao.recado(destinatario, remetente, recado));
+            return null;
+        }));
+    }
+
+    /**
+     * L o prximo recado do usurio da sesso.
+     *
+     * @param idSessao ID da sesso do usurio
+     * @return Contedo do recado
+     * @throws IllegalArgumentException Se no houver recados para ler
+     */
+    public String lerRecado(String idSessao) {
+        return aguardar(naSessao(idSessao, (sistema, login) -> {
+            String recado = (String) sistema.registrar(Mutacao.lerRecado(login));
+            if (recado == null) {
+                throw SemRecadosException.INSTANCIA;
+            }
+            return recado;
+        }));
+    }
+
+    // System Control
+
+    /**
+     * Zera todas as parties.
+     */
+    public void zerarSistema() {
+        emTodas(sistema -> {
+            sistema.registrar(Mutacao.zerar());
+            return null;
+        });
+    }
+
+    /**
+     * Salva os dados de todas as parties, cada uma no seu arquivo.
+     */
+    public void encerrarSistema() {
+        emTodas(sistema -> {
+            sistema.encerrarSistema();
+            return null;
+        });
+    }
+
+    /**
+     * Salva os dados e encerra as threads de todas as parties.
+     */
+    public void fechar() {
+        encerrarSistema();
+        for (Particao particao : particoes) {
+            particao.executor.shutdown();
+        }
+    }
+
+    // Mtodos auxiliares
+
+    private Particao particao(String login) {
+        return particoes[particaoDe(login)];
+    }
+
+    /**
+     * Executa uma consulta sobre um usurio na partio dona do login.
+     * A funo recebe null se o usurio no existir.
+     */
+    private <T> CompletableFuture<T> consultar(String login, Function<Usuario, T> consulta) {
+        if (login == null) {
+            return CompletableFuture.supplyAsync(() -> consulta.apply(null), particoes[0].executor);
+        }
+        return particao(login).executar(sistema -> consulta.apply(sistema.getUsuario(login)));
+    }
+
+    /**
+     * Executa uma operao na partio que emitiu a sesso, com o login j resolvido.
+     */
+    private <T> CompletableFuture<T> naSessao(String idSessao, OperacaoSessao<T> operacao) {
+        int separador = idSessao == null ? -1 : idSessao.indexOf(':');
+        int indice = -1;
+        if (separador > 0) {
+            try {
+                indice = Integer.parseInt(idSessao.substring(0, separador));
+            } catch (NumberFormatException e) {
+                indice = -1;
+            }
+        }
+        if (indice < 0 || indice >= particoes.length) {
+            return CompletableFuture.failedFuture(SessaoInvalidaException.INSTANCIA);
+        }
+        String idLocal = idSessao.substring(separador + 1);
+        return particoes[indice].executar(sistema ->
+                operacao.aplicar(sistema, sistema.getLoginPorSessao(idLocal)));
+    }
+
+    private void emTodas(Function<Sistema, Void> operacao) {
+        List<CompletableFuture<Void>> futuros = new ArrayList<>(particoes.length);
+        for (Particao particao : particoes) {
+            futuros.add(particao.executar(operacao));
+        }
+        aguardar(CompletableFuture.allOf(futuros.toArray(new CompletableFuture<?>[0])));
+    }
+
+    /**
+     * Aguarda o resultado de uma operao, relanando a exceo original da partio.
+     */
+    private static <T> T aguardar(CompletableFuture<T> futuro) {
+        try {
+            return futuro.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Mistura os bits do hash para espalhar logins e ns virtuais uniformemente no anel.
+     */
+    private static int espalhar(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    /**
+     * Operao executada na partio de uma sesso, recebendo o login do usurio da sesso.
+     */
+    @FunctionalInterface
+    private interface OperacaoSessao<T> {
+        T aplicar(Sistema sistema, String login);
+    }
+
+    /**
+     * Uma partio: uma instncia de {@link Sistema} confinada a uma nica thread.
+     */
+    private static class Particao {
+        private final int indice;
+        private final Sistema sistema;
+        private final ExecutorService executor;
+
+        Particao(int indice, String arquivoDados) {
+            this.indice = indice;
+            this.executor = Executors.newSingleThreadExecutor(tarefa -> {
+                Thread thread = new Thread(tarefa, "jackut-particao-" + indice);
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.sistema = CompletableFuture.supplyAsync(() -> new Sistema(arquivoDados), executor).join();
+        }
+
+        /**
+         * Envia uma mensagem para a partio.  o nico ponto de acesso ao estado dela.
+         */
+        <T> CompletableFuture<T> executar(Function<Sistema, T> operacao) {
+            return CompletableFuture.supplyAsync(() -> operacao.apply(sistema), executor);
+        }
+    }
+}
@@ -8,17 +8,37 @@ import entidades.exceptions.*;
  * Classe que representa um usurio do sistema, contendo informaes pessoais,
  * atributos de perfil, relacionamentos de amizade e sistema de mensagens.
  * Implementa Serializable para permitir serializao dos objetos.
+ *
+ * <p>Cada instncia  uma verso imutvel do usurio: as operaes de alterao devolvem uma nova
+ * verso, que compartilha com a anterior tudo o que no mudou. O {@link Sistema} publica as novas
+ * verses por troca atmica de referncia, de modo que leituras e gravaes em disco trabalham sobre
+ * uma verso consistente sem bloquear quem est alterando.</p>
  */
 public class Usuario implements Serializable {
     private static final long serialVersionUID = 1L;
 
-    private final String login;
-    private final String senha;
-    private final String nome;
-    private final Map<String, String> atributos;
-    private final Queue<Recado> recados;
-    private final Map<String, Boolean> amigos; // true=amigo confirmado, false=convite pendente
-    private final LinkedHashSet<String> ordemAmizade; // Mantm a ordem cronolgica das amizades confirmadas
+    /**
+     * Forma serial compatvel com a verso original da classe (colees mutveis do java.util),
+     * de modo que arquivos antigos continuam legveis e vice-versa.
+     */
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("login", String.class),
+            new ObjectStreamField("senha", String.class),
+            new ObjectStreamField("nome", String.class),
+            new ObjectStreamField("atributos", Map.class),
+            new ObjectStreamField("recados", Queue.class),
+            new ObjectStreamField("amigos", Map.class),
+            new ObjectStreamField("ordemAmizade", LinkedHashSet.class)
+    };
+
+    // Campos atribudos apenas na construo ou na desserializao
+    private String login;
+    private String senha;
+    private String nome;
+    private MapaPersistente<String, String> atributos;
+    private FilaPersistente<Recado> recados;
+    private MapaPersistente<String, Boolean> amigos; // true=amigo confirmado, false=convite pendente
+    private FilaPersistente<String> ordemAmizade; // Mantm a ordem cronolgica das amizades confirmadas
 
     /**
      * Constri um novo usurio com informaes bsicas.
@@ -31,37 +51,56 @@ public class Usuario implements Serializable {
      */
     public Usuario(String login, String senha, String nome) {
         if (login == null || login.trim().isEmpty()) {
-            throw new LoginInvalidoException();
+            throw LoginInvalidoException.INSTANCIA;
         }
         if (senha == null || senha.trim().isEmpty()) {
-            throw new SenhaInvalidaException();
+            throw SenhaInvalidaException.INSTANCIA;
         }
         this.login = login;
         this.senha = senha;
         this.nome = nome != null ? nome : "";
-        this.atributos = new HashMap<>();
-        this.recados = new LinkedList<>();
-        this.amigos = new HashMap<>();
-        this.ordemAmizade = new LinkedHashSet<>();
+        this.atributos = MapaPersistente.vazio();
+        this.recados = FilaPersistente.vazia();
+        this.amigos = MapaPersistente.vazio();
+        this.ordemAmizade = FilaPersistente.vazia();
+    }
+
+    /**
+     * Constri uma nova verso de um usurio existente.
+     */
+    private Usuario(Usuario base, MapaPersistente<String, String> atributos, FilaPersistente<Recado> recados,
+                    MapaPersistente<String, Boolean> amigos, FilaPersistente<String> ordemAmizade) {
+        this.login = base.login;
+        this.senha = base.senha;
+        this.nome = base.nome;
+        this.atributos = atributos;
+        this.recados = recados;
+        this.amigos = amigos;
+        this.ordemAmizade = ordemAmizade;
     }
 
     // Mtodos de amizade
 
     /**
-     * Adiciona uma nova amizade ou convite de amizade.
+     * Obtm a verso do usurio com uma nova amizade ou convite de amizade.
      *
      * @param amigo Login do usurio amigo
      * @param confirmada true para amizade confirmada, false para convite pendente
+     * @return Nova verso do usurio, ou esta mesma se nada mudou
      */
-    public void adicionarAmizade(String amigo, boolean confirmada) {
+    public Usuario comAmizade(String amigo, boolean confirmada) {
+        Boolean atual = amigos.get(amigo);
         if (confirmada) {
-            amigos.put(amigo, true);
-            ordemAmizade.add(amigo); // Adiciona na ordem de confirmao
-        } else {
-            if (!amigos.containsKey(amigo)) {
-                amigos.put(amigo, false);
+            if (Boolean.TRUE.equals(atual)) {
+                return this;
             }
+            // Adiciona na ordem de confirmao
+            return new Usuario(this, atributos, recados, amigos.com(amigo, true), ordemAmizade.comFinal(amigo));
         }
+        if (atual != null) {
+            return this;
+        }
+        return new Usuario(this, atributos, recados, amigos.com(amigo, false), ordemAmizade);
     }
 
     /**
@@ -71,7 +110,7 @@ public class Usuario implements Serializable {
      * @return true se for amigo confirmado, false caso contrrio
      */
     public boolean ehAmigo(String amigo) {
-        return amigos.containsKey(amigo) && amigos.get(amigo);
+        return Boolean.TRUE.equals(amigos.get(amigo));
     }
 
     /**
@@ -81,7 +120,7 @@ public class Usuario implements Serializable {
      * @return true se houver convite pendente, false caso contrrio
      */
     public boolean temConvitePendente(String amigo) {
-        return amigos.containsKey(amigo) && !amigos.get(amigo);
+        return Boolean.FALSE.equals(amigos.get(amigo));
     }
 
     /**
@@ -91,55 +130,155 @@ public class Usuario implements Serializable {
      */
     public LinkedHashSet<String> getAmigosOrdenados() {
         LinkedHashSet<String> amigosConfirmados = new LinkedHashSet<>();
-        // Retorna na ordem de confirmao
         for (String amigo : ordemAmizade) {
-            if (amigos.get(amigo)) {
-                amigosConfirmados.add(amigo);
-            }
+            amigosConfirmados.add(amigo);
         }
         return amigosConfirmados;
     }
 
+    /**
+     * Obtm os logins de todos os usurios com os quais existe amizade confirmada ou convite pendente.
+     *
+     * @return Conjunto no modificvel de logins relacionados
+     */
+    Set<String> getRelacionamentos() {
+        return amigos.keySet();
+    }
+
     // Mtodos de recados
 
     /**
-     * Recebe um novo recado de outro usurio.
+     * Obtm a verso do usurio com um novo recado recebido de outro usurio agora.
      *
      * @param remetente Login do usurio remetente
      * @param mensagem Contedo da mensagem
+     * @return Nova verso do usurio
      * @throws MensagemInvalidaException Se a mensagem for nula ou vazia
      */
-    public void receberRecado(String remetente, String mensagem) {
+    public Usuario comRecado(String remetente, String mensagem) {
+        return comRecado(remetente, mensagem, System.currentTimeMillis());
+    }
+
+    /**
+     * Obtm a verso do usurio com um novo recado recebido de outro usurio.
+     *
+     * @param remetente Login do usurio remetente
+     * @param mensagem Contedo da mensagem
+     * @param instante Momento de envio, em milissegundos desde a poca
+     * @return Nova verso do usurio
+     * @throws MensagemInvalidaException Se a mensagem for nula ou vazia
+     */
+    public Usuario comRecado(String remetente, String mensagem, long instante) {
         if (mensagem == null || mensagem.trim().isEmpty()) {
-            throw new MensagemInvalidaException();
+            throw MensagemInvalidaException.INSTANCIA;
         }
-        this.recados.add(new Recado(remetente, mensagem));
+        return new Usuario(this, atributos, recados.comFinal(new Recado(remetente, mensagem, instante)),
+                amigos, ordemAmizade);
+    }
+
+    /**
+     * Obtm o prximo recado no lido da fila, sem consumi-lo.
+     *
+     * @return Prximo recado ou null se no houver recados
+     */
+    public Recado getProximoRecado() {
+        return recados.primeiro();
     }
 
     /**
-     * L o prximo recado no lido da fila.
+     * Obtm a verso do usurio sem o prximo recado da fila (j lido), descartando-o na
+     * {@link ArenaRecados}.
      *
-     * @return String formatada com o recado ou null se no houver recados
+     * @return Nova verso do usurio, ou esta mesma se no houver recados
      */
-    public String lerRecado() {
-        Recado recado = recados.poll();
-        return recado != null ? recado.toString() : null;
+    public Usuario semProximoRecado() {
+        if (recados.estaVazia()) {
+            return this;
+        }
+        ArenaRecados.padrao().descartar(recados.primeiro());
+        return new Usuario(this, atributos, recados.semPrimeiro(), amigos, ordemAmizade);
+    }
+
+    /**
+     * Obtm a verso do usurio sem os primeiros recados da fila (j lidos), descartando-os na
+     * {@link ArenaRecados}.
+     *
+     * @param quantidade Quantidade de recados lidos
+     * @return Nova verso do usurio, ou esta mesma se nada mudou
+     */
+    public Usuario semPrimeirosRecados(int quantidade) {
+        FilaPersistente<Recado> restantes = recados.semPrimeiros(quantidade);
+        if (restantes == recados) {
+            return this;
+        }
+        ArenaRecados arena = ArenaRecados.padrao();
+        Iterator<Recado> lidos = recados.iterator();
+        for (int i = recados.tamanho() - restantes.tamanho(); i > 0; i--) {
+            arena.descartar(lidos.next());
+        }
+        return new Usuario(this, atributos, restantes, amigos, ordemAmizade);
+    }
+
+    /**
+     * Conta os recados do incio da fila que uma poltica de reteno descarta: os enviados antes
+     * de {@code limite} e os que excedem {@code maximo} recados na fila. Recados novos s entram
+     * no fim da fila, ento os descartados esto sempre no incio.
+     *
+     * @param limite Instante de envio mais antigo mantido
+     * @param maximo Quantidade mxima de recados mantidos
+     * @return Arranjo com a quantidade descartada por idade e a descartada por excesso
+     */
+    int[] contarRecadosExpirados(long limite, int maximo) {
+        int total = recados.tamanho();
+        int porIdade = 0;
+        int porExcesso = 0;
+        for (Recado recado : recados) {
+            int restantes = total - porIdade - porExcesso;
+            if (recado.getInstante() < limite) {
+                porIdade++;
+            } else if (restantes > maximo) {
+                porExcesso++;
+            } else {
+                break;
+            }
+        }
+        return new int[]{porIdade, porExcesso};
+    }
+
+    /**
+     * Obtm uma pgina dos recados no lidos, sem consumi-los.
+     *
+     * @param inicio Posio do primeiro recado (0  o prximo a ser lido)
+     * @param limite Quantidade mxima de recados
+     * @return Recados da pgina, na ordem de leitura
+     */
+    public List<Recado> getRecados(int inicio, int limite) {
+        return recados.trecho(inicio, limite);
+    }
+
+    /**
+     * Obtm a quantidade de recados no lidos.
+     *
+     * @return Tamanho da fila de recados
+     */
+    public int getQuantidadeRecados() {
+        return recados.tamanho();
     }
 
     // Mtodos de perfil
 
     /**
-     * Edita ou remove um atributo do perfil do usurio.
+     * Obtm a verso do usurio com um atributo de perfil editado ou removido.
      *
      * @param atributo Nome do atributo a ser modificado
      * @param valor Novo valor do atributo (se vazio ou nulo, remove o atributo)
+     * @return Nova verso do usurio, ou esta mesma se nada mudou
      */
-    public void editarAtributo(String atributo, String valor) {
-        if (valor == null || valor.trim().isEmpty()) {
-            atributos.remove(atributo);
-        } else {
-            atributos.put(atributo, valor);
-        }
+    public Usuario comAtributo(String atributo, String valor) {
+        MapaPersistente<String, String> novos = valor == null || valor.trim().isEmpty()
+                ? atributos.sem(atributo)
+                : atributos.com(atributo, valor);
+        return novos == atributos ? this : new Usuario(this, novos, recados, amigos, ordemAmizade);
     }
 
     /**
@@ -183,6 +322,24 @@ public class Usuario implements Serializable {
         return this.senha.equals(senha);
     }
 
+    /**
+     * Obtm a senha do usurio, para exportao dos dados.
+     *
+     * @return Senha do usurio
+     */
+    String getSenha() {
+        return senha;
+    }
+
+    /**
+     * Obtm todos os atributos de perfil preenchidos.
+     *
+     * @return Mapa imutvel de atributo para valor
+     */
+    Map<String, String> getAtributos() {
+        return atributos;
+    }
+
     /**
      * Obtm o login do usurio.
      *
@@ -195,13 +352,26 @@ public class Usuario implements Serializable {
     // Mtodos de serializao
 
     /**
-     * Mtodo personalizado para serializao do objeto.
+     * Mtodo personalizado para serializao do objeto. Grava as estruturas persistentes
+     * como as colees da forma serial original.
      *
      * @param out Stream de sada para escrita do objeto
      * @throws IOException Se ocorrer um erro de I/O durante a serializao
      */
     private void writeObject(ObjectOutputStream out) throws IOException {
-        out.defaultWriteObject();
+        ObjectOutputStream.PutField campos = out.putFields();
+        campos.put("login", login);
+        campos.put("senha", senha);
+        campos.put("nome", nome);
+        campos.put("atributos", new HashMap<>(atributos));
+        LinkedList<Recado> fila = new LinkedList<>();
+        for (Recado recado : recados) {
+            fila.add(recado);
+        }
+        campos.put("recados", fila);
+        campos.put("amigos", new HashMap<>(amigos));
+        campos.put("ordemAmizade", getAmigosOrdenados());
+        out.writeFields();
     }
 
     /**
@@ -212,12 +382,41 @@ public class Usuario implements Serializable {
      * @throws ClassNotFoundException Se a classe do objeto serializado no for encontrada
      * @throws InvalidObjectException Se os dados do usurio forem invlidos aps desserializao
      */
+    @SuppressWarnings("unchecked")
     private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
-        in.defaultReadObject();
+        ObjectInputStream.GetField campos = in.readFields();
+        login = (String) campos.get("login", null);
+        senha = (String) campos.get("senha", null);
+        nome = (String) campos.get("nome", "");
         // Validao aps desserializao
         if (login == null || login.trim().isEmpty() ||
                 senha == null || senha.trim().isEmpty()) {
             throw new InvalidObjectException("Dados do usurio invlidos aps desserializao");
         }
+        try {
+            Map<String, String> atributosLidos = (Map<String, String>) campos.get("atributos", null);
+            Queue<Recado> recadosLidos = (Queue<Recado>) campos.get("recados", null);
+            Map<String, Boolean> amigosLidos = (Map<String, Boolean>) campos.get("amigos", null);
+            Set<String> ordemLida = (Set<String>) campos.get("ordemAmizade", null);
+
+            atributos = atributosLidos != null ? MapaPersistente.de(atributosLidos) : MapaPersistente.vazio();
+            amigos = amigosLidos != null ? MapaPersistente.de(amigosLidos) : MapaPersistente.vazio();
+            recados = FilaPersistente.vazia();
+            if (recadosLidos != null) {
+                for (Recado recado : recadosLidos) {
+                    recados = recados.comFinal(recado);
+                }
+            }
+            ordemAmizade = FilaPersistente.vazia();
+            if (ordemLida != null) {
+                for (String amigo : ordemLida) {
+                    if (Boolean.TRUE.equals(amigos.get(amigo))) {
+                        ordemAmizade = ordemAmizade.comFinal(amigo);
+                    }
+                }
+            }
+        } catch (ClassCastException e) {
+            throw new InvalidObjectException("Dados do usurio invlidos aps desserializao");
+        }
     }
 }
\ No newline at end of file
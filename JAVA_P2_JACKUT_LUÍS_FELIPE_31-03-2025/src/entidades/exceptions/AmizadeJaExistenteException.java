@@ -1,7 +1,14 @@
 package entidades.exceptions;
 
 public class AmizadeJaExistenteException extends JackutException {
+    /** Instncia compartilhada, sem rastreamento de pilha. */
+    public static final AmizadeJaExistenteException INSTANCIA = new AmizadeJaExistenteException(false);
+
     public AmizadeJaExistenteException() {
         super("Usurio j est adicionado como amigo.");
     }
+
+    private AmizadeJaExistenteException(boolean rastreavel) {
+        super("Usurio j est adicionado como amigo.", rastreavel);
+    }
 }
\ No newline at end of file
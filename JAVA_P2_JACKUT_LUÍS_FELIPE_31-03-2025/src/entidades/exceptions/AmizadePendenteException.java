@@ -1,7 +1,14 @@
 package entidades.exceptions;
 
 public class AmizadePendenteException extends JackutException {
+    /** Instncia compartilhada, sem rastreamento de pilha. */
+    public static final AmizadePendenteException INSTANCIA = new AmizadePendenteException(false);
+
     public AmizadePendenteException() {
         super("Usurio j est adicionado como amigo, esperando aceitao do convite.");
     }
+
+    private AmizadePendenteException(boolean rastreavel) {
+        super("Usurio j est adicionado como amigo, esperando aceitao do convite.", rastreavel);
+    }
 }
\ No newline at end of file
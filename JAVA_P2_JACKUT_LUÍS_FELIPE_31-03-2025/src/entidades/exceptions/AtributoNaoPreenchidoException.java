@@ -1,7 +1,14 @@
 package entidades.exceptions;
 
 public class AtributoNaoPreenchidoException extends JackutException {
+    /** Instncia compartilhada, sem rastreamento de pilha. */
+    public static final AtributoNaoPreenchidoException INSTANCIA = new AtributoNaoPreenchidoException(false);
+
     public AtributoNaoPreenchidoException() {
         super("Atributo no preenchido.");
     }
+
+    private AtributoNaoPreenchidoException(boolean rastreavel) {
+        super("Atributo no preenchido.", rastreavel);
+    }
 }
\ No newline at end of file
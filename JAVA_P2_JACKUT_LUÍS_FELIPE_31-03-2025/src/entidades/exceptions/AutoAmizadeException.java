@@ -1,9 +1,14 @@
 package entidades.exceptions;
 
 public class AutoAmizadeException extends JackutException {
+    /** Instncia compartilhada, sem rastreamento de pilha. */
+    public static final AutoAmizadeException INSTANCIA = new AutoAmizadeException(false);
+
     public AutoAmizadeException() {
         super("Usurio no pode adicionar a si mesmo como amigo.");
     }
-}
-
 
+    private AutoAmizadeException(boolean rastreavel) {
+        super("Usurio no pode adicionar a si mesmo como amigo.", rastreavel);
+    }
+}
\ No newline at end of file
@@ -1,14 +1,46 @@
 package entidades.exceptions;
 
 /**
- * Classe base para todas as excees do sistema Jackut
+ * Classe base para as excees de regras de negcio do sistema Jackut.
+ * Estende IllegalArgumentException para que a Facade possa lan-las diretamente,
+ * sem envolver cada erro de negcio em uma segunda exceo.
  */
-public abstract class JackutException extends RuntimeException {
+public abstract class JackutException extends IllegalArgumentException {
+    private boolean rastreavel;
+
     public JackutException(String message) {
         super(message);
+        rastreavel = true;
+        fillInStackTrace();
     }
 
     public JackutException(String message, Throwable cause) {
         super(message, cause);
+        rastreavel = true;
+        fillInStackTrace();
+    }
+
+    /**
+     * Construtor para excees pr-alocadas, lanadas com frequncia em caminhos crticos:
+     * sem rastreamento de pilha e sem causa, a instncia pode ser reutilizada. Instncias
+     * compartilhadas no devem receber excees suprimidas.
+     */
+    protected JackutException(String message, boolean rastreavel) {
+        super(message, null);
+        this.rastreavel = rastreavel;
+        if (rastreavel) {
+            fillInStackTrace();
+        } else {
+            setStackTrace(new StackTraceElement[0]);
+        }
+    }
+
+    /**
+     * S preenche a pilha para excees rastreveis. Chamado tambm pelo construtor da
+     * superclasse, antes de {@code rastreavel} ser definido; os construtores acima o repetem.
+     */
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return rastreavel ? super.fillInStackTrace() : this;
     }
 }
\ No newline at end of file
@@ -0,0 +1,15 @@
+package entidades.exceptions;
+
+/**
+ * Lanada quando uma sesso ou usurio excede o limite de requisies de uma operao.
+ * Use a instncia compartilhada {@link #INSTANCIA}: ela no tem rastreamento de pilha, de modo
+ * que rejeitar uma requisio no aloca nada.
+ */
+public class LimiteExcedidoException extends JackutException {
+    private static final long serialVersionUID = 1L;
+    public static final LimiteExcedidoException INSTANCIA = new LimiteExcedidoException();
+
+    private LimiteExcedidoException() {
+        super("Limite de requisies excedido.", false);
+    }
+}
@@ -1,7 +1,14 @@
 package entidades.exceptions;
 
 public class LoginInvalidoException extends JackutException {
+    /** Instncia compartilhada, sem rastreamento de pilha. */
+    public static final LoginInvalidoException INSTANCIA = new LoginInvalidoException(false);
+
     public LoginInvalidoException() {
         super("Login invlido.");
     }
-}
+
+    private LoginInvalidoException(boolean rastreavel) {
+        super("Login invlido.", rastreavel);
+    }
+}
\ No newline at end of file
@@ -1,7 +1,14 @@
 package entidades.exceptions;
 
 public class LoginOuSenhaInvalidosException extends JackutException {
+    /** Instncia compartilhada, sem rastreamento de pilha. */
+    public static final LoginOuSenhaInvalidosException INSTANCIA = new LoginOuSenhaInvalidosException(false);
+
     public LoginOuSenhaInvalidosException() {
         super("Login ou senha invlidos.");
     }
+
+    private LoginOuSenhaInvalidosException(boolean rastreavel) {
+        super("Login ou senha invlidos.", rastreavel);
+    }
 }
\ No newline at end of file
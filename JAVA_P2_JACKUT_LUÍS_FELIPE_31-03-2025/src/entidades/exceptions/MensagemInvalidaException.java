@@ -1,7 +1,14 @@
 package entidades.exceptions;
 
 public class MensagemInvalidaException extends JackutException {
+    /** Instncia compartilhada, sem rastreamento de pilha. */
+    public static final MensagemInvalidaException INSTANCIA = new MensagemInvalidaException(false);
+
     public MensagemInvalidaException() {
         super("Mensagem no pode ser vazia.");
     }
+
+    private MensagemInvalidaException(boolean rastreavel) {
+        super("Mensagem no pode ser vazia.", rastreavel);
+    }
 }
\ No newline at end of file
@@ -1,7 +1,14 @@
 package entidades.exceptions;
 
 public class OperacaoNaoPermitidaException extends JackutException {
+    /** Instncia compartilhada, sem rastreamento de pilha. */
+    public static final OperacaoNaoPermitidaException INSTANCIA = new OperacaoNaoPermitidaException(false);
+
     public OperacaoNaoPermitidaException() {
         super("Operao no permitida no estado atual do sistema.");
     }
-}
+
+    private OperacaoNaoPermitidaException(boolean rastreavel) {
+        super("Operao no permitida no estado atual do sistema.", rastreavel);
+    }
+}
\ No newline at end of file
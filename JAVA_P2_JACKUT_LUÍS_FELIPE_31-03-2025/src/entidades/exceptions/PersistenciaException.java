@@ -1,6 +1,11 @@
 package entidades.exceptions;
 
-public class PersistenciaException extends JackutException {
+/**
+ * Falha de leitura ou gravao dos dados persistentes. Fica fora da hierarquia de
+ * {@link JackutException} (e, portanto, de IllegalArgumentException) para que tratamentos de
+ * entrada invlida no engulam erros de E/S ou dados corrompidos.
+ */
+public class PersistenciaException extends RuntimeException {
     private final String operacao;
     private final String recurso;
 
@@ -1,7 +1,14 @@
 package entidades.exceptions;
 
 public class RecadoParaSiException extends JackutException {
+    /** Instncia compartilhada, sem rastreamento de pilha. */
+    public static final RecadoParaSiException INSTANCIA = new RecadoParaSiException(false);
+
     public RecadoParaSiException() {
         super("Usurio no pode enviar recado para si mesmo.");
     }
-}
+
+    private RecadoParaSiException(boolean rastreavel) {
+        super("Usurio no pode enviar recado para si mesmo.", rastreavel);
+    }
+}
\ No newline at end of file
@@ -1,7 +1,14 @@
 package entidades.exceptions;
 
 public class SemRecadosException extends JackutException {
+    /** Instncia compartilhada, sem rastreamento de pilha. */
+    public static final SemRecadosException INSTANCIA = new SemRecadosException(false);
+
     public SemRecadosException() {
         super("No h recados.");
     }
+
+    private SemRecadosException(boolean rastreavel) {
+        super("No h recados.", rastreavel);
+    }
 }
\ No newline at end of file
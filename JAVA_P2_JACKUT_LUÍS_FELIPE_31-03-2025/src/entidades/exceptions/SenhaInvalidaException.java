@@ -1,7 +1,14 @@
 package entidades.exceptions;
 
 public class SenhaInvalidaException extends JackutException {
+    /** Instncia compartilhada, sem rastreamento de pilha. */
+    public static final SenhaInvalidaException INSTANCIA = new SenhaInvalidaException(false);
+
     public SenhaInvalidaException() {
         super("Senha invlida.");
     }
+
+    private SenhaInvalidaException(boolean rastreavel) {
+        super("Senha invlida.", rastreavel);
+    }
 }
\ No newline at end of file
@@ -1,7 +1,14 @@
 package entidades.exceptions;
 
 public class SessaoExpiradaException extends JackutException {
+    /** Instncia compartilhada, sem rastreamento de pilha. */
+    public static final SessaoExpiradaException INSTANCIA = new SessaoExpiradaException(false);
+
     public SessaoExpiradaException() {
         super("Sesso expirada.");
     }
+
+    private SessaoExpiradaException(boolean rastreavel) {
+        super("Sesso expirada.", rastreavel);
+    }
 }
\ No newline at end of file
@@ -1,7 +1,14 @@
 package entidades.exceptions;
 
 public class SessaoInvalidaException extends JackutException {
+    /** Instncia compartilhada, sem rastreamento de pilha. */
+    public static final SessaoInvalidaException INSTANCIA = new SessaoInvalidaException(false);
+
     public SessaoInvalidaException() {
         super("Sesso invlida.");
     }
+
+    private SessaoInvalidaException(boolean rastreavel) {
+        super("Sesso invlida.", rastreavel);
+    }
 }
\ No newline at end of file
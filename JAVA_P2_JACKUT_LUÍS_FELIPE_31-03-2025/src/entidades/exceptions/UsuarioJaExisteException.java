@@ -1,7 +1,14 @@
 package entidades.exceptions;
 
 public class UsuarioJaExisteException extends JackutException {
+    /** Instncia compartilhada, sem rastreamento de pilha. */
+    public static final UsuarioJaExisteException INSTANCIA = new UsuarioJaExisteException(false);
+
     public UsuarioJaExisteException() {
         super("Conta com esse nome j existe.");
     }
+
+    private UsuarioJaExisteException(boolean rastreavel) {
+        super("Conta com esse nome j existe.", rastreavel);
+    }
 }
\ No newline at end of file
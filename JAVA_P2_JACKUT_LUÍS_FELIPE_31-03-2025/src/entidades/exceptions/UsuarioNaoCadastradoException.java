@@ -1,8 +1,14 @@
 package entidades.exceptions;
 
 public class UsuarioNaoCadastradoException extends JackutException {
+    /** Instncia compartilhada, sem rastreamento de pilha. */
+    public static final UsuarioNaoCadastradoException INSTANCIA = new UsuarioNaoCadastradoException(false);
+
     public UsuarioNaoCadastradoException() {
         super("Usurio no cadastrado.");
     }
-}
 
+    private UsuarioNaoCadastradoException(boolean rastreavel) {
+        super("Usurio no cadastrado.", rastreavel);
+    }
+}
\ No newline at end of file